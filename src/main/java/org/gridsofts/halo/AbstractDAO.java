@@ -5,20 +5,34 @@
  */
 package org.gridsofts.halo;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.gridsofts.halo.bean.Condition;
+import org.gridsofts.halo.bean.KeysetPage;
+import org.gridsofts.halo.cache.EntityCache;
+import org.gridsofts.halo.cache.QueryCache;
+import org.gridsofts.halo.cache.StatementCache;
 import org.gridsofts.halo.exception.ConnectionException;
 import org.gridsofts.halo.exception.DAOException;
 import org.gridsofts.halo.itf.IConnectionFactory;
 import org.gridsofts.halo.itf.IDialect;
 import org.gridsofts.halo.itf.ITypeConverter;
 import org.gridsofts.halo.proxy.BeanFactory;
+import org.gridsofts.halo.proxy.BeanMapper;
 import org.gridsofts.halo.util.StringUtil;
 
 /**
@@ -27,6 +41,7 @@ import org.gridsofts.halo.util.StringUtil;
  * 
  * 注意：<br>
  * 手动事务控制时，事务之间不能互相嵌套。<br>
+ * 连接及事务状态与线程绑定，同一个DAO实例可以被多个线程并发使用。<br>
  * 
  * 对连接池的实现在外部完成
  * 
@@ -38,14 +53,40 @@ public abstract class AbstractDAO implements Serializable {
 	protected IDialect dialect = null;
 	protected List<ITypeConverter> typeConverters = null;
 
-	// 标识事务状态（True表示已经手动开启，False表示未手动开启）
-	protected boolean transactionOpenState = false;
-	
+	// 类型转换器的数组形式，供行映射时使用，避免每次都重新构造
+	private transient volatile ITypeConverter[] typeConverterArray = null;
+
 	// 标识级联状态（True表示自动查询级联数据，False表示不级联）
 	protected boolean cascading = false;
 
-	protected IConnectionFactory factory;
-	protected Connection conn;
+	// 游标查询时每次从数据库读取的行数（0表示使用驱动的默认值）
+	protected int fetchSize = 0;
+
+	// 批量保存时每批提交给数据库的行数
+	protected int batchSize = 500;
+
+	// 批量保存时是否每批单独提交（仅在未手动开启事务时有效）
+	protected boolean commitPerBatch = false;
+
+	// 每个连接最多缓存的预编译语句数（0表示不缓存）
+	protected int statementCacheSize = 64;
+
+	protected volatile IConnectionFactory factory;
+
+	private transient volatile StatementCache statementCache = null;
+
+	// 实体缓存的配置（halo.properties）及实体缓存
+	private Properties cacheProperties = new Properties();
+	private transient volatile EntityCache entityCache = null;
+
+	// 查询缓存的最大内存占用（估算的字节数，0表示不缓存）及存活时间（毫秒，0表示不过期）
+	protected long queryCacheWeight = 0;
+	protected long queryCacheTTL = 0;
+
+	private transient volatile QueryCache queryCache = null;
+
+	// 各线程的手动事务状态；未手动开启事务时为空，每次操作单独请求连接
+	private transient ThreadLocal<TransactionContext> transactionContext = new ThreadLocal<>();
 
 	protected AbstractDAO() {
 		this(null);
@@ -59,6 +100,8 @@ public abstract class AbstractDAO implements Serializable {
 		try {
 			property.load(AbstractDAO.class.getResourceAsStream("/halo.properties"));
 
+			cacheProperties = property;
+
 			if (property.containsKey("dialect")) {
 				Class<?> dialectCls = Class.forName(property.getProperty("dialect"));
 
@@ -66,6 +109,32 @@ public abstract class AbstractDAO implements Serializable {
 				dialect.setProperties(property);
 			}
 
+			if (property.containsKey("fetchSize") && StringUtil.isInteger(property.getProperty("fetchSize"))) {
+				fetchSize = Integer.parseInt(property.getProperty("fetchSize").trim());
+			}
+
+			if (property.containsKey("statementCacheSize")
+					&& StringUtil.isInteger(property.getProperty("statementCacheSize"))) {
+				statementCacheSize = Integer.parseInt(property.getProperty("statementCacheSize").trim());
+			}
+
+			if (property.containsKey("queryCacheWeight")
+					&& StringUtil.isInteger(property.getProperty("queryCacheWeight"))) {
+				queryCacheWeight = Long.parseLong(property.getProperty("queryCacheWeight").trim());
+			}
+
+			if (property.containsKey("queryCacheTTL") && StringUtil.isInteger(property.getProperty("queryCacheTTL"))) {
+				queryCacheTTL = Long.parseLong(property.getProperty("queryCacheTTL").trim());
+			}
+
+			if (property.containsKey("batchSize") && StringUtil.isInteger(property.getProperty("batchSize"))) {
+				batchSize = Integer.parseInt(property.getProperty("batchSize").trim());
+			}
+
+			if (property.containsKey("commitPerBatch")) {
+				commitPerBatch = Boolean.parseBoolean(property.getProperty("commitPerBatch").trim());
+			}
+
 			if (property.containsKey("typeConverter")
 					&& !StringUtil.isNull(property.getProperty("typeConverter"))) {
 
@@ -104,6 +173,31 @@ public abstract class AbstractDAO implements Serializable {
 	 */
 	public void setTypeConverters(List<ITypeConverter> typeConverters) {
 		this.typeConverters = typeConverters;
+		this.typeConverterArray = null;
+	}
+
+	/**
+	 * 获取注册于该DAO的所有类型转换器（数组形式）
+	 * 
+	 * @return 类型转换器数组，如果没有注册则返回null
+	 */
+	public ITypeConverter[] getTypeConverterArray() {
+
+		List<ITypeConverter> converters = getTypeConverters();
+
+		if (converters == null) {
+			return null;
+		}
+
+		ITypeConverter[] converterArray = typeConverterArray;
+
+		// 转换器列表可能在外部被直接修改，数量不一致时重新构造
+		if (converterArray == null || converterArray.length != converters.size()) {
+			converterArray = converters.toArray(new ITypeConverter[0]);
+			typeConverterArray = converterArray;
+		}
+
+		return converterArray;
 	}
 	
 	/**
@@ -119,6 +213,7 @@ public abstract class AbstractDAO implements Serializable {
 		}
 		
 		getTypeConverters().add(typeConverter);
+		typeConverterArray = null;
 	}
 
 	/**
@@ -126,7 +221,7 @@ public abstract class AbstractDAO implements Serializable {
 	 * 
 	 * @param factory
 	 */
-	public synchronized void setFactory(IConnectionFactory factory) {
+	public void setFactory(IConnectionFactory factory) {
 		this.factory = factory;
 	}
 
@@ -146,26 +241,250 @@ public abstract class AbstractDAO implements Serializable {
 	}
 
 	/**
-	 * 手动开启事务
+	 * @return the fetchSize
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * 设置游标查询时每次从数据库读取的行数；0表示使用驱动的默认值。<br>
+	 * 注意：MySQL驱动需要设置为Integer.MIN_VALUE才会逐行读取。
 	 * 
-	 * @throws DAOException
+	 * @param fetchSize the fetchSize to set
 	 */
-	public synchronized void beginTransaction() throws DAOException {
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
 
-		requestConnection();
+	/**
+	 * @return the batchSize
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
 
-		if (isConnectionValid() && !transactionOpenState) {
+	/**
+	 * 设置批量保存时每批提交给数据库的行数；小于1时视为不分批。<br>
+	 * 注意：MySQL驱动需要在连接串中设置rewriteBatchedStatements=true才会真正合并发送。
+	 * 
+	 * @param batchSize the batchSize to set
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
 
-			try {
-				conn.setAutoCommit(false);
-			} catch (SQLException e) {
-				throw new DAOException("无法将该连接的自动提交模式设置为False，原始信息：" + e.getMessage());
+	/**
+	 * @return the commitPerBatch
+	 */
+	public boolean isCommitPerBatch() {
+		return commitPerBatch;
+	}
+
+	/**
+	 * 设置批量保存时是否每批单独提交；开启后，出现异常时只回滚当前批，之前的批次已经生效。<br>
+	 * 手动开启事务时此设置无效，由事务统一提交。
+	 * 
+	 * @param commitPerBatch the commitPerBatch to set
+	 */
+	public void setCommitPerBatch(boolean commitPerBatch) {
+		this.commitPerBatch = commitPerBatch;
+	}
+
+	/**
+	 * @return the statementCacheSize
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * 设置每个连接最多缓存的预编译语句数；0表示不缓存。重新设置后，原有的缓存语句将被关闭。<br>
+	 * 语句按物理连接缓存，只有IConnectionFactory复用连接（如连接池）时才有效。
+	 * 
+	 * @param statementCacheSize the statementCacheSize to set
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+
+		StatementCache cache = this.statementCache;
+		this.statementCache = null;
+
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * 获取该DAO使用的预编译语句缓存，可用于查看命中率等统计信息
+	 * 
+	 * @return
+	 */
+	public StatementCache getStatementCache() {
+
+		StatementCache cache = statementCache;
+
+		if (cache == null) {
+			synchronized (this) {
+				cache = statementCache;
+
+				if (cache == null) {
+					statementCache = cache = new StatementCache(statementCacheSize);
+				}
 			}
+		}
 
-			transactionOpenState = true;
-		} else {
+		return cache;
+	}
+
+	/**
+	 * 获取该DAO使用的实体缓存；只有标注了Cacheable或在halo.properties中配置了缓存的实体类才会被缓存
+	 * 
+	 * @return
+	 */
+	public EntityCache getEntityCache() {
+
+		EntityCache cache = entityCache;
+
+		if (cache == null) {
+			synchronized (this) {
+				cache = entityCache;
+
+				if (cache == null) {
+					entityCache = cache = new EntityCache(cacheProperties);
+				}
+			}
+		}
+
+		return cache;
+	}
+
+	/**
+	 * @return the queryCacheWeight
+	 */
+	public long getQueryCacheWeight() {
+		return queryCacheWeight;
+	}
+
+	/**
+	 * @return the queryCacheTTL
+	 */
+	public long getQueryCacheTTL() {
+		return queryCacheTTL;
+	}
+
+	/**
+	 * 开启或关闭查询缓存；重新设置后，原有的缓存结果将被丢弃
+	 * 
+	 * @param queryCacheWeight
+	 *            最大内存占用（估算的字节数）；0表示不缓存
+	 * @param queryCacheTTL
+	 *            缓存结果的存活时间（毫秒）；0表示不过期
+	 */
+	public void setQueryCache(long queryCacheWeight, long queryCacheTTL) {
+		this.queryCacheWeight = queryCacheWeight;
+		this.queryCacheTTL = queryCacheTTL;
+		this.queryCache = null;
+	}
+
+	/**
+	 * 获取该DAO使用的查询缓存，可用于查看命中率等统计信息
+	 * 
+	 * @return
+	 */
+	public QueryCache getQueryCache() {
+
+		QueryCache cache = queryCache;
+
+		if (cache == null) {
+			synchronized (this) {
+				cache = queryCache;
+
+				if (cache == null) {
+					queryCache = cache = new QueryCache(queryCacheWeight, queryCacheTTL);
+				}
+			}
+		}
+
+		return cache;
+	}
+
+	/**
+	 * 获取预编译语句，优先从语句缓存中取得；使用完毕后需调用closeStatement
+	 * 
+	 * @param conn
+	 * @param sql
+	 * @return
+	 * @throws SQLException
+	 */
+	protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+		return getStatementCache().prepare(conn, sql);
+	}
+
+	/**
+	 * 获取返回指定列自动生成值的预编译语句，优先从语句缓存中取得；使用完毕后需调用closeStatement
+	 * 
+	 * @param conn
+	 * @param sql
+	 * @param columnNames
+	 * @return
+	 * @throws SQLException
+	 */
+	protected PreparedStatement prepareStatement(Connection conn, String sql, String[] columnNames)
+			throws SQLException {
+		return getStatementCache().prepare(conn, sql, columnNames);
+	}
+
+	/**
+	 * 获取指定是否返回自动生成的主键的预编译语句，优先从语句缓存中取得；使用完毕后需调用closeStatement
+	 * 
+	 * @param conn
+	 * @param sql
+	 * @param autoGeneratedKeys
+	 * @return
+	 * @throws SQLException
+	 */
+	protected PreparedStatement prepareStatement(Connection conn, String sql, int autoGeneratedKeys)
+			throws SQLException {
+		return getStatementCache().prepare(conn, sql, autoGeneratedKeys);
+	}
+
+	/**
+	 * 归还通过prepareStatement获取的语句；能够缓存时放回缓存，否则关闭
+	 * 
+	 * @param conn
+	 * @param stat
+	 */
+	protected void closeStatement(Connection conn, Statement stat) {
+		getStatementCache().release(conn, stat);
+	}
+
+	/**
+	 * 手动开启事务；事务状态与当前线程绑定，其它线程不受影响
+	 * 
+	 * @throws DAOException
+	 */
+	public void beginTransaction() throws DAOException {
+
+		if (transactionContext.get() != null) {
+			throw new ConnectionException("无法获取数据库连接，或事务已经开启！");
+		}
+
+		Connection conn = factory.getConnection();
+
+		if (!isConnectionValid(conn)) {
 			throw new ConnectionException("无法获取数据库连接，或事务已经开启！");
 		}
+
+		try {
+			conn.setAutoCommit(false);
+		} catch (SQLException e) {
+			factory.release(conn);
+
+			throw new DAOException("无法将该连接的自动提交模式设置为False，原始信息：" + e.getMessage());
+		}
+
+		transactionContext.set(new TransactionContext(conn));
 	}
 
 	/**
@@ -173,14 +492,16 @@ public abstract class AbstractDAO implements Serializable {
 	 * 
 	 * @throws DAOException
 	 */
-	public synchronized void endTransaction() throws DAOException {
+	public void endTransaction() throws DAOException {
+
+		TransactionContext context = transactionContext.get();
 
 		try {
-			if (isConnectionValid() && transactionOpenState) {
+			if (context != null && isConnectionValid(context.connection)) {
 
 				try {
-					conn.commit();
-					conn.setAutoCommit(true);
+					context.connection.commit();
+					context.connection.setAutoCommit(true);
 				} catch (SQLException e) {
 					throw new DAOException("手动关闭事务时出现异常，原始信息：" + e.getMessage());
 				}
@@ -197,14 +518,16 @@ public abstract class AbstractDAO implements Serializable {
 	 * 
 	 * @throws DAOException
 	 */
-	public synchronized void rollBackTransaction() throws DAOException {
+	public void rollBackTransaction() throws DAOException {
+
+		TransactionContext context = transactionContext.get();
 
 		try {
-			if (isConnectionValid() && transactionOpenState) {
+			if (context != null && isConnectionValid(context.connection)) {
 
 				try {
-					conn.rollback();
-					conn.setAutoCommit(true);
+					context.connection.rollback();
+					context.connection.setAutoCommit(true);
 				} catch (SQLException e) {
 					throw new DAOException("回滚事务时出现异常，原始信息：" + e.getMessage());
 				}
@@ -217,41 +540,185 @@ public abstract class AbstractDAO implements Serializable {
 	}
 
 	/**
-	 * 关闭事务，并关闭数据库连接
+	 * 测试当前线程是否已经手动开启事务
+	 * 
+	 * @return
+	 */
+	public boolean isTransactionOpen() {
+		return transactionContext.get() != null;
+	}
+
+	/**
+	 * 关闭当前线程的事务，并关闭数据库连接
 	 */
-	protected synchronized void cleanTransaction() {
+	protected void cleanTransaction() {
 
-		transactionOpenState = false;
+		TransactionContext context = transactionContext.get();
+		transactionContext.remove();
 
-		if (isConnectionValid()) {
-			factory.release(conn);
+		// 即使连接已经失效也要交还给factory，以便连接池回收其占用的名额
+		if (context != null && context.connection != null) {
+			factory.release(context.connection);
+		}
+
+		if (context != null) {
+			context.removeEntities(tableClass -> true);
+
+			for (Runnable action : context.completionActions) {
+				try {
+					action.run();
+				} catch (Throwable e) {
+				}
+			}
 		}
 	}
 
 	/**
-	 * 请求连接
+	 * 登记在当前线程的事务结束（提交或回滚）后执行的操作
 	 * 
+	 * @param action
+	 * @return 如果当前线程未手动开启事务，则不登记并返回false
+	 */
+	protected boolean afterTransaction(Runnable action) {
+
+		TransactionContext context = transactionContext.get();
+
+		if (context == null) {
+			return false;
+		}
+
+		context.completionActions.add(action);
+
+		return true;
+	}
+
+	/**
+	 * 获取当前线程的事务中已加载的实体（一级缓存）
+	 * 
+	 * @param tableClass
+	 *            标注Table的类
+	 * @param key
+	 *            主键值
+	 * @return 如果当前线程未手动开启事务，或尚未加载，则返回null
+	 */
+	protected Object getLoadedEntity(Class<?> tableClass, Object[] key) {
+
+		TransactionContext context = transactionContext.get();
+
+		return context == null || key == null ? null : context.getEntity(tableClass, key);
+	}
+
+	/**
+	 * 将实体登记到当前线程的事务中，此后在该事务中加载相同主键的实体时返回同一实例
+	 * 
+	 * @param tableClass
+	 *            标注Table的类
+	 * @param key
+	 *            主键值；为null时忽略
+	 * @param bean
+	 * @return 如果当前线程未手动开启事务，则不登记并返回false
+	 */
+	protected boolean putLoadedEntity(Class<?> tableClass, Object[] key, Object bean) {
+
+		TransactionContext context = transactionContext.get();
+
+		if (context == null || key == null || bean == null) {
+			return false;
+		}
+
+		context.putEntity(tableClass, key, bean);
+
+		return true;
+	}
+
+	/**
+	 * 从当前线程的事务中移除已加载的实体，如记录被删除时
+	 * 
+	 * @param tableClass
+	 *            标注Table的类
+	 * @param key
+	 *            主键值；为null时忽略
+	 */
+	protected void removeLoadedEntity(Class<?> tableClass, Object[] key) {
+
+		TransactionContext context = transactionContext.get();
+
+		if (context != null && key != null) {
+			context.removeEntity(tableClass, key);
+		}
+	}
+
+	/**
+	 * 从当前线程的事务中移除满足条件的实体类的全部已加载实体，如执行了无法确定影响范围的更新语句时
+	 * 
+	 * @param filter
+	 *            判断标注Table的类
+	 */
+	protected void removeLoadedEntities(Predicate<Class<?>> filter) {
+
+		TransactionContext context = transactionContext.get();
+
+		if (context != null) {
+			context.removeEntities(filter);
+		}
+	}
+
+	/**
+	 * 获取当前线程的事务状态
+	 * 
+	 * @return 如果未手动开启事务，则返回null
+	 */
+	TransactionContext getTransactionContext() {
+		return transactionContext.get();
+	}
+
+	/**
+	 * 请求连接；如果当前线程已经手动开启事务，则返回事务的连接
+	 * 
+	 * @return
 	 * @throws ConnectionException
 	 */
-	protected synchronized void requestConnection() throws ConnectionException {
+	protected Connection requestConnection() throws ConnectionException {
 
-		// 当连接无效，或未手动开启事务时请求连接
-		if (!isConnectionValid() || !transactionOpenState) {
+		TransactionContext context = transactionContext.get();
+
+		// 当未手动开启事务，或事务的连接无效时请求连接
+		Connection conn = null;
+		if (context != null && isConnectionValid(context.connection)) {
+			conn = context.connection;
+		} else {
 			conn = factory.getConnection();
 		}
 
 		if (conn == null) {
 			throw new ConnectionException();
 		}
+
+		return conn;
+	}
+
+	/**
+	 * 测试给定的连接是否是当前线程手动事务所使用的连接
+	 * 
+	 * @param conn
+	 * @return
+	 */
+	protected boolean isTransactionConnection(Connection conn) {
+
+		TransactionContext context = transactionContext.get();
+
+		return context != null && context.connection == conn;
 	}
 
 	/**
 	 * 关闭连接
+	 * 
+	 * @param conn
 	 */
-	protected synchronized void releaseConnection() {
+	protected void releaseConnection(Connection conn) {
 
-		// 当连接有效，并且未手动开启事务时关闭连接
-		if (isConnectionValid() && !transactionOpenState) {
+		// 当连接不是手动事务的连接时关闭连接；即使连接已经失效也要交还给factory，以便连接池回收其占用的名额
+		if (conn != null && !isTransactionConnection(conn)) {
 			factory.release(conn);
 		}
 	}
@@ -259,9 +726,10 @@ public abstract class AbstractDAO implements Serializable {
 	/**
 	 * 测试连接的有效性
 	 * 
+	 * @param conn
 	 * @return
 	 */
-	protected synchronized boolean isConnectionValid() {
+	protected boolean isConnectionValid(Connection conn) {
 
 		try {
 			return conn != null && !conn.isClosed();
@@ -271,6 +739,19 @@ public abstract class AbstractDAO implements Serializable {
 		return false;
 	}
 
+	/**
+	 * 反序列化时重建线程事务状态
+	 * 
+	 * @param in
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		transactionContext = new ThreadLocal<>();
+	}
+
 	/**
 	 * 根据给定的类信息及名值映射，构造相应的Bean
 	 * 
@@ -293,6 +774,74 @@ public abstract class AbstractDAO implements Serializable {
 		}
 	}
 
+	/**
+	 * 根据给定的类信息及行数据，构造相应的Bean
+	 * 
+	 * @param <T>
+	 * @param t
+	 * @param mapper
+	 *            与结果集列布局对应的行映射器
+	 * @param row
+	 *            行数据
+	 * @return
+	 * @throws DAOException
+	 */
+	protected <T> T createBean(Class<T> t, BeanMapper mapper, Object[] row) throws DAOException {
+
+		try {
+			if (cascading) {
+				return BeanFactory.createProxyBean(this, t, mapper, row);
+			} else {
+				return BeanFactory.create(this, t, mapper, row);
+			}
+		} catch (Throwable e) {
+			throw new DAOException("无法创建Bean实例");
+		}
+	}
+
+	/**
+	 * 根据给定的类信息及多行数据，构造相应的Bean列表；同一列表中的Bean可以批量加载关联对象
+	 * 
+	 * @param <T>
+	 * @param t
+	 * @param mapper
+	 *            与结果集列布局对应的行映射器
+	 * @param rows
+	 *            行数据
+	 * @return
+	 * @throws DAOException
+	 */
+	protected <T> List<T> createBeans(Class<T> t, BeanMapper mapper, List<Object[]> rows) throws DAOException {
+
+		try {
+			if (cascading) {
+				return BeanFactory.createProxyBeans(this, t, mapper, rows);
+			} else {
+				return BeanFactory.create(this, t, mapper, rows);
+			}
+		} catch (Throwable e) {
+			throw new DAOException("无法创建Bean实例");
+		}
+	}
+
+	/**
+	 * 获取给定类型在给定列布局下的行映射器
+	 * 
+	 * @param t
+	 * @param columnLabels
+	 *            结果集的列名（全大写）
+	 * @return
+	 * @throws DAOException
+	 */
+	protected BeanMapper getBeanMapper(Class<?> t, String[] columnLabels) throws DAOException {
+
+		try {
+			return BeanMapper.get(t, columnLabels);
+		} catch (Throwable e) {
+			throw new DAOException("无法创建Bean实例");
+		}
+	}
+
 
 	/**
 	 * 根据主键，查询指定的Bean
@@ -379,6 +928,125 @@ public abstract class AbstractDAO implements Serializable {
 	public abstract <T> List<T> list(Class<T> t, int start, int limit, String condition, Object... param)
 			throws DAOException;
 
+	/**
+	 * 获取符合查询条件的Bean列表；查询条件被转换为参数化的WHERE子句，参数名可以是字段名或列名
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            List内将存放的Bean的class对象
+	 * @param condition
+	 *            查询条件；为空时查询全部记录
+	 * @return 查询结果
+	 * @throws DAOException
+	 */
+	public abstract <T> List<T> list(Class<T> t, Condition condition) throws DAOException;
+
+	/**
+	 * 获取符合查询条件的Bean列表；支持分页查询
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            List内将存放的Bean的class对象
+	 * @param start
+	 *            分页查询记录起始行数
+	 * @param limit
+	 *            分页查询记录数
+	 * @param condition
+	 *            查询条件；为空时查询全部记录
+	 * @return 查询结果
+	 * @throws DAOException
+	 */
+	public abstract <T> List<T> list(Class<T> t, int start, int limit, Condition condition) throws DAOException;
+
+	/**
+	 * 获取符合查询条件的记录数
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            与要查询的表相映射的Bean的class对象
+	 * @param condition
+	 *            查询条件；为空时统计全部记录
+	 * @return 记录数
+	 * @throws DAOException
+	 */
+	public abstract <T> long count(Class<T> t, Condition condition) throws DAOException;
+
+	/**
+	 * 键集分页查询：按排序键（Table.seekKey，并以主键补足）升序，返回排序键大于lastKey的至多limit条记录。<br>
+	 * 与按起始行数分页不同，查询代价不随页码增加；但只能逐页向后翻页。<br>
+	 * 结果的顺序完全由排序键决定，查询条件不能指定其它排序。
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            List内将存放的Bean的class对象
+	 * @param lastKey
+	 *            上一页返回的{@link KeysetPage#getNextKey()}；为空时返回第一页
+	 * @param limit
+	 *            每页记录数
+	 * @param condition
+	 *            具体的查询条件，需要自行添加“Where”关键词；只能包含WHERE子句，
+	 *            含有order by、group by、having等子句时抛出异常
+	 * @param param
+	 *            任意数量的参数（如果有）
+	 * @return 一页结果
+	 * @throws DAOException
+	 */
+	public abstract <T> KeysetPage<T> listAfter(Class<T> t, Object[] lastKey, int limit, String condition,
+			Object... param) throws DAOException;
+
+	/**
+	 * 键集分页查询，查询条件见{@link #list(Class, Condition)}
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            List内将存放的Bean的class对象
+	 * @param lastKey
+	 *            上一页返回的{@link KeysetPage#getNextKey()}；为空时返回第一页
+	 * @param limit
+	 *            每页记录数
+	 * @param condition
+	 *            查询条件；为空时查询全部记录
+	 * @return 一页结果
+	 * @throws DAOException
+	 */
+	public abstract <T> KeysetPage<T> listAfter(Class<T> t, Object[] lastKey, int limit, Condition condition)
+			throws DAOException;
+
+	/**
+	 * 以游标方式查询符合条件的Bean；逐行读取并构造Bean，适用于导出大量数据等场景。<br>
+	 * 返回的Stream占用一个数据库连接直至其关闭，因此必须在使用完毕后关闭（推荐使用try-with-resources）。
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            Stream内将存放的Bean的class对象
+	 * @param condition
+	 *            具体的查询条件，需要自行添加“Where”、“And”等关键词。<br>
+	 *            根据实际需要还可以拼接其它合适的语句，如 order子句
+	 * @param param
+	 *            任意数量的参数（如果有）
+	 * @return 逐行构造Bean的Stream
+	 * @throws DAOException
+	 */
+	public abstract <T> Stream<T> stream(Class<T> t, String condition, Object... param) throws DAOException;
+
+	/**
+	 * 以游标方式遍历符合条件的Bean，对每个Bean执行给定的操作；遍历结束后自动释放连接。
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            Bean的class对象
+	 * @param condition
+	 *            具体的查询条件，需要自行添加“Where”、“And”等关键词。<br>
+	 *            根据实际需要还可以拼接其它合适的语句，如 order子句
+	 * @param action
+	 *            对每个Bean执行的操作
+	 * @param param
+	 *            任意数量的参数（如果有）
+	 * @throws DAOException
+	 */
+	public abstract <T> void forEach(Class<T> t, String condition, Consumer<? super T> action, Object... param)
+			throws DAOException;
+
 	/**
 	 * 保存指定Bean(新增)
 	 * 
@@ -393,7 +1061,8 @@ public abstract class AbstractDAO implements Serializable {
 	public abstract <T> T save(Class<T> t, T bean) throws DAOException;
 
 	/**
-	 * 批量保存指定的Bean(新增)；注意：在需要同时保存多个同类型的Bean时，此方法的执行效率理论上要高于多次调用save方法。
+	 * 批量保存指定的Bean(新增)；注意：在需要同时保存多个同类型的Bean时，此方法的执行效率理论上要高于多次调用save方法。<br>
+	 * 所有Bean共用同一个预编译语句，按batchSize分批提交；如果实体类实现了IWritebackKeys，会逐行回写自动生成的主键。
 	 * 
 	 * @param <T>
 	 * @param t
@@ -418,7 +1087,8 @@ public abstract class AbstractDAO implements Serializable {
 	public abstract <T> int update(T bean) throws DAOException;
 
 	/**
-	 * 保存给定的Bean。如果已经存在则更新，否则新增
+	 * 保存给定的Bean。如果已经存在则更新，否则新增<br>
+	 * 主键值完整且方言支持“插入或更新”语句（{@link IDialect#getUpsertSQL}）时以单条语句完成，否则先查询再更新或新增
 	 * 
 	 * @param <T>
 	 * @param t
@@ -441,6 +1111,46 @@ public abstract class AbstractDAO implements Serializable {
 	 */
 	public abstract <T> int delete(T bean) throws DAOException;
 
+	/**
+	 * 批量更新给定的Bean，更新过程不修改主键值；所有Bean共用同一个预编译语句，按batchSize分批提交。
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            准备要更新的Bean的class对象
+	 * @param beans
+	 *            准备要更新的Bean
+	 * @return 实际影响的行记录数
+	 * @throws DAOException
+	 */
+	public abstract <T> int batchUpdate(Class<T> t, Collection<T> beans) throws DAOException;
+
+	/**
+	 * 按主键批量删除给定的Bean；所有Bean共用同一个预编译语句，按batchSize分批提交。
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            准备要删除的Bean的class对象
+	 * @param beans
+	 *            准备要删除的Bean
+	 * @return 实际影响的行记录数
+	 * @throws DAOException
+	 */
+	public abstract <T> int batchDelete(Class<T> t, Collection<T> beans) throws DAOException;
+
+	/**
+	 * 按主键值批量删除记录；每批生成一条“WHERE pk IN (...)”语句。<br>
+	 * 复合主键时，每个主键值为按主键声明顺序排列的Object[]。
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            与准备要删除的记录相映射的Bean的class对象
+	 * @param keys
+	 *            主键值
+	 * @return 实际影响的行记录数
+	 * @throws DAOException
+	 */
+	public abstract <T> int deleteByKeys(Class<T> t, Collection<?> keys) throws DAOException;
+
 	/**
 	 * 删除该类型所映射到的表内的全部记录
 	 * 
@@ -452,6 +1162,20 @@ public abstract class AbstractDAO implements Serializable {
 	 */
 	public abstract <T> int deleteAll(Class<T> t) throws DAOException;
 
+	/**
+	 * 删除该类型所映射到的表内符合查询条件的记录
+	 * 
+	 * @param <T>
+	 * @param t
+	 *            与要删除记录的表相映射的Bean的class对象
+	 * @param condition
+	 *            查询条件，不能为空；删除全部记录请使用deleteAll
+	 * @return 实际影响的行记录数
+	 * @throws DAOException
+	 *             条件为空时
+	 */
+	public abstract <T> int delete(Class<T> t, Condition condition) throws DAOException;
+
 	/*************************************************************************************************/
 	/**************** 以下方法为SQL支持 ***************************************************************/
 	/*************************************************************************************************/
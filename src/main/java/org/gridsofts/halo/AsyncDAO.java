@@ -0,0 +1,240 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * DAO的异步包装；每个操作提交给执行器，在执行线程中单独向连接工厂请求连接，返回CompletableFuture。<br>
+ * 操作失败时Future异常完成，其原因（cause）即为原始异常（如DAOException）。<br>
+ * <br>
+ * 
+ * 注意：<br>
+ * 事务状态与线程绑定，异步操作不会参与调用线程中手动开启的事务。<br>
+ * 并发的操作数受连接池大小限制，超出的操作将在请求连接时等待。<br>
+ * <br>
+ * 
+ * 用法：
+ * 
+ * <pre>
+ * try (AsyncDAO async = new AsyncDAO(dao)) {
+ * 	CompletableFuture&lt;Region&gt; region = async.find(Region.class, 1);
+ * 	CompletableFuture&lt;List&lt;City&gt;&gt; cities = async.list(City.class, "where regionId = ?", 1);
+ * 
+ * 	CompletableFuture.allOf(region, cities).join();
+ * }
+ * </pre>
+ * 
+ * @author Lei
+ */
+public class AsyncDAO implements AutoCloseable {
+
+	private final AbstractDAO dao;
+	private final Executor executor;
+
+	// 由本对象创建的执行器；关闭时一并关闭
+	private final ExecutorService ownedExecutor;
+
+	/**
+	 * 使用默认的执行器：运行环境支持虚拟线程时每个操作使用一个虚拟线程，否则使用有界的线程池
+	 * 
+	 * @param dao
+	 */
+	public AsyncDAO(AbstractDAO dao) {
+		this(dao, newDefaultExecutor(Runtime.getRuntime().availableProcessors() * 2), true);
+	}
+
+	/**
+	 * 使用给定的执行器；执行器由调用者管理，关闭本对象时不会关闭执行器
+	 * 
+	 * @param dao
+	 * @param executor
+	 */
+	public AsyncDAO(AbstractDAO dao, Executor executor) {
+		this(dao, executor, false);
+	}
+
+	private AsyncDAO(AbstractDAO dao, Executor executor, boolean owned) {
+
+		if (dao == null || executor == null) {
+			throw new NullPointerException();
+		}
+
+		this.dao = dao;
+		this.executor = executor;
+		this.ownedExecutor = owned && executor instanceof ExecutorService ? (ExecutorService) executor : null;
+	}
+
+	/**
+	 * 创建执行器：运行环境支持虚拟线程（Java 21+）时每个操作使用一个虚拟线程，否则使用有界的线程池
+	 * 
+	 * @param maxThreads
+	 *            不支持虚拟线程时线程池的最大线程数
+	 * @return
+	 */
+	public static ExecutorService newDefaultExecutor(int maxThreads) {
+
+		try {
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Throwable e) {
+		}
+
+		return newBoundedExecutor(maxThreads);
+	}
+
+	/**
+	 * 创建有界的线程池；空闲线程在一分钟后回收
+	 * 
+	 * @param maxThreads
+	 *            最大线程数
+	 * @return
+	 */
+	public static ExecutorService newBoundedExecutor(int maxThreads) {
+
+		AtomicInteger threadNumber = new AtomicInteger();
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), r -> {
+					Thread thread = new Thread(r, "halo-async-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
+	}
+
+	/**
+	 * @return 被包装的DAO
+	 */
+	public AbstractDAO getDAO() {
+		return dao;
+	}
+
+	/**
+	 * 异步执行给定的操作
+	 * 
+	 * @param operation
+	 * @return
+	 */
+	public <R> CompletableFuture<R> submit(Supplier<R> operation) {
+		return CompletableFuture.supplyAsync(operation, executor);
+	}
+
+	/**
+	 * @see AbstractDAO#find(Class, Object...)
+	 */
+	public <T> CompletableFuture<T> find(Class<T> t, Object... key) {
+		return submit(() -> dao.find(t, key));
+	}
+
+	/**
+	 * @see AbstractDAO#getTotalQuantity(Class, String, Object...)
+	 */
+	public <T> CompletableFuture<Long> getTotalQuantity(Class<T> t, String condition, Object... param) {
+		return submit(() -> dao.getTotalQuantity(t, condition, param));
+	}
+
+	/**
+	 * @see AbstractDAO#list(Class)
+	 */
+	public <T> CompletableFuture<List<T>> list(Class<T> t) {
+		return submit(() -> dao.list(t));
+	}
+
+	/**
+	 * @see AbstractDAO#list(Class, String, Object...)
+	 */
+	public <T> CompletableFuture<List<T>> list(Class<T> t, String condition, Object... param) {
+		return submit(() -> dao.list(t, condition, param));
+	}
+
+	/**
+	 * @see AbstractDAO#list(Class, int, int, String, Object...)
+	 */
+	public <T> CompletableFuture<List<T>> list(Class<T> t, int start, int limit, String condition,
+			Object... param) {
+		return submit(() -> dao.list(t, start, limit, condition, param));
+	}
+
+	/**
+	 * @see AbstractDAO#save(Class, Object)
+	 */
+	public <T> CompletableFuture<T> save(Class<T> t, T bean) {
+		return submit(() -> dao.save(t, bean));
+	}
+
+	/**
+	 * @see AbstractDAO#update(Object)
+	 */
+	public <T> CompletableFuture<Integer> update(T bean) {
+		return submit(() -> dao.update(bean));
+	}
+
+	/**
+	 * @see AbstractDAO#saveOrUpdate(Class, Object)
+	 */
+	public <T> CompletableFuture<Integer> saveOrUpdate(Class<T> t, T bean) {
+		return submit(() -> dao.saveOrUpdate(t, bean));
+	}
+
+	/**
+	 * @see AbstractDAO#delete(Object)
+	 */
+	public <T> CompletableFuture<Integer> delete(T bean) {
+		return submit(() -> dao.delete(bean));
+	}
+
+	/**
+	 * @see AbstractDAO#executeQuery(Class, String, Object...)
+	 */
+	public <T> CompletableFuture<List<T>> executeQuery(Class<T> t, String sql, Object... param) {
+		return submit(() -> dao.executeQuery(t, sql, param));
+	}
+
+	/**
+	 * @see AbstractDAO#executeQuery(Class, int, int, String, Object...)
+	 */
+	public <T> CompletableFuture<List<T>> executeQuery(Class<T> t, int start, int limit, String sql,
+			Object... param) {
+		return submit(() -> dao.executeQuery(t, start, limit, sql, param));
+	}
+
+	/**
+	 * @see AbstractDAO#executeQuery(String, Object...)
+	 */
+	public CompletableFuture<List<Map<String, Object>>> executeQuery(String sql, Object... param) {
+		return submit(() -> dao.executeQuery(sql, param));
+	}
+
+	/**
+	 * @see AbstractDAO#executeUpdate(String, Object...)
+	 */
+	public CompletableFuture<Integer> executeUpdate(String sql, Object... param) {
+		return submit(() -> dao.executeUpdate(sql, param));
+	}
+
+	/**
+	 * 关闭由本对象创建的执行器；已提交的操作仍会执行完毕
+	 */
+	@Override
+	public void close() {
+		if (ownedExecutor != null) {
+			ownedExecutor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.proxy.BeanMapper;
+
+/**
+ * 游标式的结果集迭代器；逐行读取并构造Bean，不在内存中缓存整个结果集。<br>
+ * 结果集读取完毕或出现异常时自动关闭，并释放其占用的连接。
+ * 
+ * @author Lei
+ */
+class BeanCursor<T> implements Iterator<T>, AutoCloseable {
+
+	private final AbstractDAO dao;
+	private final Class<T> t;
+
+	private final Statement statement;
+	private final ResultSet rs;
+
+	// 关闭游标时用于释放连接；如果连接不归游标所有（如处于手动事务中），则为null
+	private Runnable connectionReleaser;
+
+	private BeanMapper mapper;
+	private int colCount;
+
+	// 是否已经读取了下一行
+	private boolean fetched = false;
+	private boolean hasNext = false;
+	private boolean closed = false;
+
+	BeanCursor(AbstractDAO dao, Class<T> t, Statement statement, ResultSet rs, Runnable connectionReleaser) {
+		this.dao = dao;
+		this.t = t;
+		this.statement = statement;
+		this.rs = rs;
+		this.connectionReleaser = connectionReleaser;
+	}
+
+	@Override
+	public boolean hasNext() {
+
+		if (closed) {
+			return false;
+		}
+
+		if (!fetched) {
+			try {
+				hasNext = rs.next();
+				fetched = true;
+			} catch (SQLException e) {
+				close();
+				throw new DAOException("读取查询结果时出现异常，原始信息：" + e.getMessage());
+			}
+
+			// 结果集读取完毕，尽早释放连接
+			if (!hasNext) {
+				close();
+			}
+		}
+
+		return hasNext;
+	}
+
+	@Override
+	public T next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		fetched = false;
+
+		try {
+			if (mapper == null) {
+				ResultSetMetaData rsmd = rs.getMetaData();
+
+				colCount = rsmd.getColumnCount();
+
+				String[] columnLabels = new String[colCount];
+				for (int i = 0; i < colCount; i++) {
+					columnLabels[i] = rsmd.getColumnLabel(i + 1).toUpperCase();
+				}
+
+				mapper = dao.getBeanMapper(t, columnLabels);
+			}
+
+			Object[] row = new Object[colCount];
+			for (int i = 0; i < colCount; i++) {
+				row[i] = rs.getObject(i + 1);
+			}
+
+			return dao.createBean(t, mapper, row);
+
+		} catch (SQLException e) {
+			close();
+			throw new DAOException("读取查询结果时出现异常，原始信息：" + e.getMessage());
+		} catch (DAOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() {
+
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			rs.close();
+		} catch (SQLException e) {
+		}
+
+		try {
+			statement.close();
+		} catch (SQLException e) {
+		}
+
+		if (connectionReleaser != null) {
+			connectionReleaser.run();
+			connectionReleaser = null;
+		}
+	}
+}
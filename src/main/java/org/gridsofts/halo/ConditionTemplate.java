@@ -0,0 +1,280 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.gridsofts.halo.bean.Condition;
+import org.gridsofts.halo.bean.Condition.Param;
+import org.gridsofts.halo.bean.Condition.Param.Association;
+import org.gridsofts.halo.exception.DAOException;
+
+/**
+ * 由查询条件（{@link Condition}）生成的参数化WHERE子句。<br/>
+ * 子句只取决于条件的形态（各参数的字段、关联类型、是否为空值及In列表的分档长度），而与参数值无关；
+ * 同一形态的子句按实体类缓存（见{@link MetaInfo#getConditionTemplate(List)}），生成的SQL文本完全相同，便于驱动及数据库缓存语句。<br/>
+ * In/NotIn列表的长度按8、16、32、64分档，超过64时按64的倍数分档；不足的部分以最后一个值补齐，不影响查询结果。<br/>
+ * 单个列表最多1000个值（Oracle的上限），超过时拆分为多个列表，In以or连接、NotIn以and连接，末尾的不足1000个值的部分仍按上述规则分档。
+ * 
+ * @author Lei
+ */
+public class ConditionTemplate {
+
+	// In/NotIn列表的最小分档及倍增的上限
+	private static final int MinBucketSize = 8;
+	private static final int MaxBucketStep = 64;
+
+	// 单个In/NotIn列表的最大长度（ORA-01795）
+	static final int MaxInListSize = 1000;
+
+	// WHERE子句（以“where ”开头）；条件为空时为空字符串
+	public final String where;
+
+	ConditionTemplate(MetaInfo metaInfo, List<Object> shape) {
+
+		StringBuffer where = new StringBuffer();
+
+		for (int i = 0; i < shape.size(); i += 3) {
+			String columnName = getColumnName(metaInfo, (String) shape.get(i));
+			Association association = (Association) shape.get(i + 1);
+			int size = (Integer) shape.get(i + 2);
+
+			where.append(i == 0 ? "where " : " and ").append(getPredicate(columnName, association, size));
+		}
+
+		this.where = where.toString();
+	}
+
+	/**
+	 * 获取给定条件的形态，作为WHERE子句的缓存键
+	 * 
+	 * @param condition
+	 * @return
+	 */
+	public static List<Object> getShape(Condition condition) {
+
+		if (condition == null) {
+			return Collections.emptyList();
+		}
+
+		List<Object> shape = new ArrayList<>();
+
+		for (Iterator<Param> it = condition.iterator(); it.hasNext();) {
+			Param param = it.next();
+
+			Association association = param.getAssociation() == null ? Association.Equals : param.getAssociation();
+
+			shape.add(param.getName());
+			shape.add(association);
+
+			switch (association) {
+			case In:
+			case NotIn:
+				shape.add(getBucketSize(toList(param.getValue()).size()));
+				break;
+			default:
+				// Equals/NotEquals的空值分别生成is null/is not null，不占用参数
+				shape.add(param.getValue() == null ? 0 : 1);
+			}
+		}
+
+		return shape;
+	}
+
+	/**
+	 * 获取给定条件的参数值，顺序与WHERE子句中的占位符一致
+	 * 
+	 * @param condition
+	 * @return
+	 */
+	public static Object[] getParameters(Condition condition) {
+
+		if (condition == null) {
+			return new Object[0];
+		}
+
+		List<Object> params = new ArrayList<>();
+
+		for (Iterator<Param> it = condition.iterator(); it.hasNext();) {
+			Param param = it.next();
+
+			Association association = param.getAssociation() == null ? Association.Equals : param.getAssociation();
+			Object value = param.getValue();
+
+			switch (association) {
+			case In:
+			case NotIn:
+				List<Object> values = toList(value);
+
+				params.addAll(values);
+
+				// 以最后一个值补齐到分档长度
+				for (int i = values.size(), size = getBucketSize(values.size()); i < size; i++) {
+					params.add(values.get(values.size() - 1));
+				}
+				break;
+			case Like:
+			case NotLike:
+				params.add(value == null ? null : "%" + value + "%");
+				break;
+			case Equals:
+			case NotEquals:
+				if (value != null) {
+					params.add(value);
+				}
+				break;
+			default:
+				params.add(value);
+			}
+		}
+
+		return params.toArray();
+	}
+
+	/**
+	 * In/NotIn列表长度的分档：8、16、32、64，超过64时按64的倍数，但不超过1000；
+	 * 超过1000时，每满1000个值为一个列表，余下的部分按同样的规则分档
+	 * 
+	 * @param size
+	 * @return
+	 */
+	static int getBucketSize(int size) {
+
+		if (size > MaxInListSize) {
+			return size / MaxInListSize * MaxInListSize + getBucketSize(size % MaxInListSize);
+		}
+
+		if (size <= 0) {
+			return 0;
+		} else if (size > MaxBucketStep) {
+			return Math.min((size + MaxBucketStep - 1) / MaxBucketStep * MaxBucketStep, MaxInListSize);
+		}
+
+		int bucket = MinBucketSize;
+		while (bucket < size) {
+			bucket *= 2;
+		}
+
+		return bucket;
+	}
+
+	private static String getPredicate(String columnName, Association association, int size) {
+
+		switch (association) {
+		case NotEquals:
+			return columnName + (size == 0 ? " is not null" : " <> ?");
+		case Like:
+		case LikeTo:
+			return columnName + " like ?";
+		case NotLike:
+			return columnName + " not like ?";
+		case In:
+			return size == 0 ? "1 = 0" : getInLists(columnName + " in (", " or ", size);
+		case NotIn:
+			return size == 0 ? "1 = 1" : getInLists(columnName + " not in (", " and ", size);
+		default:
+			return columnName + (size == 0 ? " is null" : " = ?");
+		}
+	}
+
+	/**
+	 * 生成In/NotIn列表；超过1000个值时拆分为多个列表，以给定的连接词连接并加上括号
+	 * 
+	 * @param head
+	 *            列表之前的部分，如“col in (”
+	 * @param conjunction
+	 * @param size
+	 * @return
+	 */
+	private static String getInLists(String head, String conjunction, int size) {
+
+		if (size <= MaxInListSize) {
+			return head + getPlaceholders(size) + ")";
+		}
+
+		StringBuffer lists = new StringBuffer("(");
+
+		for (int offset = 0; offset < size; offset += MaxInListSize) {
+			if (offset > 0) {
+				lists.append(conjunction);
+			}
+
+			lists.append(head).append(getPlaceholders(Math.min(MaxInListSize, size - offset))).append(")");
+		}
+
+		return lists.append(")").toString();
+	}
+
+	private static String getPlaceholders(int size) {
+
+		StringBuffer placeholders = new StringBuffer();
+
+		for (int i = 0; i < size; i++) {
+			placeholders.append(i == 0 ? "?" : ", ?");
+		}
+
+		return placeholders.toString();
+	}
+
+	/**
+	 * 将参数名（字段名或列名）转换为列名
+	 * 
+	 * @param metaInfo
+	 * @param name
+	 * @return
+	 */
+	private static String getColumnName(MetaInfo metaInfo, String name) {
+
+		if (name == null) {
+			throw new DAOException("查询条件的参数名为空");
+		}
+
+		for (int i = 0; i < metaInfo.fields.size(); i++) {
+			if (metaInfo.fields.get(i).getName().equals(name)) {
+				return metaInfo.columnNames.get(i);
+			}
+		}
+
+		for (String columnName : metaInfo.columnNames) {
+			if (columnName.equalsIgnoreCase(name)) {
+				return columnName;
+			}
+		}
+
+		throw new DAOException("类“" + metaInfo.clazz.getName() + "”中未找到与查询条件“" + name + "”对应的字段");
+	}
+
+	/**
+	 * 将In/NotIn的参数值（集合、数组或单个值）转换为列表
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static List<Object> toList(Object value) {
+
+		if (value == null) {
+			return Collections.emptyList();
+		} else if (value instanceof Collection) {
+			return new ArrayList<>((Collection<?>) value);
+		} else if (value instanceof Object[]) {
+			return Arrays.asList((Object[]) value);
+		} else if (value.getClass().isArray()) {
+			List<Object> values = new ArrayList<>();
+			for (int i = 0, len = Array.getLength(value); i < len; i++) {
+				values.add(Array.get(value, i));
+			}
+			return values;
+		}
+
+		return Collections.singletonList(value);
+	}
+}
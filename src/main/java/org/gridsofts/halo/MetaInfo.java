@@ -7,21 +7,68 @@ package org.gridsofts.halo;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.gridsofts.halo.annotation.DontModify;
+import org.gridsofts.halo.annotation.ManyToOne;
 import org.gridsofts.halo.annotation.Table;
 import org.gridsofts.halo.exception.AnnotationException;
 import org.gridsofts.halo.util.BeanUtil;
+import org.gridsofts.halo.util.ClassUtil;
 
+/**
+ * 实体类的描述元信息。<br/>
+ * 元信息在首次使用时解析并按类缓存，此后不再变化；可以在启动时通过{@link #preload(String...)}预先注册实体包。
+ * 
+ * @author Lei
+ */
 public class MetaInfo implements Serializable {
 	private static final long serialVersionUID = 1L;
 
-	public Class<?> clazz;
-	public Table tableMetaInfo;
-	public List<Field> primaryKeys;
-	public List<Field> fields;
+	// 按类缓存的元信息；基于ClassValue，不会阻止实体类被卸载
+	private static final ClassValue<MetaInfo> Registry = new ClassValue<MetaInfo>() {
+
+		@Override
+		protected MetaInfo computeValue(Class<?> type) {
+			return new MetaInfo(type);
+		}
+	};
+
+	public final Class<?> clazz;
+	public final Table tableMetaInfo;
+	public final List<Field> primaryKeys;
+	public final List<Field> fields;
+
+	// 与fields一一对应的数据列名
+	public final List<String> columnNames;
+	// 与primaryKeys一一对应的数据列名
+	public final List<String> primaryKeyColumns;
+	// 允许修改的字段（非主键，且未标注DontModify）
+	public final List<Field> modifiableFields;
+	// 插入时需要赋值的字段（不含自动生成的主键）
+	public final List<Field> insertFields;
+	// 自动生成的主键列名（全大写）
+	public final List<String> generatedKeyColumns;
+	// 以连接方式立即加载的“多对一”字段，顺序即连接的序号
+	public final List<Field> joinFetchFields;
+	// 键集分页的排序字段（Table.seekKey，并以主键补足以保证唯一）
+	public final List<Field> seekFields;
+	// 与seekFields一一对应的数据列名
+	public final List<String> seekColumns;
+
+	// 与fields一一对应的“允许修改”标记
+	private final boolean[] modifiableMask;
+
+	// 按表名（及连接的关联表名）缓存的SQL模板；表名可能被DAO子类改写，因此不能只按类缓存
+	private final Map<List<String>, SqlTemplate> sqlTemplates = new ConcurrentHashMap<>();
+
+	// 按查询条件的形态缓存的WHERE子句
+	private final Map<List<Object>, ConditionTemplate> conditionTemplates = new ConcurrentHashMap<>();
 
 	/**
 	 * 获取指定类型的标注信息组
@@ -34,8 +81,52 @@ public class MetaInfo implements Serializable {
 	 */
 	public static MetaInfo get(Class<?> t) throws AnnotationException, SecurityException,
 			NoSuchFieldException {
+		return Registry.get(t);
+	}
 
-		MetaInfo metaInfo = new MetaInfo();
+	/**
+	 * 预先注册给定包（含子包）内所有标注了Table的实体类
+	 * 
+	 * @param packageNames
+	 * @return 实际注册的实体类数量
+	 */
+	public static int preload(String... packageNames) {
+
+		int count = 0;
+
+		if (packageNames != null) {
+			for (String packageName : packageNames) {
+				count += preload(ClassUtil.getClasses(packageName).stream().filter(cls -> {
+					return cls.isAnnotationPresent(Table.class);
+				}).toArray(Class<?>[]::new));
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * 预先注册给定的实体类
+	 * 
+	 * @param classes
+	 * @return 实际注册的实体类数量
+	 * @throws AnnotationException
+	 */
+	public static int preload(Class<?>... classes) throws AnnotationException {
+
+		int count = 0;
+
+		if (classes != null) {
+			for (Class<?> cls : classes) {
+				Registry.get(cls);
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private MetaInfo(Class<?> t) throws AnnotationException {
 
 		Class<?> clazz = t;
 
@@ -46,7 +137,7 @@ public class MetaInfo implements Serializable {
 
 		if (metaTable == null) {
 
-			metaTable = t.getSuperclass().getAnnotation(Table.class);
+			metaTable = t.getSuperclass() == null ? null : t.getSuperclass().getAnnotation(Table.class);
 
 			// 如果父类也未标注元数据，则抛出异常
 			if (metaTable == null) {
@@ -56,24 +147,30 @@ public class MetaInfo implements Serializable {
 			clazz = t.getSuperclass();
 		}
 
-		// 记录相关内容
-		metaInfo.clazz = clazz;
-		metaInfo.tableMetaInfo = metaTable;
-		
-		metaInfo.fields = Arrays.asList(BeanUtil.getDeclaredFields(clazz, true));
+		Field[] declaredFields = BeanUtil.getDeclaredFields(clazz, true);
 
 		// 如果字段为空，则抛出异常
-		if (metaInfo.fields == null || metaInfo.fields.isEmpty()) {
+		if (declaredFields == null || declaredFields.length == 0) {
 			throw new AnnotationException("未定义列信息");
 		}
-		
+
 		// 过滤出所有非静态/常量/瞬态字段
-		metaInfo.fields = metaInfo.fields.stream().filter(field -> {
-			return !BeanUtil.isConstField(field) && !BeanUtil.isTransient(field);
-		}).collect(Collectors.toList());
+		List<Field> fields = new ArrayList<>();
+		List<Field> joinFetchFields = new ArrayList<>();
+
+		for (Field field : declaredFields) {
+			if (!BeanUtil.isConstField(field) && !BeanUtil.isTransient(field)) {
+				fields.add(field);
+			}
+
+			ManyToOne mtoAnnotation = field.getAnnotation(ManyToOne.class);
+			if (mtoAnnotation != null && !mtoAnnotation.lazy() && ManyToOne.JOIN.equalsIgnoreCase(mtoAnnotation.fetch())) {
+				joinFetchFields.add(field);
+			}
+		}
 
 		// 如果字段为空，则抛出异常
-		if (metaInfo.fields == null || metaInfo.fields.isEmpty()) {
+		if (fields.isEmpty()) {
 			throw new AnnotationException("未标注列信息");
 		}
 
@@ -83,12 +180,143 @@ public class MetaInfo implements Serializable {
 		}
 
 		// 取主键
-		List<String> primaryKeys = Arrays.asList(metaTable.primaryKey());
-		
-		metaInfo.primaryKeys = metaInfo.fields.stream().filter(field -> {
-			return primaryKeys.contains(field.getName());
-		}).collect(Collectors.toList());
+		List<String> primaryKeyNames = Arrays.asList(metaTable.primaryKey());
+
+		List<Field> primaryKeys = new ArrayList<>();
+		List<String> primaryKeyColumns = new ArrayList<>();
+		List<String> columnNames = new ArrayList<>();
+		List<Field> modifiableFields = new ArrayList<>();
+		List<Field> insertFields = new ArrayList<>();
+		List<String> generatedKeyColumns = new ArrayList<>();
+
+		boolean[] modifiableMask = new boolean[fields.size()];
+
+		for (int i = 0, fieldCount = fields.size(); i < fieldCount; i++) {
+			Field field = fields.get(i);
+			String columnName = BeanUtil.getColumnName(field);
+
+			columnNames.add(columnName);
+
+			if (primaryKeyNames.contains(field.getName())) {
+				primaryKeys.add(field);
+				primaryKeyColumns.add(columnName);
+
+				// 如果需要自动生成主键，则插入时跳过
+				if (metaTable.autoGenerateKeys()) {
+					generatedKeyColumns.add(columnName.toUpperCase());
+				} else {
+					insertFields.add(field);
+				}
+			}
+			// 不允许修改主键值，以及标记为“禁止修改”的列
+			else {
+				insertFields.add(field);
 
-		return metaInfo;
+				if (field.getAnnotation(DontModify.class) == null) {
+					modifiableFields.add(field);
+					modifiableMask[i] = true;
+				}
+			}
+		}
+
+		// 键集分页的排序字段
+		List<Field> seekFields = new ArrayList<>();
+		List<String> seekColumns = new ArrayList<>();
+
+		for (String seekKey : metaTable.seekKey()) {
+			int index = -1;
+			for (int i = 0; i < fields.size() && index < 0; i++) {
+				if (fields.get(i).getName().equals(seekKey)) {
+					index = i;
+				}
+			}
+
+			if (index < 0) {
+				throw new AnnotationException("未找到键集分页的排序字段“" + seekKey + "”");
+			}
+
+			seekFields.add(fields.get(index));
+			seekColumns.add(columnNames.get(index));
+		}
+
+		for (int i = 0; i < primaryKeys.size(); i++) {
+			if (!seekFields.contains(primaryKeys.get(i))) {
+				seekFields.add(primaryKeys.get(i));
+				seekColumns.add(primaryKeyColumns.get(i));
+			}
+		}
+
+		// 记录相关内容
+		this.clazz = clazz;
+		this.tableMetaInfo = metaTable;
+		this.fields = Collections.unmodifiableList(fields);
+		this.primaryKeys = Collections.unmodifiableList(primaryKeys);
+		this.columnNames = Collections.unmodifiableList(columnNames);
+		this.primaryKeyColumns = Collections.unmodifiableList(primaryKeyColumns);
+		this.modifiableFields = Collections.unmodifiableList(modifiableFields);
+		this.insertFields = Collections.unmodifiableList(insertFields);
+		this.generatedKeyColumns = Collections.unmodifiableList(generatedKeyColumns);
+		this.joinFetchFields = Collections.unmodifiableList(joinFetchFields);
+		this.seekFields = Collections.unmodifiableList(seekFields);
+		this.seekColumns = Collections.unmodifiableList(seekColumns);
+		this.modifiableMask = modifiableMask;
+	}
+
+	/**
+	 * 获取映射至给定表名的SQL模板，首次使用时生成
+	 * 
+	 * @param tableName
+	 *            实际的表名
+	 * @return
+	 */
+	public SqlTemplate getSqlTemplate(String tableName) {
+		return getSqlTemplate(tableName, Collections.emptyList());
+	}
+
+	/**
+	 * 获取映射至给定表名的SQL模板，首次使用时生成
+	 * 
+	 * @param tableName
+	 *            实际的表名
+	 * @param joinTableNames
+	 *            与joinFetchFields一一对应的关联表的实际表名；为空时使用关联类标注的表名
+	 * @return
+	 */
+	public SqlTemplate getSqlTemplate(String tableName, List<String> joinTableNames) {
+
+		List<String> key = new ArrayList<>(joinTableNames.size() + 1);
+		key.add(tableName);
+		key.addAll(joinTableNames);
+
+		return sqlTemplates.computeIfAbsent(key, k -> new SqlTemplate(this, tableName, joinTableNames));
+	}
+
+	/**
+	 * 获取给定形态的查询条件对应的WHERE子句，首次使用时生成
+	 * 
+	 * @param shape
+	 *            查询条件的形态，见{@link ConditionTemplate#getShape(org.gridsofts.halo.bean.Condition)}
+	 * @return
+	 */
+	public ConditionTemplate getConditionTemplate(List<Object> shape) {
+
+		ConditionTemplate template = conditionTemplates.get(shape);
+
+		if (template == null) {
+			template = conditionTemplates.computeIfAbsent(shape, k -> new ConditionTemplate(this, k));
+		}
+
+		return template;
+	}
+
+	/**
+	 * 判断指定位置的字段是否允许修改（非主键，且未标注DontModify）
+	 * 
+	 * @param fieldIndex
+	 *            字段在fields中的索引
+	 * @return
+	 */
+	public boolean isModifiable(int fieldIndex) {
+		return modifiableMask[fieldIndex];
 	}
 }
@@ -0,0 +1,186 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.gridsofts.halo.annotation.ManyToOne;
+import org.gridsofts.halo.exception.AnnotationException;
+import org.gridsofts.halo.util.BeanUtil;
+
+/**
+ * 预编译的实体SQL模板。<br/>
+ * SQL文本只与实体类及表名有关，因此随MetaInfo按表名缓存，执行时只需绑定参数。
+ * 
+ * @author Lei
+ */
+public class SqlTemplate implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public final String tableName;
+
+	// SELECT col, ... FROM table WHERE pk = ?
+	public final String selectByPrimaryKey;
+	// UPDATE table SET col = ?, ... WHERE pk = ?；如果没有可修改的列，则为null
+	public final String updateByPrimaryKey;
+	// DELETE FROM table WHERE pk = ?
+	public final String deleteByPrimaryKey;
+	// SELECT COUNT(0) FROM table
+	public final String count;
+	// SELECT table.* FROM table
+	public final String selectAll;
+	// DELETE FROM table
+	public final String deleteAll;
+	// INSERT INTO table (col, ...) VALUES (?, ...)；不含自动生成的主键列
+	public final String insert;
+
+	// 键集分页的条件：table.k1 > ? OR (table.k1 = ? AND table.k2 > ?) ...；参数依次为各分支的键值
+	public final String seekCondition;
+	// 键集分页的排序： ORDER BY table.k1, table.k2 ...
+	public final String seekOrderBy;
+
+	// 插入语句中的列名，与MetaInfo.insertFields一一对应
+	public final List<String> insertColumns;
+
+	// 是否有以连接方式立即加载的关联；为false时，以下两个语句与selectAll、selectByPrimaryKey相同
+	public final boolean joined;
+	// SELECT table.*, J1.*, ... FROM table LEFT JOIN (SELECT col AS J1_0, ... FROM ref) J1 ON table.fk = J1.J1_n ...
+	public final String selectAllJoined;
+	// SELECT col, ..., J1.*, ... FROM table LEFT JOIN ... WHERE pk = ?；前MetaInfo.columnNames.size()列属于本表
+	public final String selectByPrimaryKeyJoined;
+
+	/**
+	 * 获取连接的关联表的列在结果集中的列名；关联表的列以序号命名，因此查询条件中未限定表名的列只会指向本表
+	 * 
+	 * @param joinIndex
+	 *            连接的序号，即字段在MetaInfo.joinFetchFields中的索引
+	 * @param columnIndex
+	 *            列在关联类的MetaInfo.columnNames中的索引
+	 * @return
+	 */
+	public static String getJoinColumnLabel(int joinIndex, int columnIndex) {
+		return getJoinAlias(joinIndex) + "_" + columnIndex;
+	}
+
+	private static String getJoinAlias(int joinIndex) {
+		return "J" + (joinIndex + 1);
+	}
+
+	SqlTemplate(MetaInfo metaInfo, String tableName, List<String> joinTableNames) {
+
+		this.tableName = tableName;
+
+		String primaryKeyCondition = metaInfo.primaryKeyColumns.stream().map(k -> {
+			return k + " = ?";
+		}).collect(Collectors.joining(" AND ", " WHERE ", ""));
+
+		this.selectByPrimaryKey = "SELECT " + String.join(", ", metaInfo.columnNames) + " FROM " + tableName
+				+ primaryKeyCondition;
+
+		if (metaInfo.modifiableFields.isEmpty()) {
+			this.updateByPrimaryKey = null;
+		} else {
+			this.updateByPrimaryKey = "UPDATE " + tableName + " SET " + metaInfo.modifiableFields.stream().map(field -> {
+				return metaInfo.columnNames.get(metaInfo.fields.indexOf(field)) + " = ?";
+			}).collect(Collectors.joining(", ")) + primaryKeyCondition;
+		}
+
+		this.deleteByPrimaryKey = "DELETE FROM " + tableName + primaryKeyCondition;
+		this.count = "SELECT COUNT(0) FROM " + tableName + " ";
+		this.selectAll = "SELECT " + tableName + ".* FROM " + tableName + " ";
+		this.deleteAll = "DELETE FROM " + tableName;
+
+		StringBuffer seekCondition = new StringBuffer();
+		for (int i = 0; i < metaInfo.seekColumns.size(); i++) {
+			seekCondition.append(i == 0 ? "" : " OR (");
+
+			for (int j = 0; j < i; j++) {
+				seekCondition.append(tableName).append(".").append(metaInfo.seekColumns.get(j)).append(" = ? AND ");
+			}
+			seekCondition.append(tableName).append(".").append(metaInfo.seekColumns.get(i)).append(" > ?");
+
+			seekCondition.append(i == 0 ? "" : ")");
+		}
+
+		this.seekCondition = seekCondition.toString();
+		this.seekOrderBy = metaInfo.seekColumns.stream().map(c -> {
+			return tableName + "." + c;
+		}).collect(Collectors.joining(", ", " ORDER BY ", ""));
+
+		this.insertColumns = Collections.unmodifiableList(metaInfo.insertFields.stream().map(field -> {
+			return metaInfo.columnNames.get(metaInfo.fields.indexOf(field)).toUpperCase();
+		}).collect(Collectors.toList()));
+
+		this.insert = "INSERT INTO " + tableName + " (" + String.join(", ", insertColumns) + ") VALUES ("
+				+ insertColumns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+
+		this.joined = !metaInfo.joinFetchFields.isEmpty();
+
+		if (joined) {
+			StringBuffer joinColumns = new StringBuffer();
+			StringBuffer joinClauses = new StringBuffer();
+
+			for (int i = 0; i < metaInfo.joinFetchFields.size(); i++) {
+				Field field = metaInfo.joinFetchFields.get(i);
+
+				MetaInfo target = null;
+				try {
+					target = MetaInfo.get(field.getType());
+				} catch (Exception e) {
+					throw new AnnotationException("关联类“" + field.getType().getName() + "”的元信息无效");
+				}
+
+				String[] foreignKeys = field.getAnnotation(ManyToOne.class).foreignKey();
+
+				if (foreignKeys == null || foreignKeys.length != target.primaryKeys.size()) {
+					throw new AnnotationException("字段“" + field.getName() + "”的外键与关联类的主键不一致");
+				}
+
+				String alias = getJoinAlias(i);
+				String joinTableName = i < joinTableNames.size() ? joinTableNames.get(i) : target.tableMetaInfo.value();
+
+				joinColumns.append(", ").append(alias).append(".*");
+
+				joinClauses.append(" LEFT JOIN (SELECT ");
+				for (int j = 0; j < target.columnNames.size(); j++) {
+					joinClauses.append(j == 0 ? "" : ", ").append(target.columnNames.get(j)).append(" AS ")
+							.append(getJoinColumnLabel(i, j));
+				}
+				joinClauses.append(" FROM ").append(joinTableName).append(") ").append(alias);
+
+				for (int j = 0; j < foreignKeys.length; j++) {
+					Field foreignKey = BeanUtil.getDeclaredField(foreignKeys[j], metaInfo.clazz);
+
+					if (foreignKey == null) {
+						throw new AnnotationException("未找到外键字段“" + foreignKeys[j] + "”");
+					}
+
+					int keyIndex = target.fields.indexOf(target.primaryKeys.get(j));
+
+					joinClauses.append(j == 0 ? " ON " : " AND ").append(tableName).append(".")
+							.append(BeanUtil.getColumnName(foreignKey)).append(" = ").append(alias).append(".")
+							.append(getJoinColumnLabel(i, keyIndex));
+				}
+			}
+
+			this.selectAllJoined = "SELECT " + tableName + ".*" + joinColumns + " FROM " + tableName + joinClauses
+					+ " ";
+			this.selectByPrimaryKeyJoined = "SELECT " + metaInfo.columnNames.stream().map(c -> {
+				return tableName + "." + c;
+			}).collect(Collectors.joining(", ")) + joinColumns + " FROM " + tableName + joinClauses
+					+ metaInfo.primaryKeyColumns.stream().map(k -> {
+					return tableName + "." + k + " = ?";
+				}).collect(Collectors.joining(" AND ", " WHERE ", ""));
+		} else {
+			this.selectAllJoined = selectAll;
+			this.selectByPrimaryKeyJoined = selectByPrimaryKey;
+		}
+	}
+}
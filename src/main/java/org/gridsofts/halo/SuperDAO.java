@@ -6,6 +6,7 @@
 package org.gridsofts.halo;
 
 import java.lang.reflect.Field;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -13,17 +14,37 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.gridsofts.halo.annotation.DontModify;
 import org.gridsofts.halo.annotation.Table;
-import org.gridsofts.halo.bean.RSMemoryCache;
+import org.gridsofts.halo.bean.Condition;
+import org.gridsofts.halo.bean.KeysetPage;
+import org.gridsofts.halo.cache.EntityCache;
+import org.gridsofts.halo.cache.EntityCache.CachedEntity;
+import org.gridsofts.halo.cache.QueryCache;
+import org.gridsofts.halo.cache.QueryCache.CachedResult;
+import org.gridsofts.halo.cache.QueryCache.QueryKey;
+import org.gridsofts.halo.cache.QueryCache.Snapshot;
 import org.gridsofts.halo.exception.DAOException;
 import org.gridsofts.halo.itf.IConnectionFactory;
 import org.gridsofts.halo.itf.IWritebackKeys;
+import org.gridsofts.halo.proxy.BeanMapper;
 import org.gridsofts.halo.util.BeanUtil;
+import org.gridsofts.halo.util.SqlUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +59,20 @@ public class SuperDAO extends AbstractDAO {
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LoggerFactory.getLogger(SuperDAO.class);
 
+	// 按主键批量删除时，每条语句中IN列表的最大长度
+	private static final int MaxInListSize = 1000;
+
+	// 查询条件开头的“where”关键词
+	private static final Pattern WhereHead = Pattern.compile("^\\s*where\\b", Pattern.CASE_INSENSITIVE);
+
+	// 查询条件中WHERE之后的子句；键集分页的条件被包在括号内，不能含有这些子句
+	private static final Pattern TrailingClause = Pattern.compile(
+			"\\b(order\\s+by|group\\s+by|having|limit|offset|fetch|union)\\b", Pattern.CASE_INSENSITIVE);
+
+	// 查询条件中的字符串常量及括号内的部分（子查询等）
+	private static final Pattern QuotedLiteral = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern InnermostGroup = Pattern.compile("\\([^()]*\\)");
+
 	public SuperDAO() {
 	}
 
@@ -55,53 +90,136 @@ public class SuperDAO extends AbstractDAO {
 		return metaTable.value();
 	}
 
+	/**
+	 * 执行查询，将结果集逐行读入内存后关闭结果集，以便语句可以放回缓存；行数据用于构造Bean及查询缓存
+	 * 
+	 * @param stat
+	 * @param rows
+	 *            读出的行数据，顺序与返回的列名一致
+	 * @return 列名（全大写）
+	 * @throws SQLException
+	 */
+	protected String[] readRows(PreparedStatement stat, List<Object[]> rows) throws SQLException {
+
+		try (ResultSet resultSet = stat.executeQuery()) {
+			ResultSetMetaData rsmd = resultSet.getMetaData();
+
+			int colCount = rsmd.getColumnCount();
+
+			String[] labels = new String[colCount];
+			for (int i = 0; i < colCount; i++) {
+				labels[i] = rsmd.getColumnLabel(i + 1).toUpperCase();
+			}
+
+			while (resultSet.next()) {
+				Object[] row = new Object[colCount];
+
+				for (int i = 0; i < colCount; i++) {
+					row[i] = resultSet.getObject(i + 1);
+				}
+
+				rows.add(row);
+			}
+
+			return labels;
+		}
+	}
+
+	/**
+	 * 执行查询，读取第一行第一列的值后关闭结果集，以便语句可以放回缓存；用于记录数、唯一值等统计查询
+	 * 
+	 * @param stat
+	 * @return 没有记录时返回0
+	 * @throws SQLException
+	 */
+	protected long readUniqueLong(PreparedStatement stat) throws SQLException {
+
+		try (ResultSet resultSet = stat.executeQuery()) {
+			return resultSet.next() ? resultSet.getLong(1) : 0;
+		}
+	}
+
+	/**
+	 * 获取指定类型的SQL模板
+	 * 
+	 * @param metaInfo
+	 * @return
+	 */
+	protected SqlTemplate getSqlTemplate(MetaInfo metaInfo) {
+
+		if (metaInfo.joinFetchFields.isEmpty()) {
+			return metaInfo.getSqlTemplate(getTableName(metaInfo.tableMetaInfo));
+		}
+
+		// 连接的关联表名同样经由getTableName处理
+		List<String> joinTableNames = new ArrayList<>(metaInfo.joinFetchFields.size());
+
+		for (Field field : metaInfo.joinFetchFields) {
+			try {
+				joinTableNames.add(getTableName(MetaInfo.get(field.getType()).tableMetaInfo));
+			} catch (Exception e) {
+				throw new DAOException("查找关联类描述元信息时出现异常，原始信息：" + e.getMessage());
+			}
+		}
+
+		return metaInfo.getSqlTemplate(getTableName(metaInfo.tableMetaInfo), joinTableNames);
+	}
+
 	@Override
-	public synchronized <T> T find(Class<T> t, Object... key) throws DAOException {
+	public <T> T find(Class<T> t, Object... key) throws DAOException {
 
 		// 如果主键为空，则返回Null
 		if (key == null || key.length == 0) {
 			return null;
 		}
 
-		PreparedStatement stat = null;
-		RSMemoryCache rs = null;
-
+		// 获取元信息
+		MetaInfo metaInfo = null;
 		try {
-			// 连接数据库
-			requestConnection();
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
 
-			// 获取元信息
-			MetaInfo metaInfo = null;
-			try {
-				metaInfo = MetaInfo.get(t);
-			} catch (Exception e) {
-				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
-			}
+		// 手动事务中已加载过的实体，直接返回同一实例
+		Object loaded = getLoadedEntity(metaInfo.clazz, key);
+		if (t.isInstance(loaded)) {
+			return t.cast(loaded);
+		}
 
-			String tableName = getTableName(metaInfo.tableMetaInfo);
+		// 手动事务中可能读到未提交的数据，因此不使用实体缓存
+		EntityCache entityCache = isTransactionOpen() ? null : getEntityCache();
+		boolean cacheable = entityCache != null && entityCache.isEnabled(metaInfo.clazz);
 
-			// 拼接SQL
-			StringBuffer sql = new StringBuffer("SELECT");
+		// 查询之前取得版本号，查询期间该主键被修改时不缓存查询结果
+		long stamp = 0;
+
+		if (cacheable) {
+			CachedEntity cached = entityCache.get(metaInfo.clazz, key);
+
+			if (cached != null) {
+				return createBean(t, getBeanMapper(t, cached.columnLabels), cached.row);
+			}
+
+			stamp = entityCache.stamp(metaInfo.clazz, key);
+		}
 
-			// 拼接所有列名
-			sql.append(metaInfo.fields.stream().map(field -> {
-				return BeanUtil.getColumnName(field);
-			}).collect(Collectors.joining(", ", " ", " ")));
+		PreparedStatement stat = null;
+		String[] labels = null;
+		List<Object[]> rows = new ArrayList<>(1);
 
-			// 表名
-			sql.append("FROM " + tableName);
+		// 连接数据库
+		Connection conn = requestConnection();
 
-			// 主键
-			sql.append(metaInfo.primaryKeys.stream().map(k -> {
-				return BeanUtil.getColumnName(k) + " = ?";
-			}).collect(Collectors.joining(" AND ", " WHERE ", " ")));
+		try {
+			String sql = getSqlTemplate(metaInfo).selectByPrimaryKeyJoined;
 
 			try {
 				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Preparing: {}", sql.toString());
+					logger.debug("==> Halo Preparing: {}", sql);
 				}
 
-				stat = conn.prepareStatement(sql.toString());
+				stat = prepareStatement(conn, sql);
 
 				if (logger.isDebugEnabled()) {
 					logger.debug("==> Halo Parameters: {}", Arrays.stream(key).map(v -> {
@@ -115,316 +233,1305 @@ public class SuperDAO extends AbstractDAO {
 				}
 
 				// 执行SQL
-				rs = new RSMemoryCache(stat.executeQuery());
+				labels = readRows(stat, rows);
 
 			} catch (SQLException e) {
 				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
 			}
 
 		} finally {
-			releaseConnection();
+			closeStatement(conn, stat);
+			releaseConnection(conn);
 		}
 
 		// 如果记录不唯一则返回NULL
-		if (rs == null || rs.getLength() != 1) {
+		if (rows.size() != 1) {
 			return null;
 		}
 
 		// 构造Bean
-		if (rs.next()) {
-			return createBean(t, rs.getRowValueMap());
+		Object[] row = rows.get(0);
+
+		// 连接的关联表可能被单独修改，因此只缓存本表的列；命中时关联对象另行加载
+		if (cacheable) {
+			int columnCount = metaInfo.columnNames.size();
+
+			entityCache.put(metaInfo.clazz, key, stamp, Arrays.copyOf(labels, columnCount),
+					Arrays.copyOf(row, columnCount));
 		}
 
-		return null;
-	}
+		T bean = createBean(t, getBeanMapper(t, labels), row);
 
-	@Override
-	public synchronized <T> long getTotalQuantity(Class<T> t, String condition, Object... param) throws DAOException {
+		putLoadedEntity(metaInfo.clazz, key, bean);
 
-		PreparedStatement stat = null;
-		RSMemoryCache rs = null;
+		return bean;
+	}
 
-		try {
-			// 连接数据库
-			requestConnection();
+	/**
+	 * 执行查询并构造Bean；开启了查询缓存时，优先从缓存中取得，并缓存查询结果
+	 * 
+	 * @param t
+	 * @param sql
+	 *            方言处理后的SQL
+	 * @param start
+	 *            分页起始位置（仅用于区分缓存）
+	 * @param limit
+	 *            分页大小（仅用于区分缓存）
+	 * @param param
+	 * @return
+	 * @throws DAOException
+	 */
+	protected <T> List<T> queryBeans(Class<T> t, String sql, int start, int limit, Object[] param)
+			throws DAOException {
 
-			// 获取元信息
-			MetaInfo metaInfo = null;
-			try {
-				metaInfo = MetaInfo.get(t);
-			} catch (Exception e) {
-				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
-			}
+		// 手动事务中可能读到未提交的数据，因此不使用查询缓存
+		QueryCache queryCache = isTransactionOpen() ? null : getQueryCache();
 
-			String tableName = getTableName(metaInfo.tableMetaInfo);
+		QueryKey cacheKey = null;
+		Snapshot snapshot = null;
 
-			// 拼接SQL
-			StringBuffer sql = new StringBuffer();
+		if (queryCache != null && queryCache.isEnabled()) {
+			Set<String> tables = SqlUtil.getQueryTables(sql);
 
-			sql.append("SELECT COUNT(0) FROM " + tableName + " ");
+			// 无法确定读取了哪些表时，不能保证缓存及时失效，因此不缓存
+			if (!tables.isEmpty()) {
+				cacheKey = new QueryKey(sql, param, t, start, limit);
 
-			if (condition != null) {
-				sql.append(condition);
+				CachedResult cached = queryCache.get(cacheKey);
+				if (cached != null) {
+					return createBeans(t, cached.columnLabels, cached.rows);
+				}
+
+				// 在查询之前记录各表的版本，查询期间发生的修改将使本次结果失效
+				snapshot = queryCache.snapshot(tables);
 			}
+		}
 
-			try {
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Preparing: {}", sql.toString());
-				}
+		PreparedStatement stat = null;
+		String[] labels = null;
+		List<Object[]> rows = new ArrayList<>();
 
-				stat = conn.prepareStatement(sql.toString());
+		// 连接数据库
+		Connection conn = requestConnection();
 
-				if (param != null) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
-							return v == null ? "" : v.toString();
-						}).collect(Collectors.joining(",")));
-					}
+		try {
+			if (logger.isDebugEnabled()) {
+				logger.debug("==> Halo Preparing: {}", sql);
+			}
 
-					for (int i = 0; i < param.length; i++) {
-						stat.setObject(i + 1, param[i]);
-					}
-				}
+			stat = prepareStatement(conn, sql);
 
-				// 执行SQL
-				rs = new RSMemoryCache(stat.executeQuery());
+			if (param != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
+						return v == null ? "" : v.toString();
+					}).collect(Collectors.joining(",")));
+				}
 
-			} catch (SQLException e) {
-				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+				for (int i = 0; i < param.length; i++) {
+					stat.setObject(i + 1, param[i]);
+				}
 			}
 
+			// 执行SQL
+			labels = readRows(stat, rows);
+
+		} catch (SQLException e) {
+			throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
 		} finally {
-			releaseConnection();
+			closeStatement(conn, stat);
+			releaseConnection(conn);
 		}
 
-		//
-		if (rs != null && rs.next()) {
-			return rs.getLong(1);
+		if (snapshot != null) {
+			queryCache.put(cacheKey, snapshot, labels, rows);
 		}
 
-		return 0;
-	}
-
-	@Override
-	public synchronized <T> List<T> list(Class<T> t) throws DAOException {
-		return list(t, -1, -1, null);
+		// 遍历结果集，构造对象
+		return createBeans(t, labels, rows);
 	}
 
-	@Override
-	public synchronized <T> List<T> list(Class<T> t, String condition, Object... param) throws DAOException {
-		return list(t, -1, -1, condition, param);
-	}
+	/**
+	 * 根据行数据构造Bean
+	 * 
+	 * @param t
+	 * @param columnLabels
+	 *            列名（全大写）
+	 * @param rows
+	 *            行数据，顺序与列名一致
+	 * @return
+	 * @throws DAOException
+	 */
+	protected <T> List<T> createBeans(Class<T> t, String[] columnLabels, List<Object[]> rows) throws DAOException {
 
-	@Override
-	public synchronized <T> List<T> list(Class<T> t, int start, int limit, String condition, Object... param)
-			throws DAOException {
+		if (rows.isEmpty()) {
+			return new ArrayList<>();
+		}
 
-		List<T> list = new ArrayList<>();
+		// 同一结果集的列布局相同，只需查找一次行映射器
+		BeanMapper mapper = getBeanMapper(t, columnLabels);
 
-		PreparedStatement stat = null;
-		RSMemoryCache rs = null;
+		// 只取部分列的查询（如自定义查询语句）构造的Bean不完整，不参与一级缓存
+		int[] keyIndexes = isTransactionOpen() && isCompleteLayout(mapper.getTableClass(), columnLabels)
+				? getPrimaryKeyIndexes(mapper.getTableClass(), columnLabels)
+				: null;
 
-		try {
-			// 连接数据库
-			requestConnection();
+		if (keyIndexes == null) {
+			return createBeans(t, mapper, rows);
+		}
 
-			// 获取元信息
-			MetaInfo metaInfo = null;
-			try {
-				metaInfo = MetaInfo.get(t);
-			} catch (Exception e) {
-				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
-			}
+		// 手动事务中，已加载过的实体沿用同一实例，其余的行构造后登记到一级缓存
+		Class<?> tableClass = mapper.getTableClass();
 
-			String tableName = getTableName(metaInfo.tableMetaInfo);
+		List<T> list = new ArrayList<>(rows.size());
 
-			// 拼接SQL
-			StringBuffer sql = new StringBuffer();
+		List<Object[]> newRows = new ArrayList<>();
+		List<Object[]> newKeys = new ArrayList<>();
+		List<List<Integer>> newPositions = new ArrayList<>();
 
-			sql.append("SELECT " + tableName + ".* FROM " + tableName + " ");
+		// 同一结果集中主键相同的行也只构造一次
+		Map<List<Object>, Integer> pending = new HashMap<>();
 
-			if (condition != null) {
-				sql.append(condition);
+		for (Object[] row : rows) {
+			Object[] key = new Object[keyIndexes.length];
+			for (int i = 0; i < keyIndexes.length && key != null; i++) {
+				if ((key[i] = row[keyIndexes[i]]) == null) {
+					key = null;
+				}
 			}
 
-			// 查找方言
-			String dialectSql = sql.toString();
+			Object loaded = getLoadedEntity(tableClass, key);
 
-			if (dialect != null) {
-				dialectSql = dialect.getPageSQL(sql.toString(), start, limit);
+			if (t.isInstance(loaded)) {
+				list.add(t.cast(loaded));
+				continue;
 			}
 
-			try {
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Preparing: {}", dialectSql.toString());
-				}
+			Integer index = key == null ? null : pending.get(EntityCache.toKey(key));
 
-				stat = conn.prepareStatement(dialectSql);
+			if (index == null) {
+				index = newRows.size();
 
-				if (param != null) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
-							return v == null ? "" : v.toString();
-						}).collect(Collectors.joining(",")));
-					}
+				newRows.add(row);
+				newKeys.add(key);
+				newPositions.add(new ArrayList<>());
 
-					for (int i = 0; i < param.length; i++) {
-						stat.setObject(i + 1, param[i]);
-					}
+				if (key != null) {
+					pending.put(EntityCache.toKey(key), index);
 				}
-
-				// 执行SQL
-				rs = new RSMemoryCache(stat.executeQuery());
-
-			} catch (SQLException e) {
-				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
 			}
 
-		} finally {
-			releaseConnection();
+			newPositions.get(index).add(list.size());
+			list.add(null);
 		}
 
-		// 遍历结果集，构造对象
-		while (rs != null && rs.next()) {
-			list.add(createBean(t, rs.getRowValueMap()));
+		List<T> beans = createBeans(t, mapper, newRows);
+
+		for (int i = 0; i < beans.size(); i++) {
+			for (int position : newPositions.get(i)) {
+				list.set(position, beans.get(i));
+			}
+
+			putLoadedEntity(tableClass, newKeys.get(i), beans.get(i));
 		}
 
 		return list;
 	}
 
-	@Override
-	@SuppressWarnings("unchecked")
-	public synchronized <T> int batchSave(Class<T> t, T... beans) throws DAOException {
+	/**
+	 * 判断结果集是否包含给定实体类映射的全部列
+	 * 
+	 * @param tableClass
+	 * @param columnLabels
+	 *            列名（全大写）
+	 * @return
+	 */
+	protected boolean isCompleteLayout(Class<?> tableClass, String[] columnLabels) {
 
-		int uptRresult = 0;
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(tableClass);
+		} catch (Exception e) {
+			return false;
+		}
 
-		if (beans == null || beans.length == 0) {
-			throw new NullPointerException();
+		List<String> labels = Arrays.asList(columnLabels);
+
+		for (String columnName : metaInfo.columnNames) {
+			if (!labels.contains(columnName.toUpperCase())) {
+				return false;
+			}
 		}
 
-		PreparedStatement statement = null;
+		return true;
+	}
+
+	/**
+	 * 查找主键列在结果集中的索引
+	 * 
+	 * @param tableClass
+	 * @param columnLabels
+	 *            列名（全大写）
+	 * @return 结果集中不含全部主键列时返回null
+	 */
+	protected int[] getPrimaryKeyIndexes(Class<?> tableClass, String[] columnLabels) {
 
+		MetaInfo metaInfo = null;
 		try {
-			// 连接数据库
-			requestConnection();
+			metaInfo = MetaInfo.get(tableClass);
+		} catch (Exception e) {
+			return null;
+		}
 
-			// 获取元信息
-			MetaInfo metaInfo = null;
-			try {
-				metaInfo = MetaInfo.get(t);
-			} catch (Exception e) {
-				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
-			}
+		List<String> labels = Arrays.asList(columnLabels);
+		int[] keyIndexes = new int[metaInfo.primaryKeyColumns.size()];
 
-			String tableName = getTableName(metaInfo.tableMetaInfo);
+		for (int i = 0; i < keyIndexes.length; i++) {
 
-			try {
-				List<Object> values = new ArrayList<>();
-				List<String> keyColumnNames = new ArrayList<>();
+			// 与行映射器一致，列名相同时以最后出现的列为准
+			keyIndexes[i] = labels.lastIndexOf(metaInfo.primaryKeyColumns.get(i).toUpperCase());
 
-				// 测试当前环境是否支持批量插入操作
-				if (dialect.isBatchInsertSupport()) {
-					values.clear();
-					keyColumnNames.clear();
+			if (keyIndexes[i] < 0) {
+				return null;
+			}
+		}
 
-					String batchSQL = dialect.getInsertSQL(values, keyColumnNames, metaInfo, tableName, beans);
+		return keyIndexes;
+	}
 
-					try {
-						if (logger.isDebugEnabled()) {
-							logger.debug("==> Halo Preparing: {}", batchSQL.toString());
-						}
+	/**
+	 * 获取Bean的主键值
+	 * 
+	 * @param metaInfo
+	 * @param bean
+	 * @return 任一主键值为空时返回null
+	 */
+	protected Object[] getPrimaryKeyValues(MetaInfo metaInfo, Object bean) {
 
-						if (keyColumnNames.size() > 0) {
-							statement = conn.prepareStatement(batchSQL, keyColumnNames.toArray(new String[0]));
-						} else {
-							statement = conn.prepareStatement(batchSQL);
-						}
+		Object[] key = new Object[metaInfo.primaryKeys.size()];
 
-						if (logger.isDebugEnabled()) {
-							logger.debug("==> Halo Parameters: {}", values.stream().map(v -> {
-								return v == null ? "" : v.toString();
-							}).collect(Collectors.joining(",")));
-						}
+		for (int i = 0; i < key.length; i++) {
+			key[i] = BeanUtil.getFieldValue(bean, metaInfo.primaryKeys.get(i).getName());
 
-						for (int i = 0, vLength = values.size(); i < vLength; i++) {
-							statement.setObject(i + 1, values.get(i));
-						}
-					} catch (Throwable e) {
-					}
+			if (key[i] == null) {
+				return null;
+			}
+		}
 
-					// 插入数据库
-					uptRresult += statement.executeUpdate();
-				} else {
+		return key;
+	}
 
-					// 伪批量插入
-					for (T bean : beans) {
-						values.clear();
-						keyColumnNames.clear();
+	/**
+	 * 修改记录后，如果当前事务中已加载的实体与所写入的Bean不是同一实例，则移除该实体，此后在事务中重新加载
+	 * 
+	 * @param metaInfo
+	 * @param key
+	 *            主键值；为null时忽略
+	 * @param bean
+	 *            写入的Bean
+	 */
+	protected void removeStaleLoadedEntity(MetaInfo metaInfo, Object[] key, Object bean) {
 
-						String batchSQL = dialect.getInsertSQL(values, keyColumnNames, metaInfo, tableName, bean);
+		if (getLoadedEntity(metaInfo.clazz, key) != bean) {
+			removeLoadedEntity(metaInfo.clazz, key);
+		}
+	}
 
-						try {
-							if (logger.isDebugEnabled()) {
-								logger.debug("==> Halo Preparing: {}", batchSQL.toString());
-							}
+	/**
+	 * 使实体缓存中给定主键的实体失效；处于手动事务中时，在事务结束后再失效一次，以免事务期间被其它线程以旧数据重新缓存
+	 * 
+	 * @param metaInfo
+	 * @param key
+	 *            主键值；为null时忽略
+	 */
+	protected void evictCachedEntity(MetaInfo metaInfo, Object[] key) {
 
-							if (keyColumnNames.size() > 0) {
-								statement = conn.prepareStatement(batchSQL, keyColumnNames.toArray(new String[0]));
-							} else {
-								statement = conn.prepareStatement(batchSQL);
-							}
+		EntityCache entityCache = getEntityCache();
 
-							if (logger.isDebugEnabled()) {
-								logger.debug("==> Halo Parameters: {}", values.stream().map(v -> {
-									return v == null ? "" : v.toString();
-								}).collect(Collectors.joining(",")));
-							}
+		if (key == null || !entityCache.isEnabled(metaInfo.clazz)) {
+			return;
+		}
 
-							for (int i = 0, vLength = values.size(); i < vLength; i++) {
-								statement.setObject(i + 1, values.get(i));
-							}
-						} catch (Throwable e) {
-						}
+		entityCache.invalidate(metaInfo.clazz, key);
 
-						// 插入数据库
-						uptRresult += statement.executeUpdate();
+		afterTransaction(() -> {
+			entityCache.invalidate(metaInfo.clazz, key);
+		});
+	}
 
-						try {
-							if (statement != null && !statement.isClosed()) {
-								statement.close();
-							}
-						} catch (SQLException e) {
-						}
-					}
-				}
+	/**
+	 * 使给定Bean在实体缓存中的实体及相关的查询结果失效
+	 * 
+	 * @param metaInfo
+	 * @param beans
+	 */
+	protected void evictCachedBeans(MetaInfo metaInfo, Iterable<?> beans) {
+
+		for (Object bean : beans) {
+			evictCachedEntity(metaInfo, getPrimaryKeyValues(metaInfo, bean));
+		}
+
+		evictCachedQueries(metaInfo);
+	}
+
+	/**
+	 * 使给定主键在实体缓存中的实体及相关的查询结果失效
+	 * 
+	 * @param metaInfo
+	 * @param keys
+	 *            主键值；复合主键时为Object[]
+	 */
+	protected void evictCachedKeys(MetaInfo metaInfo, Iterable<?> keys) {
+
+		for (Object key : keys) {
+			evictCachedEntity(metaInfo, key instanceof Object[] ? (Object[]) key : new Object[] { key });
+		}
+
+		evictCachedQueries(metaInfo);
+	}
+
+	/**
+	 * 使实体缓存中给定实体类的全部实体失效
+	 * 
+	 * @param metaInfo
+	 */
+	protected void evictCachedEntities(MetaInfo metaInfo) {
+
+		EntityCache entityCache = getEntityCache();
+
+		if (!entityCache.isEnabled(metaInfo.clazz)) {
+			return;
+		}
+
+		Runnable eviction = () -> {
+			entityCache.invalidateAll(metaInfo.clazz);
+		};
+
+		eviction.run();
+
+		afterTransaction(eviction);
+	}
+
+	/**
+	 * 使实体缓存中映射到给定表的实体类的全部实体失效
+	 * 
+	 * @param tables
+	 *            表名（全大写，不含schema前缀）；为null时使全部实体类失效
+	 */
+	protected void evictCachedEntitiesOf(Collection<String> tables) {
+
+		EntityCache entityCache = getEntityCache();
+
+		Runnable eviction = null;
+		if (tables == null) {
+			eviction = entityCache::invalidateAll;
+		} else {
+			eviction = () -> {
+				entityCache.invalidateIf(tableClass -> isMappedTo(tableClass, tables));
+			};
+		}
+
+		eviction.run();
+
+		afterTransaction(eviction);
+	}
+
+	/**
+	 * 判断给定的实体类是否映射到给定的表
+	 * 
+	 * @param tableClass
+	 * @param tables
+	 *            表名（全大写，不含schema前缀）；为null时表示全部表
+	 * @return 无法确定时返回true
+	 */
+	protected boolean isMappedTo(Class<?> tableClass, Collection<String> tables) {
+
+		if (tables == null) {
+			return true;
+		}
+
+		try {
+			MetaInfo metaInfo = MetaInfo.get(tableClass);
+			return tables.contains(SqlUtil.normalizeTableName(getSqlTemplate(metaInfo).tableName));
+		} catch (Exception e) {
+			return true;
+		}
+	}
+
+	/**
+	 * 使读取了给定实体类所映射的表的查询结果失效
+	 * 
+	 * @param metaInfo
+	 */
+	protected void evictCachedQueries(MetaInfo metaInfo) {
+		evictCachedQueriesOf(Collections.singleton(SqlUtil.normalizeTableName(getSqlTemplate(metaInfo).tableName)));
+	}
+
+	/**
+	 * 使读取了给定表的查询结果失效；处于手动事务中时，在事务结束后再失效一次，以免事务期间被其它线程以旧数据重新缓存
+	 * 
+	 * @param tables
+	 *            表名（全大写，不含schema前缀）；为null时使全部查询结果失效
+	 */
+	protected void evictCachedQueriesOf(Collection<String> tables) {
+
+		QueryCache queryCache = getQueryCache();
+
+		if (!queryCache.isEnabled()) {
+			return;
+		}
+
+		Runnable eviction = null;
+		if (tables == null) {
+			eviction = queryCache::invalidateAll;
+		} else {
+			eviction = () -> {
+				queryCache.invalidateTables(tables);
+			};
+		}
+
+		eviction.run();
+
+		afterTransaction(eviction);
+	}
+
+	@Override
+	public <T> long getTotalQuantity(Class<T> t, String condition, Object... param) throws DAOException {
+
+		PreparedStatement stat = null;
+		long value = 0;
+
+		// 连接数据库
+		Connection conn = requestConnection();
+
+		try {
+			// 获取元信息
+			MetaInfo metaInfo = null;
+			try {
+				metaInfo = MetaInfo.get(t);
+			} catch (Exception e) {
+				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+			}
+
+			// 拼接SQL
+			String sql = getSqlTemplate(metaInfo).count;
+
+			if (condition != null) {
+				sql += condition;
+			}
+
+			try {
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Preparing: {}", sql);
+				}
+
+				stat = prepareStatement(conn, sql);
+
+				if (param != null) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
+							return v == null ? "" : v.toString();
+						}).collect(Collectors.joining(",")));
+					}
+
+					for (int i = 0; i < param.length; i++) {
+						stat.setObject(i + 1, param[i]);
+					}
+				}
+
+				// 执行SQL
+				value = readUniqueLong(stat);
+
+			} catch (SQLException e) {
+				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+			}
+
+		} finally {
+			closeStatement(conn, stat);
+			releaseConnection(conn);
+		}
+
+		return value;
+	}
+
+	@Override
+	public <T> List<T> list(Class<T> t) throws DAOException {
+		return list(t, -1, -1, null);
+	}
+
+	@Override
+	public <T> List<T> list(Class<T> t, String condition, Object... param) throws DAOException {
+		return list(t, -1, -1, condition, param);
+	}
+
+	@Override
+	public <T> List<T> list(Class<T> t, int start, int limit, String condition, Object... param)
+			throws DAOException {
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
+
+		// 拼接SQL
+		String sql = getSqlTemplate(metaInfo).selectAllJoined;
+
+		if (condition != null) {
+			sql += condition;
+		}
+
+		// 查找方言；分页位置以参数绑定
+		List<Object> params = toParamList(param);
+
+		String dialectSql = getPageSQL(sql, start, limit, params);
+
+		return queryBeans(t, dialectSql, start, limit, params.toArray());
+	}
+
+	@Override
+	public <T> List<T> list(Class<T> t, Condition condition) throws DAOException {
+		return list(t, -1, -1, condition);
+	}
+
+	@Override
+	public <T> List<T> list(Class<T> t, int start, int limit, Condition condition) throws DAOException {
+		return list(t, start, limit, getConditionTemplate(t, condition).where,
+				ConditionTemplate.getParameters(condition));
+	}
+
+	@Override
+	public <T> long count(Class<T> t, Condition condition) throws DAOException {
+		return getTotalQuantity(t, getConditionTemplate(t, condition).where,
+				ConditionTemplate.getParameters(condition));
+	}
+
+	@Override
+	public <T> KeysetPage<T> listAfter(Class<T> t, Object[] lastKey, int limit, Condition condition)
+			throws DAOException {
+		return listAfter(t, lastKey, limit, getConditionTemplate(t, condition).where,
+				ConditionTemplate.getParameters(condition));
+	}
+
+	@Override
+	public <T> KeysetPage<T> listAfter(Class<T> t, Object[] lastKey, int limit, String condition,
+			Object... param) throws DAOException {
+
+		if (limit <= 0) {
+			throw new DAOException("键集分页的每页记录数必须大于0");
+		}
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
+
+		SqlTemplate template = getSqlTemplate(metaInfo);
+
+		List<Object> params = new ArrayList<>();
+		List<String> predicates = new ArrayList<>();
+
+		// 调用者的查询条件，去掉开头的“where”后与键集条件合并
+		if (condition != null && !condition.trim().isEmpty()) {
+
+			// 结果总是按排序键排序，调用者的排序、分组等子句无法与之合并
+			if (hasTrailingClause(condition)) {
+				throw new DAOException("键集分页按排序键（Table.seekKey及主键）排序，查询条件不能包含order by、group by等子句："
+						+ condition);
+			}
+
+			predicates.add("(" + WhereHead.matcher(condition).replaceFirst("").trim() + ")");
+
+			if (param != null) {
+				params.addAll(Arrays.asList(param));
+			}
+		}
+
+		if (lastKey != null) {
+			if (lastKey.length != metaInfo.seekColumns.size()) {
+				throw new DAOException("键集分页的键值数量与排序字段不一致");
+			}
+
+			for (Object value : lastKey) {
+				if (value == null) {
+					throw new DAOException("键集分页的键值不能为空");
+				}
+			}
+
+			predicates.add("(" + template.seekCondition + ")");
+
+			// 第i个分支：前i个键相等，第i个键大于
+			for (int i = 0; i < lastKey.length; i++) {
+				for (int j = 0; j <= i; j++) {
+					params.add(lastKey[j]);
+				}
+			}
+		}
+
+		// 拼接SQL
+		String sql = template.selectAllJoined;
+
+		if (!predicates.isEmpty()) {
+			sql += "WHERE " + String.join(" AND ", predicates);
+		}
+
+		sql += template.seekOrderBy;
+
+		// 多取一行，以判断是否还有下一页
+		String dialectSql = getPageSQL(sql, 0, limit + 1, params);
+
+		List<T> beans = queryBeans(t, dialectSql, 0, limit + 1, params.toArray());
+
+		boolean hasNext = beans.size() > limit;
+		if (hasNext) {
+			beans = new ArrayList<>(beans.subList(0, limit));
+		}
+
+		Object[] nextKey = null;
+		if (!beans.isEmpty()) {
+			T last = beans.get(beans.size() - 1);
+
+			nextKey = new Object[metaInfo.seekFields.size()];
+			for (int i = 0; i < nextKey.length; i++) {
+				nextKey[i] = BeanUtil.getFieldValue(last, metaInfo.seekFields.get(i).getName());
+			}
+		}
+
+		return new KeysetPage<>(beans, nextKey, hasNext);
+	}
+
+	/**
+	 * 判断查询条件的顶层是否含有order by、group by等WHERE之后的子句；字符串常量及括号内的部分（子查询等）不计在内
+	 * 
+	 * @param condition
+	 * @return
+	 */
+	static boolean hasTrailingClause(String condition) {
+
+		String topLevel = QuotedLiteral.matcher(condition).replaceAll("''");
+
+		for (String reduced; !(reduced = InnermostGroup.matcher(topLevel).replaceAll(" ")).equals(topLevel);) {
+			topLevel = reduced;
+		}
+
+		return TrailingClause.matcher(topLevel).find();
+	}
+
+	/**
+	 * 生成分页SQL；分页位置的绑定值追加到params的末尾
+	 * 
+	 * @param sql
+	 * @param start
+	 * @param limit
+	 * @param params
+	 *            原SQL的参数
+	 * @return 未设置方言时返回原SQL
+	 */
+	protected String getPageSQL(String sql, int start, int limit, List<Object> params) {
+		return dialect == null ? sql : dialect.getPageSQL(sql, start, limit, params);
+	}
+
+	private static List<Object> toParamList(Object[] param) {
+		return param == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(param));
+	}
+
+	/**
+	 * 获取给定查询条件对应的WHERE子句
+	 * 
+	 * @param t
+	 * @param condition
+	 * @return
+	 * @throws DAOException
+	 */
+	protected ConditionTemplate getConditionTemplate(Class<?> t, Condition condition) throws DAOException {
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
+
+		return metaInfo.getConditionTemplate(ConditionTemplate.getShape(condition));
+	}
+
+	@Override
+	public <T> Stream<T> stream(Class<T> t, String condition, Object... param) throws DAOException {
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
+
+		// 拼接SQL
+		String sql = getSqlTemplate(metaInfo).selectAll;
+
+		if (condition != null) {
+			sql += condition;
+		}
+
+		// 连接数据库；游标在整个生命周期内占用该连接，如果处于手动事务中，则不释放事务的连接
+		final Connection cursorConn = requestConnection();
+		Runnable connectionReleaser = isTransactionConnection(cursorConn) ? null : () -> {
+			releaseConnection(cursorConn);
+		};
+
+		PreparedStatement stat = null;
+
+		try {
+			if (logger.isDebugEnabled()) {
+				logger.debug("==> Halo Preparing: {}", sql);
+			}
+
+			stat = cursorConn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+			if (fetchSize != 0) {
+				stat.setFetchSize(fetchSize);
+			}
+
+			if (param != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
+						return v == null ? "" : v.toString();
+					}).collect(Collectors.joining(",")));
+				}
+
+				for (int i = 0; i < param.length; i++) {
+					stat.setObject(i + 1, param[i]);
+				}
+			}
+
+			BeanCursor<T> cursor = new BeanCursor<>(this, t, stat, stat.executeQuery(), connectionReleaser);
+
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+					.onClose(cursor::close);
+
+		} catch (SQLException e) {
+			try {
+				if (stat != null) {
+					stat.close();
+				}
+			} catch (SQLException ex) {
+			}
+
+			if (connectionReleaser != null) {
+				connectionReleaser.run();
+			}
+
+			throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+		}
+	}
+
+	@Override
+	public <T> void forEach(Class<T> t, String condition, Consumer<? super T> action, Object... param)
+			throws DAOException {
+
+		try (Stream<T> beans = stream(t, condition, param)) {
+			beans.forEach(action);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> int batchSave(Class<T> t, T... beans) throws DAOException {
+
+		if (beans == null || beans.length == 0) {
+			throw new NullPointerException();
+		}
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
+
+		MetaInfo beanMetaInfo = metaInfo;
+		String tableName = getTableName(metaInfo.tableMetaInfo);
+
+		try {
+			return executeInChunks((conn, chunkCommit) -> {
+
+				int uptRresult = 0;
+
+				List<Object> values = new ArrayList<>();
+				List<String> keyColumnNames = new ArrayList<>();
+
+				// 所有Bean共用同一个预编译语句，以第一个Bean生成的SQL为准
+				String insertSQL = dialect.getInsertSQL(values, keyColumnNames, beanMetaInfo, tableName, beans[0]);
+
+				// 插入语句只取决于Bean的类型，每种类型只生成并核对一次，此后按插入字段逐行取值
+				Map<Class<?>, List<Field>> insertFields = new HashMap<>();
+				insertFields.put(beans[0].getClass(), dialect.getInsertFields(beanMetaInfo, beans[0]));
+
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Preparing: {}", insertSQL);
+				}
+
+				boolean writebackKeys = beanMetaInfo.tableMetaInfo.autoGenerateKeys() && keyColumnNames.size() > 0;
+
+				PreparedStatement statement = null;
+
+				if (keyColumnNames.size() > 0) {
+					statement = prepareStatement(conn, insertSQL, keyColumnNames.toArray(new String[0]));
+				} else {
+					statement = prepareStatement(conn, insertSQL);
+				}
+
+				try {
+					int chunkSize = batchSize > 0 ? batchSize : beans.length;
+					int chunkStart = 0;
+
+					for (int i = 0; i < beans.length; i++) {
+
+						if (i > 0) {
+							values.clear();
+
+							Class<?> beanClass = beans[i].getClass();
+							List<Field> fields = insertFields.get(beanClass);
+
+							if (fields != null) {
+								for (Field field : fields) {
+									values.add(BeanUtil.getFieldValue(beans[i], field.getName()));
+								}
+							} else {
+								// 新的类型，或方言无法提供插入字段时，生成该Bean的插入语句
+								String sql = dialect.getInsertSQL(values, new ArrayList<>(), beanMetaInfo, tableName,
+										beans[i]);
+
+								if (!insertFields.containsKey(beanClass)) {
+									if (!insertSQL.equals(sql)) {
+										throw new DAOException("批量保存的Bean生成了不一致的插入语句，无法合并执行");
+									}
+
+									insertFields.put(beanClass, dialect.getInsertFields(beanMetaInfo, beans[i]));
+								}
+							}
+						}
+
+						if (logger.isDebugEnabled()) {
+							logger.debug("==> Halo Parameters: {}", values.stream().map(v -> {
+								return v == null ? "" : v.toString();
+							}).collect(Collectors.joining(",")));
+						}
+
+						for (int j = 0, vLength = values.size(); j < vLength; j++) {
+							statement.setObject(j + 1, values.get(j));
+						}
+
+						statement.addBatch();
+
+						// 满一批或已到最后一个Bean时，提交给数据库
+						if (i - chunkStart + 1 < chunkSize && i < beans.length - 1) {
+							continue;
+						}
+
+						uptRresult += getBatchCount(statement.executeBatch());
+
+						// 逐行回写自动生成的主键
+						if (writebackKeys) {
+							try (ResultSet keys = statement.getGeneratedKeys()) {
+								int keyCount = Math.min(keys.getMetaData().getColumnCount(), keyColumnNames.size());
+
+								for (int k = chunkStart; k <= i && keys.next(); k++) {
+									if (beans[k] instanceof IWritebackKeys) {
+										Object[] key = new Object[keyCount];
+										for (int c = 0; c < keyCount; c++) {
+											key[c] = keys.getObject(c + 1);
+										}
+
+										((IWritebackKeys) beans[k]).setGeneratedKey(key);
+									}
+								}
+							}
+						}
+
+						if (chunkCommit) {
+							conn.commit();
+						}
+
+						chunkStart = i + 1;
+					}
+				} finally {
+					closeStatement(conn, statement);
+				}
+
+				return uptRresult;
+			});
+		} finally {
+			// 即使执行失败，按批提交时之前的批次也已经生效
+			evictCachedBeans(metaInfo, Arrays.asList(beans));
+		}
+	}
+
+	@Override
+	public <T> T save(Class<T> t, T bean) throws DAOException {
+
+		if (bean == null) {
+			throw new NullPointerException();
+		}
+
+		List<Object> priKeyValue = new ArrayList<>();
+
+		T resultObject = bean;
+		PreparedStatement statement = null;
+
+		// 是否需要按自动生成的主键重新查找
+		boolean refind = false;
+
+		// 连接数据库
+		Connection conn = requestConnection();
+
+		try {
+			// 获取元信息
+			MetaInfo metaInfo = null;
+			try {
+				metaInfo = MetaInfo.get(t);
+			} catch (Exception e) {
+				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+			}
+
+			String tableName = getTableName(metaInfo.tableMetaInfo);
+
+			try {
+				List<Object> values = new ArrayList<>();
+				List<String> keyColumnNames = new ArrayList<>();
+
+				String insertSQL = dialect.getInsertSQL(values, keyColumnNames, metaInfo, tableName, bean);
+
+				boolean generatedKeys = metaInfo.tableMetaInfo.autoGenerateKeys() && keyColumnNames.size() > 0;
+
+				// 方言支持时，插入的同时返回所插入的行，不必再查询一次
+				String returningSQL = generatedKeys ? dialect.getReturningSQL(insertSQL, metaInfo) : null;
+
+				if (returningSQL != null) {
+					insertSQL = returningSQL;
+				}
+
+				try {
+					if (logger.isDebugEnabled()) {
+						logger.debug("==> Halo Preparing: {}", insertSQL.toString());
+					}
+
+					if (returningSQL == null && keyColumnNames.size() > 0) {
+						statement = prepareStatement(conn, insertSQL, keyColumnNames.toArray(new String[0]));
+					} else {
+						statement = prepareStatement(conn, insertSQL);
+					}
+
+					if (logger.isDebugEnabled()) {
+						logger.debug("==> Halo Parameters: {}", values.stream().map(v -> {
+							return v == null ? "" : v.toString();
+						}).collect(Collectors.joining(",")));
+					}
+
+					for (int i = 0, vLength = values.size(); i < vLength; i++) {
+						statement.setObject(i + 1, values.get(i));
+					}
+				} catch (Throwable e) {
+				}
+
+				// 插入数据库
+				String[] labels = null;
+				List<Object[]> returned = new ArrayList<>(1);
+
+				if (returningSQL != null) {
+					labels = readRows(statement, returned);
+				} else {
+					statement.executeUpdate();
+				}
+
+				evictCachedEntity(metaInfo, getPrimaryKeyValues(metaInfo, bean));
+				evictCachedQueries(metaInfo);
+
+				putLoadedEntity(metaInfo.clazz, getPrimaryKeyValues(metaInfo, bean), bean);
+
+				// 由返回的行取得自动生成的主键，并据此构造Bean
+				if (!returned.isEmpty()) {
+
+					Object[] row = returned.get(0);
+
+					int[] keyIndexes = getPrimaryKeyIndexes(t, labels);
+
+					if (keyIndexes != null) {
+						for (int index : keyIndexes) {
+							priKeyValue.add(row[index]);
+						}
+
+						// 回写自动生成的主键
+						if (bean instanceof IWritebackKeys) {
+							((IWritebackKeys) bean).setGeneratedKey(priKeyValue.toArray());
+						}
+					}
+
+					resultObject = createBean(t, getBeanMapper(t, labels), row);
+
+					if (keyIndexes != null) {
+						putLoadedEntity(metaInfo.clazz, priKeyValue.toArray(), resultObject);
+					}
+				}
+
+				// 准备返回自动生成的主键
+				else if (generatedKeys && returningSQL == null) {
+
+					priKeyValue.clear();
+
+					try (ResultSet keys = statement.getGeneratedKeys()) {
+						while (keys != null && keys.next()) {
+							priKeyValue.add(keys.getObject(1));
+						}
+					}
+
+					// 回写自动生成的主键
+					if (bean instanceof IWritebackKeys) {
+						((IWritebackKeys) bean).setGeneratedKey(priKeyValue.toArray());
+					}
+
+					refind = true;
+				}
+
+			} catch (SQLException e) {
+				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+			}
+
+		} finally {
+			closeStatement(conn, statement);
+			releaseConnection(conn);
+		}
+
+		// 重新查找一次，以便创建代理；先归还连接，以免未开启事务时同时占用两个连接
+		if (refind) {
+			resultObject = find(t, priKeyValue.toArray());
+		}
+
+		return resultObject;
+	}
+
+	@Override
+	public <T> int update(T bean) throws DAOException {
+
+		int uptRresult = 0;
+
+		PreparedStatement saveStat = null;
+
+		// 连接数据库
+		Connection conn = requestConnection();
+
+		try {
+			// 获取元信息
+			MetaInfo metaInfo = null;
+			try {
+				metaInfo = MetaInfo.get(bean.getClass());
+			} catch (Exception e) {
+				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+			}
+
+			String sql = getSqlTemplate(metaInfo).updateByPrimaryKey;
+
+			// 没有可修改的列
+			if (sql == null) {
+				throw new NullPointerException();
+			}
+
+			List<Object> colValues = new ArrayList<>();
+
+			// 保存列值；跳过主键列的赋值，不允许修改主键值；跳过标记为“禁止修改”的列
+			for (Field field : metaInfo.modifiableFields) {
+				colValues.add(BeanUtil.getFieldValue(bean, field.getName()));
+			}
+
+			// 保存主键值
+			for (Field k : metaInfo.primaryKeys) {
+				colValues.add(BeanUtil.getFieldValue(bean, k.getName()));
+			}
+
+			try {
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Preparing: {}", sql);
+				}
+
+				// 修改记录
+				saveStat = prepareStatement(conn, sql);
+
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Parameters: {}", colValues.stream().map(v -> {
+						return v == null ? "" : v.toString();
+					}).collect(Collectors.joining(",")));
+				}
+
+				// 赋值
+				for (int i = 0, count = colValues.size(); i < count; i++) {
+					saveStat.setObject(i + 1, colValues.get(i));
+				}
+
+				uptRresult = saveStat.executeUpdate();
+
+				Object[] key = getPrimaryKeyValues(metaInfo, bean);
+
+				evictCachedEntity(metaInfo, key);
+				evictCachedQueries(metaInfo);
+
+				removeStaleLoadedEntity(metaInfo, key, bean);
 
 			} catch (SQLException e) {
 				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
 			}
 
 		} finally {
-			releaseConnection();
+			closeStatement(conn, saveStat);
+			releaseConnection(conn);
 		}
 
 		return uptRresult;
 	}
 
 	@Override
-	public synchronized <T> T save(Class<T> t, T bean) throws DAOException {
+	public <T> int saveOrUpdate(Class<T> t, T bean) throws DAOException {
 
-		if (bean == null) {
-			throw new NullPointerException();
+		int uptRresult = 0;
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
 		}
 
-		List<Object> priKeyValue = new ArrayList<>();
+		// 判断主键列值是否为空
+		List<Object> primaryValue = metaInfo.primaryKeys.stream().map(k -> {
+			return BeanUtil.getFieldValue(bean, k.getName());
+		}).filter(kvalue -> {
+			return kvalue != null;
+		}).collect(Collectors.toList());
+
+		// 主键值完整，且方言支持时，以单条语句插入或更新
+		if (metaInfo.primaryKeys.size() == primaryValue.size() && dialect != null) {
+
+			List<Object> values = new ArrayList<>();
+
+			String upsertSQL = dialect.getUpsertSQL(values, metaInfo, getTableName(metaInfo.tableMetaInfo), bean);
+
+			if (upsertSQL != null) {
+				return executeUpsert(metaInfo, upsertSQL, values, bean);
+			}
+		}
+
+		if (metaInfo.primaryKeys.size() == primaryValue.size() && find(t, primaryValue.toArray()) != null) {
+			uptRresult = update(bean);
+		} else {
+
+			if (save(t, bean) != null) {
+				uptRresult = 1;
+			}
+		}
+
+		return uptRresult;
+	}
+
+	/**
+	 * 执行“插入或更新”语句
+	 * 
+	 * @param metaInfo
+	 * @param sql
+	 * @param values
+	 * @param bean
+	 *            写入的Bean，主键值完整
+	 * @return 实际影响的行记录数（插入或更新均计为1）
+	 * @throws DAOException
+	 */
+	protected int executeUpsert(MetaInfo metaInfo, String sql, List<Object> values, Object bean)
+			throws DAOException {
+
+		int uptRresult = 0;
 
-		T resultObject = bean;
 		PreparedStatement statement = null;
 
+		// 连接数据库
+		Connection conn = requestConnection();
+
 		try {
-			// 连接数据库
-			requestConnection();
+			if (logger.isDebugEnabled()) {
+				logger.debug("==> Halo Preparing: {}", sql);
+			}
+
+			statement = prepareStatement(conn, sql);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug("==> Halo Parameters: {}", values.stream().map(v -> {
+					return v == null ? "" : v.toString();
+				}).collect(Collectors.joining(",")));
+			}
+
+			for (int i = 0, vLength = values.size(); i < vLength; i++) {
+				statement.setObject(i + 1, values.get(i));
+			}
+
+			// MySQL在更新时返回2，统一计为1
+			uptRresult = Math.min(statement.executeUpdate(), 1);
 
+			Object[] key = getPrimaryKeyValues(metaInfo, bean);
+
+			evictCachedEntity(metaInfo, key);
+			evictCachedQueries(metaInfo);
+
+			removeStaleLoadedEntity(metaInfo, key, bean);
+
+		} catch (SQLException e) {
+			throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+		} finally {
+			closeStatement(conn, statement);
+			releaseConnection(conn);
+		}
+
+		return uptRresult;
+	}
+
+	@Override
+	public <T> int deleteAll(Class<T> t) throws DAOException {
+		return executeDelete(t, null);
+	}
+
+	@Override
+	public <T> int delete(Class<T> t, Condition condition) throws DAOException {
+
+		// 清空表只能经由deleteAll，避免条件意外为空时误删全部记录
+		if (condition == null || !condition.iterator().hasNext()) {
+			throw new DAOException("删除条件为空；如需删除全部记录，请使用deleteAll");
+		}
+
+		return executeDelete(t, condition);
+	}
+
+	/**
+	 * 删除符合条件的记录，并清除相关的缓存
+	 * 
+	 * @param t
+	 * @param condition
+	 *            查询条件；为空时删除全部记录
+	 * @return
+	 * @throws DAOException
+	 */
+	protected <T> int executeDelete(Class<T> t, Condition condition) throws DAOException {
+
+		int uptRresult = 0;
+
+		PreparedStatement delStat = null;
+
+		// 连接数据库
+		Connection conn = requestConnection();
+
+		try {
 			// 获取元信息
 			MetaInfo metaInfo = null;
 			try {
@@ -433,290 +1540,496 @@ public class SuperDAO extends AbstractDAO {
 				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
 			}
 
-			String tableName = getTableName(metaInfo.tableMetaInfo);
-
 			try {
-				List<Object> values = new ArrayList<>();
-				List<String> keyColumnNames = new ArrayList<>();
+				String sql = getSqlTemplate(metaInfo).deleteAll;
 
-				String insertSQL = dialect.getInsertSQL(values, keyColumnNames, metaInfo, tableName, bean);
+				String where = metaInfo.getConditionTemplate(ConditionTemplate.getShape(condition)).where;
+				if (!where.isEmpty()) {
+					sql += " " + where;
+				}
 
-				try {
-					if (logger.isDebugEnabled()) {
-						logger.debug("==> Halo Preparing: {}", insertSQL.toString());
-					}
+				Object[] param = ConditionTemplate.getParameters(condition);
 
-					if (keyColumnNames.size() > 0) {
-						statement = conn.prepareStatement(insertSQL, keyColumnNames.toArray(new String[0]));
-					} else {
-						statement = conn.prepareStatement(insertSQL);
-					}
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Preparing: {}", sql);
+				}
+
+				delStat = prepareStatement(conn, sql);
 
+				if (param.length > 0) {
 					if (logger.isDebugEnabled()) {
-						logger.debug("==> Halo Parameters: {}", values.stream().map(v -> {
+						logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
 							return v == null ? "" : v.toString();
 						}).collect(Collectors.joining(",")));
 					}
 
-					for (int i = 0, vLength = values.size(); i < vLength; i++) {
-						statement.setObject(i + 1, values.get(i));
+					for (int i = 0; i < param.length; i++) {
+						delStat.setObject(i + 1, param[i]);
 					}
-				} catch (Throwable e) {
 				}
 
-				// 插入数据库
-				statement.executeUpdate();
+				uptRresult = delStat.executeUpdate();
+
+				evictCachedEntities(metaInfo);
+				evictCachedQueries(metaInfo);
+
+				Class<?> tableClass = metaInfo.clazz;
+				removeLoadedEntities(c -> c == tableClass);
+
+			} catch (SQLException e) {
+				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+			}
+
+		} finally {
+			closeStatement(conn, delStat);
+			releaseConnection(conn);
+		}
+
+		return uptRresult;
+	}
+
+	@Override
+	public <T> int delete(T bean) throws DAOException {
+
+		int uptRresult = 0;
+
+		PreparedStatement delStat = null;
+
+		// 连接数据库
+		Connection conn = requestConnection();
+
+		try {
+			// 获取元信息
+			MetaInfo metaInfo = null;
+			try {
+				metaInfo = MetaInfo.get(bean.getClass());
+			} catch (Exception e) {
+				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+			}
+
+			String sql = getSqlTemplate(metaInfo).deleteByPrimaryKey;
+			List<Object> colValues = new ArrayList<>();
+
+			// 保存主键值
+			for (Field k : metaInfo.primaryKeys) {
+				colValues.add(BeanUtil.getFieldValue(bean, k.getName()));
+			}
+
+			try {
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Preparing: {}", sql);
+				}
+
+				delStat = prepareStatement(conn, sql);
+
+				if (logger.isDebugEnabled()) {
+					logger.debug("==> Halo Parameters: {}", colValues.stream().map(v -> {
+						return v == null ? "" : v.toString();
+					}).collect(Collectors.joining(",")));
+				}
+
+				// 赋值
+				for (int i = 0, count = colValues.size(); i < count; i++) {
+					delStat.setObject(i + 1, colValues.get(i));
+				}
+
+				uptRresult = delStat.executeUpdate();
+
+				evictCachedEntity(metaInfo, colValues.toArray());
+				evictCachedQueries(metaInfo);
+
+				removeLoadedEntity(metaInfo.clazz, colValues.toArray());
+
+			} catch (SQLException e) {
+				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+			}
+
+		} finally {
+			closeStatement(conn, delStat);
+			releaseConnection(conn);
+		}
+
+		return uptRresult;
+	}
+
+	@Override
+	public <T> int batchUpdate(Class<T> t, Collection<T> beans) throws DAOException {
+
+		if (beans == null) {
+			throw new NullPointerException();
+		}
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
+
+		String sql = getSqlTemplate(metaInfo).updateByPrimaryKey;
+
+		// 没有可修改的列
+		if (sql == null) {
+			throw new NullPointerException();
+		}
+
+		List<Field> modifiableFields = metaInfo.modifiableFields;
+		List<Field> primaryKeys = metaInfo.primaryKeys;
+
+		int uptRresult = 0;
+
+		try {
+			uptRresult = executeBatch(sql, beans, bean -> {
+				List<Object> colValues = new ArrayList<>();
+
+				// 跳过主键列的赋值，不允许修改主键值；跳过标记为“禁止修改”的列
+				for (Field field : modifiableFields) {
+					colValues.add(BeanUtil.getFieldValue(bean, field.getName()));
+				}
+
+				for (Field k : primaryKeys) {
+					colValues.add(BeanUtil.getFieldValue(bean, k.getName()));
+				}
+
+				return colValues;
+			});
+		} finally {
+			// 即使执行失败，按批提交时之前的批次也已经生效
+			evictCachedBeans(metaInfo, beans);
+
+			for (T bean : beans) {
+				removeStaleLoadedEntity(metaInfo, getPrimaryKeyValues(metaInfo, bean), bean);
+			}
+		}
+
+		return uptRresult;
+	}
+
+	@Override
+	public <T> int batchDelete(Class<T> t, Collection<T> beans) throws DAOException {
+
+		if (beans == null) {
+			throw new NullPointerException();
+		}
+
+		// 获取元信息
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
 
-				// 准备返回自动生成的主键
-				if (metaInfo.tableMetaInfo.autoGenerateKeys() && keyColumnNames.size() > 0) {
+		List<Field> primaryKeys = metaInfo.primaryKeys;
 
-					priKeyValue.clear();
+		for (T bean : beans) {
+			removeLoadedEntity(metaInfo.clazz, getPrimaryKeyValues(metaInfo, bean));
+		}
 
-					ResultSet keys = statement.getGeneratedKeys();
-					while (keys != null && keys.next()) {
-						priKeyValue.add(keys.getObject(1));
-					}
+		int uptRresult = 0;
 
-					// 回写自动生成的主键
-					if (bean instanceof IWritebackKeys) {
-						((IWritebackKeys) bean).setGeneratedKey(priKeyValue.toArray());
-					}
+		try {
+			uptRresult = executeBatch(getSqlTemplate(metaInfo).deleteByPrimaryKey, beans, bean -> {
+				List<Object> keyValues = new ArrayList<>();
 
-					// 重新查找一次，以便创建代理
-					resultObject = find(t, priKeyValue.toArray());
+				for (Field k : primaryKeys) {
+					keyValues.add(BeanUtil.getFieldValue(bean, k.getName()));
 				}
 
-			} catch (SQLException e) {
-				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
-			}
-
+				return keyValues;
+			});
 		} finally {
-			releaseConnection();
+			// 即使执行失败，按批提交时之前的批次也已经生效
+			evictCachedBeans(metaInfo, beans);
 		}
 
-		return resultObject;
+		return uptRresult;
 	}
 
 	@Override
-	public synchronized <T> int update(T bean) throws DAOException {
+	public <T> int deleteByKeys(Class<T> t, Collection<?> keys) throws DAOException {
 
-		int uptRresult = 0;
+		if (keys == null) {
+			throw new NullPointerException();
+		}
 
-		PreparedStatement saveStat = null;
+		if (keys.isEmpty()) {
+			return 0;
+		}
 
+		// 获取元信息
+		MetaInfo metaInfo = null;
 		try {
-			// 连接数据库
-			requestConnection();
+			metaInfo = MetaInfo.get(t);
+		} catch (Exception e) {
+			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+		}
 
-			// 获取元信息
-			MetaInfo metaInfo = null;
-			try {
-				metaInfo = MetaInfo.get(bean.getClass());
-			} catch (Exception e) {
-				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
-			}
+		MetaInfo keyMetaInfo = metaInfo;
+		String tableName = getSqlTemplate(metaInfo).tableName;
+		int keyCount = metaInfo.primaryKeyColumns.size();
 
-			String tableName = getTableName(metaInfo.tableMetaInfo);
+		for (Object key : keys) {
+			removeLoadedEntity(metaInfo.clazz, key instanceof Object[] ? (Object[]) key : new Object[] { key });
+		}
 
-			if (metaInfo.fields == null || metaInfo.fields.isEmpty()) {
-				throw new NullPointerException();
-			}
+		// 部分数据库（如Oracle）限制IN列表最多1000项
+		int chunkSize = Math.min(batchSize > 0 ? batchSize : keys.size(), MaxInListSize);
 
-			// 拼接SQL
-			StringBuffer sql = new StringBuffer("UPDATE ");
-			List<Object> colValues = new ArrayList<>();
+		try {
+			return executeInChunks((conn, chunkCommit) -> {
 
-			// 表名
-			sql.append(tableName + " SET");
+				int uptRresult = 0;
 
-			// 拼接所有列名
-			final List<Field> primaryKeys = metaInfo.primaryKeys;
-			sql.append(metaInfo.fields.stream().filter(field -> {
-				// 跳过主键列的赋值，不允许修改主键值
-				// 跳过标记为“禁止修改”的列
-				return !primaryKeys.contains(field) && field.getAnnotation(DontModify.class) == null;
-			}).map(field -> {
+				List<Object> keyValues = new ArrayList<>();
+				int rowCount = 0;
 
-				// 保存列值
-				colValues.add(BeanUtil.getFieldValue(bean, field.getName()));
+				Iterator<?> it = keys.iterator();
+				while (it.hasNext()) {
+					Object key = it.next();
 
-				return BeanUtil.getColumnName(field) + " = ?";
-			}).collect(Collectors.joining(", ", " ", " ")));
+					if (keyCount > 1) {
+						if (!(key instanceof Object[]) || ((Object[]) key).length != keyCount) {
+							throw new DAOException("复合主键的值必须是与主键数量一致的Object[]");
+						}
 
-			// 主键
-			sql.append(metaInfo.primaryKeys.stream().map(k -> {
+						keyValues.addAll(Arrays.asList((Object[]) key));
+					} else {
+						keyValues.add(key);
+					}
 
-				// 保存主键值
-				colValues.add(BeanUtil.getFieldValue(bean, k.getName()));
+					// 满一批或已到最后一个主键时，执行删除
+					if (++rowCount < chunkSize && it.hasNext()) {
+						continue;
+					}
 
-				return BeanUtil.getColumnName(k) + " = ?";
-			}).collect(Collectors.joining(" AND ", " WHERE ", " ")));
+					String sql = getDeleteByKeysSQL(keyMetaInfo, tableName, rowCount);
 
-			try {
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Preparing: {}", sql.toString());
-				}
+					if (logger.isDebugEnabled()) {
+						logger.debug("==> Halo Preparing: {}", sql);
+						logger.debug("==> Halo Parameters: {}", keyValues.stream().map(v -> {
+							return v == null ? "" : v.toString();
+						}).collect(Collectors.joining(",")));
+					}
 
-				// 修改记录
-				saveStat = conn.prepareStatement(sql.toString());
+					PreparedStatement delStat = prepareStatement(conn, sql);
 
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Parameters: {}", colValues.stream().map(v -> {
-						return v == null ? "" : v.toString();
-					}).collect(Collectors.joining(",")));
-				}
+					try {
+						for (int i = 0, count = keyValues.size(); i < count; i++) {
+							delStat.setObject(i + 1, keyValues.get(i));
+						}
 
-				// 赋值
-				for (int i = 0, count = colValues.size(); i < count; i++) {
-					saveStat.setObject(i + 1, colValues.get(i));
-				}
+						uptRresult += delStat.executeUpdate();
+					} finally {
+						closeStatement(conn, delStat);
+					}
 
-				uptRresult = saveStat.executeUpdate();
+					if (chunkCommit) {
+						conn.commit();
+					}
 
-			} catch (SQLException e) {
-				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
-			}
+					keyValues.clear();
+					rowCount = 0;
+				}
 
+				return uptRresult;
+			});
 		} finally {
-			releaseConnection();
+			// 即使执行失败，按批提交时之前的批次也已经生效
+			evictCachedKeys(metaInfo, keys);
 		}
-
-		return uptRresult;
 	}
 
-	@Override
-	public synchronized <T> int saveOrUpdate(Class<T> t, T bean) throws DAOException {
+	/**
+	 * 生成按主键值批量删除的SQL；单一主键时为“pk IN (?, ...)”，复合主键时为“(a = ? AND b = ?) OR ...”
+	 * 
+	 * @param metaInfo
+	 * @param tableName
+	 * @param rowCount
+	 *            主键值的个数
+	 * @return
+	 */
+	protected String getDeleteByKeysSQL(MetaInfo metaInfo, String tableName, int rowCount) {
 
-		int uptRresult = 0;
+		StringBuilder sql = new StringBuilder("DELETE FROM ").append(tableName).append(" WHERE ");
 
-		// 获取元信息
-		MetaInfo metaInfo = null;
-		try {
-			metaInfo = MetaInfo.get(t);
-		} catch (Exception e) {
-			throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
-		}
+		if (metaInfo.primaryKeyColumns.size() == 1) {
+			sql.append(metaInfo.primaryKeyColumns.get(0)).append(" IN (");
 
-		// 判断主键列值是否为空
-		List<Object> primaryValue = metaInfo.primaryKeys.stream().map(k -> {
-			return BeanUtil.getFieldValue(bean, k.getName());
-		}).filter(kvalue -> {
-			return kvalue != null;
-		}).collect(Collectors.toList());
+			for (int i = 0; i < rowCount; i++) {
+				sql.append(i == 0 ? "?" : ", ?");
+			}
 
-		if (metaInfo.primaryKeys.size() == primaryValue.size() && find(t, primaryValue.toArray()) != null) {
-			uptRresult = update(bean);
-		} else {
+			return sql.append(")").toString();
+		}
 
-			if (save(t, bean) != null) {
-				uptRresult = 1;
-			}
+		String keyCondition = metaInfo.primaryKeyColumns.stream().map(k -> {
+			return k + " = ?";
+		}).collect(Collectors.joining(" AND ", "(", ")"));
+
+		for (int i = 0; i < rowCount; i++) {
+			sql.append(i == 0 ? "" : " OR ").append(keyCondition);
 		}
 
-		return uptRresult;
+		return sql.toString();
 	}
 
-	@Override
-	public synchronized <T> int deleteAll(Class<T> t) throws DAOException {
+	/**
+	 * 以JDBC批处理的方式执行同一条语句，每一项生成一组参数，按batchSize分批提交给数据库
+	 * 
+	 * @param sql
+	 *            准备执行的语句
+	 * @param items
+	 *            准备处理的数据项
+	 * @param binder
+	 *            由数据项生成参数值，顺序与语句中的“?”一致
+	 * @return 实际影响的行记录数
+	 * @throws DAOException
+	 */
+	protected <E> int executeBatch(String sql, Collection<E> items, Function<? super E, List<Object>> binder)
+			throws DAOException {
 
-		int uptRresult = 0;
+		if (items.isEmpty()) {
+			return 0;
+		}
 
-		PreparedStatement delStat = null;
+		return executeInChunks((conn, chunkCommit) -> {
 
-		try {
-			// 连接数据库
-			requestConnection();
+			int uptRresult = 0;
 
-			// 获取元信息
-			MetaInfo metaInfo = null;
-			try {
-				metaInfo = MetaInfo.get(t);
-			} catch (Exception e) {
-				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+			if (logger.isDebugEnabled()) {
+				logger.debug("==> Halo Preparing: {}", sql);
 			}
 
+			PreparedStatement statement = prepareStatement(conn, sql);
+
 			try {
-				String sql = "DELETE FROM " + getTableName(metaInfo.tableMetaInfo);
+				int chunkSize = batchSize > 0 ? batchSize : items.size();
+				int rowCount = 0;
 
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Preparing: {}", sql.toString());
-				}
+				Iterator<E> it = items.iterator();
+				while (it.hasNext()) {
+					List<Object> values = binder.apply(it.next());
 
-				delStat = conn.prepareStatement(sql);
+					if (logger.isDebugEnabled()) {
+						logger.debug("==> Halo Parameters: {}", values.stream().map(v -> {
+							return v == null ? "" : v.toString();
+						}).collect(Collectors.joining(",")));
+					}
 
-				uptRresult = delStat.executeUpdate();
+					for (int i = 0, count = values.size(); i < count; i++) {
+						statement.setObject(i + 1, values.get(i));
+					}
 
-			} catch (SQLException e) {
-				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+					statement.addBatch();
+
+					// 满一批或已到最后一项时，提交给数据库
+					if (++rowCount < chunkSize && it.hasNext()) {
+						continue;
+					}
+
+					uptRresult += getBatchCount(statement.executeBatch());
+
+					if (chunkCommit) {
+						conn.commit();
+					}
+
+					rowCount = 0;
+				}
+			} finally {
+				closeStatement(conn, statement);
 			}
 
-		} finally {
-			releaseConnection();
-		}
+			return uptRresult;
+		});
+	}
 
-		return uptRresult;
+	/**
+	 * 在同一连接上分批执行的操作
+	 */
+	@FunctionalInterface
+	protected interface ChunkedWork {
+
+		/**
+		 * @param conn
+		 *            连接
+		 * @param chunkCommit
+		 *            是否按批提交；为真时连接已关闭自动提交，每执行完一批应提交一次
+		 * @return 实际影响的行记录数
+		 * @throws SQLException
+		 */
+		int execute(Connection conn, boolean chunkCommit) throws SQLException;
 	}
 
-	@Override
-	public synchronized <T> int delete(T bean) throws DAOException {
+	/**
+	 * 请求连接并执行分批操作。<br/>
+	 * 设置了按批提交（commitPerBatch）且不在手动事务中时，执行前关闭自动提交，出现异常时回滚尚未提交的批次，结束后恢复自动提交；
+	 * 手动事务中由事务统一提交。
+	 * 
+	 * @param work
+	 * @return 实际影响的行记录数
+	 * @throws DAOException
+	 */
+	protected int executeInChunks(ChunkedWork work) throws DAOException {
 
-		int uptRresult = 0;
+		// 连接数据库
+		Connection conn = requestConnection();
 
-		PreparedStatement delStat = null;
+		// 手动事务中由事务统一提交，不按批提交
+		boolean chunkCommit = commitPerBatch && !isTransactionConnection(conn);
+		boolean autoCommit = true;
+		boolean completed = false;
 
 		try {
-			// 连接数据库
-			requestConnection();
-
-			// 获取元信息
-			MetaInfo metaInfo = null;
-			try {
-				metaInfo = MetaInfo.get(bean.getClass());
-			} catch (Exception e) {
-				throw new DAOException("查找类描述元信息时出现异常，原始信息：" + e.getMessage());
+			if (chunkCommit) {
+				autoCommit = conn.getAutoCommit();
+				conn.setAutoCommit(false);
 			}
 
-			String tableName = getTableName(metaInfo.tableMetaInfo);
-
-			// 拼接SQL
-			StringBuffer sql = new StringBuffer("DELETE FROM " + tableName);
-			List<Object> colValues = new ArrayList<>();
-
-			// 主键
-			sql.append(metaInfo.primaryKeys.stream().map(k -> {
+			int uptRresult = work.execute(conn, chunkCommit);
 
-				// 保存主键值
-				colValues.add(BeanUtil.getFieldValue(bean, k.getName()));
+			completed = true;
 
-				return BeanUtil.getColumnName(k) + " = ?";
-			}).collect(Collectors.joining(" AND ", " WHERE ", " ")));
+			return uptRresult;
 
-			try {
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Preparing: {}", sql.toString());
+		} catch (SQLException e) {
+			throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
+		} finally {
+			if (chunkCommit) {
+				if (!completed) {
+					try {
+						conn.rollback();
+					} catch (SQLException e) {
+					}
 				}
 
-				delStat = conn.prepareStatement(sql.toString());
-
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Parameters: {}", colValues.stream().map(v -> {
-						return v == null ? "" : v.toString();
-					}).collect(Collectors.joining(",")));
+				try {
+					conn.setAutoCommit(autoCommit);
+				} catch (SQLException e) {
 				}
+			}
 
-				// 赋值
-				for (int i = 0, count = colValues.size(); i < count; i++) {
-					delStat.setObject(i + 1, colValues.get(i));
-				}
+			releaseConnection(conn);
+		}
+	}
 
-				uptRresult = delStat.executeUpdate();
+	/**
+	 * 累计批处理中各语句影响的行记录数；驱动无法确定行数（SUCCESS_NO_INFO）时计为1
+	 * 
+	 * @param counts
+	 * @return
+	 */
+	private static int getBatchCount(int[] counts) {
 
-			} catch (SQLException e) {
-				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
-			}
+		int uptRresult = 0;
 
-		} finally {
-			releaseConnection();
+		for (int count : counts) {
+			if (count > 0) {
+				uptRresult += count;
+			} else if (count == Statement.SUCCESS_NO_INFO) {
+				uptRresult++;
+			}
 		}
 
 		return uptRresult;
@@ -726,18 +2039,19 @@ public class SuperDAO extends AbstractDAO {
 	public long getUniqueValue(String sql, Object... param) throws DAOException {
 
 		PreparedStatement stat = null;
-		RSMemoryCache rs = null;
+		long value = 0;
+
+		// 连接数据库
+		Connection conn = requestConnection();
 
 		try {
-			// 连接数据库
-			requestConnection();
 
 			try {
 				if (logger.isDebugEnabled()) {
 					logger.debug("==> Halo Preparing: {}", sql.toString());
 				}
 
-				stat = conn.prepareStatement(sql.toString());
+				stat = prepareStatement(conn, sql.toString());
 
 				if (param != null) {
 
@@ -753,26 +2067,22 @@ public class SuperDAO extends AbstractDAO {
 				}
 
 				// 执行SQL
-				rs = new RSMemoryCache(stat.executeQuery());
+				value = readUniqueLong(stat);
 
 			} catch (SQLException e) {
 				throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
 			}
 
 		} finally {
-			releaseConnection();
+			closeStatement(conn, stat);
+			releaseConnection(conn);
 		}
 
-		//
-		if (rs != null && rs.next()) {
-			return rs.getLong(1);
-		}
-
-		return 0;
+		return value;
 	}
 
 	@Override
-	public synchronized <T> T executeUniqueQuery(Class<T> t, String sql, Object... param) throws DAOException {
+	public <T> T executeUniqueQuery(Class<T> t, String sql, Object... param) throws DAOException {
 
 		List<T> list = executeQuery(t, -1, -1, sql, param);
 
@@ -788,81 +2098,37 @@ public class SuperDAO extends AbstractDAO {
 	}
 
 	@Override
-	public synchronized <T> List<T> executeQuery(Class<T> t, String sql, Object... param) throws DAOException {
+	public <T> List<T> executeQuery(Class<T> t, String sql, Object... param) throws DAOException {
 		return executeQuery(t, -1, -1, sql, param);
 	}
 
 	@Override
-	public synchronized <T> List<T> executeQuery(Class<T> t, int start, int limit, String sql, Object... param)
+	public <T> List<T> executeQuery(Class<T> t, int start, int limit, String sql, Object... param)
 			throws DAOException {
 
-		List<T> list = new ArrayList<>();
-
-		PreparedStatement stat = null;
-		RSMemoryCache rs = null;
-
-		requestConnection();
-
-		try {
-
-			// 查找方言
-			String dialectSql = sql;
-
-			if (dialect != null) {
-				dialectSql = dialect.getPageSQL(dialectSql, start, limit);
-			}
-
-			if (logger.isDebugEnabled()) {
-				logger.debug("==> Halo Preparing: {}", dialectSql.toString());
-			}
-
-			stat = conn.prepareStatement(dialectSql);
-
-			if (param != null) {
-
-				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
-						return v == null ? "" : v.toString();
-					}).collect(Collectors.joining(",")));
-				}
-
-				for (int i = 0; i < param.length; i++) {
-					stat.setObject(i + 1, param[i]);
-				}
-			}
-
-			// 执行SQL
-			rs = new RSMemoryCache(stat.executeQuery());
-
-		} catch (SQLException e) {
-			throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
-		} finally {
-			releaseConnection();
-		}
+		// 查找方言；分页位置以参数绑定
+		List<Object> params = toParamList(param);
 
-		// 遍历结果集，构造对象
-		while (rs != null && rs.next()) {
-			list.add(createBean(t, rs.getRowValueMap()));
-		}
+		String dialectSql = getPageSQL(sql, start, limit, params);
 
-		return list;
+		return queryBeans(t, dialectSql, start, limit, params.toArray());
 	}
 
 	@Override
-	public synchronized int executeUpdate(String sql, Object... param) throws DAOException {
+	public int executeUpdate(String sql, Object... param) throws DAOException {
 
 		int uptRresult = 0;
 
 		PreparedStatement stat = null;
 
-		requestConnection();
+		Connection conn = requestConnection();
 
 		try {
 			if (logger.isDebugEnabled()) {
 				logger.debug("==> Halo Preparing: {}", sql.toString());
 			}
 
-			stat = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			stat = prepareStatement(conn, sql, Statement.RETURN_GENERATED_KEYS);
 
 			if (param != null) {
 
@@ -879,17 +2145,31 @@ public class SuperDAO extends AbstractDAO {
 
 			uptRresult = stat.executeUpdate();
 
+			// 按SQL涉及的表使缓存失效；无法确定时使全部缓存失效
+			Set<String> tables = SqlUtil.getModifiedTables(sql);
+			if (tables.isEmpty()) {
+				tables = null;
+			}
+
+			evictCachedEntitiesOf(tables);
+			evictCachedQueriesOf(tables);
+
+			// 更新语句可能修改了已加载的实体，之后重新加载
+			Set<String> modifiedTables = tables;
+			removeLoadedEntities(tableClass -> isMappedTo(tableClass, modifiedTables));
+
 		} catch (SQLException e) {
 			throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
 		} finally {
-			releaseConnection();
+			closeStatement(conn, stat);
+			releaseConnection(conn);
 		}
 
 		return uptRresult;
 	}
 
 	@Override
-	public synchronized Map<String, Object> executeUniqueQuery(String sql, Object... param) throws DAOException {
+	public Map<String, Object> executeUniqueQuery(String sql, Object... param) throws DAOException {
 
 		List<Map<String, Object>> list = executeQuery(-1, -1, sql, param);
 
@@ -905,12 +2185,12 @@ public class SuperDAO extends AbstractDAO {
 	}
 
 	@Override
-	public synchronized List<Map<String, Object>> executeQuery(String sql, Object... param) throws DAOException {
+	public List<Map<String, Object>> executeQuery(String sql, Object... param) throws DAOException {
 		return executeQuery(-1, -1, sql, param);
 	}
 
 	@Override
-	public synchronized List<Map<String, Object>> executeQuery(int start, int limit, String sql, Object... param)
+	public List<Map<String, Object>> executeQuery(int start, int limit, String sql, Object... param)
 			throws DAOException {
 
 		List<Map<String, Object>> list = new ArrayList<>();
@@ -918,33 +2198,31 @@ public class SuperDAO extends AbstractDAO {
 		PreparedStatement stat = null;
 		ResultSet rs = null;
 
-		requestConnection();
+		Connection conn = requestConnection();
 
 		try {
 
-			// 查找方言
-			String dialectSql = sql;
+			// 查找方言；分页位置以参数绑定
+			List<Object> params = toParamList(param);
 
-			if (dialect != null) {
-				dialectSql = dialect.getPageSQL(dialectSql, start, limit);
-			}
+			String dialectSql = getPageSQL(sql, start, limit, params);
 
 			if (logger.isDebugEnabled()) {
 				logger.debug("==> Halo Preparing: {}", dialectSql.toString());
 			}
 
-			stat = conn.prepareStatement(dialectSql);
+			stat = prepareStatement(conn, dialectSql);
 
-			if (param != null) {
+			if (!params.isEmpty()) {
 
 				if (logger.isDebugEnabled()) {
-					logger.debug("==> Halo Parameters: {}", Arrays.stream(param).map(v -> {
+					logger.debug("==> Halo Parameters: {}", params.stream().map(v -> {
 						return v == null ? "" : v.toString();
 					}).collect(Collectors.joining(",")));
 				}
 
-				for (int i = 0; i < param.length; i++) {
-					stat.setObject(i + 1, param[i]);
+				for (int i = 0, pLength = params.size(); i < pLength; i++) {
+					stat.setObject(i + 1, params.get(i));
 				}
 			}
 
@@ -960,7 +2238,15 @@ public class SuperDAO extends AbstractDAO {
 		} catch (SQLException e) {
 			throw new DAOException("执行数据库查询时出现异常，原始信息：" + e.getMessage());
 		} finally {
-			releaseConnection();
+			try {
+				if (rs != null) {
+					rs.close();
+				}
+			} catch (SQLException e) {
+			}
+
+			closeStatement(conn, stat);
+			releaseConnection(conn);
 		}
 
 		return list;
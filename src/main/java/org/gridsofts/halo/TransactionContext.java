@@ -0,0 +1,60 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.gridsofts.halo.cache.EntityCache;
+
+/**
+ * 手动事务的状态；由开启事务的线程独占，因此同一个DAO实例可以同时服务多个线程的事务。
+ * 
+ * @author Lei
+ */
+class TransactionContext {
+
+	// 事务所使用的连接，直至事务提交或回滚后才释放
+	final Connection connection;
+
+	// 事务结束（提交或回滚）后需要执行的操作，如再次使缓存失效
+	final List<Runnable> completionActions = new ArrayList<>();
+
+	// 事务中已加载的实体（一级缓存），按实体类（标注Table的类）及主键值索引
+	private final Map<Class<?>, Map<List<Object>, Object>> entities = new HashMap<>();
+
+	TransactionContext(Connection connection) {
+		this.connection = connection;
+	}
+
+	Object getEntity(Class<?> tableClass, Object[] key) {
+
+		Map<List<Object>, Object> loaded = entities.get(tableClass);
+
+		return loaded == null ? null : loaded.get(EntityCache.toKey(key));
+	}
+
+	void putEntity(Class<?> tableClass, Object[] key, Object bean) {
+		entities.computeIfAbsent(tableClass, c -> new HashMap<>()).put(EntityCache.toKey(key), bean);
+	}
+
+	void removeEntity(Class<?> tableClass, Object[] key) {
+
+		Map<List<Object>, Object> loaded = entities.get(tableClass);
+
+		if (loaded != null) {
+			loaded.remove(EntityCache.toKey(key));
+		}
+	}
+
+	void removeEntities(Predicate<Class<?>> filter) {
+		entities.keySet().removeIf(filter);
+	}
+}
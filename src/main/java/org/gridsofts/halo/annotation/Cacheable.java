@@ -0,0 +1,47 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.gridsofts.halo.cache.LruEvictionPolicy;
+import org.gridsofts.halo.itf.IEvictionPolicy;
+
+/**
+ * 开启实体缓存；标注于带有Table注解的类上，按主键缓存find的查询结果。<br/>
+ * 也可以在halo.properties中按类配置：&lt;类名&gt;.cache=LRU|LFU|淘汰策略类名，&lt;类名&gt;.cacheSize，&lt;类名&gt;.cacheTTL
+ * 
+ * @author Lei
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+
+	/**
+	 * 最多缓存的实体数
+	 * 
+	 * @return
+	 */
+	int maxSize() default 1000;
+
+	/**
+	 * 存活时间（毫秒）；0表示不过期
+	 * 
+	 * @return
+	 */
+	long ttl() default 0;
+
+	/**
+	 * 淘汰策略
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	Class<? extends IEvictionPolicy> eviction() default LruEvictionPolicy.class;
+}
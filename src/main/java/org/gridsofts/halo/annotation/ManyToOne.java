@@ -19,6 +19,10 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 public @interface ManyToOne {
 
+	// 常量表
+	public static final String SELECT = "select";
+	public static final String JOIN = "join";
+
 	/**
 	 * 外键
 	 * 
@@ -32,4 +36,21 @@ public @interface ManyToOne {
 	 * @return
 	 */
 	boolean lazy() default false;
+
+	/**
+	 * 批量加载的批大小；大于0时，同一次查询得到的多个Bean的该关联对象按外键值去重后，以“where 主键 in (...)”分批一并加载，
+	 * 而不是每个Bean各查询一次。<br/>
+	 * 立即加载时在全部Bean构造完毕后加载；延迟加载时在首次访问任一Bean的该关联对象时，为同一次查询得到的全部Bean一并加载。
+	 * 
+	 * @return
+	 */
+	int batchSize() default 0;
+
+	/**
+	 * 立即加载的方式；SELECT为构造Bean后另行查询，JOIN为list、find查询时以“left join”连接关联表，从同一行数据中同时构造两个Bean。<br/>
+	 * 仅对立即加载有效，且只连接一层：关联对象自身需要立即加载的关联仍另行查询。
+	 * 
+	 * @return
+	 */
+	String fetch() default SELECT;
 }
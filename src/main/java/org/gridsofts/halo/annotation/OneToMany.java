@@ -64,4 +64,13 @@ public @interface OneToMany {
 	 * @return
 	 */
 	boolean lazy() default false;
+
+	/**
+	 * 批量加载的批大小；大于0时，同一次查询得到的多个Bean的该集合以“where 外键 in (...)”分批一并查询，再按外键值分组赋给各个Bean，
+	 * 而不是每个Bean各查询一次。<br/>
+	 * 立即加载时在全部Bean构造完毕后加载；延迟加载时在首次访问任一Bean的该集合时，为同一次查询得到的全部Bean一并加载。
+	 * 
+	 * @return
+	 */
+	int batchSize() default 0;
 }
@@ -12,8 +12,9 @@ import java.lang.annotation.Target;
 
 /**
  * 数据表标记。<br/>
- * 字段名称及意义：Name（表名）, PrimaryKey（主键字段）, IsGenerateKeys（是否配置为自动生成主键）<br/>
- * 注：PrimaryKey支持多主键
+ * 字段名称及意义：Name（表名）, PrimaryKey（主键字段）, IsGenerateKeys（是否配置为自动生成主键）,
+ * SeekKey（键集分页的排序字段）<br/>
+ * 注：PrimaryKey支持多主键；SeekKey为空时按主键分页，不唯一时以主键补足
  * 
  * @author Lei
  * 
@@ -27,4 +28,6 @@ public @interface Table {
 	String[] primaryKey();
 
 	boolean autoGenerateKeys() default true;
+
+	String[] seekKey() default {};
 }
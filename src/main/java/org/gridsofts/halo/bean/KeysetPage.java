@@ -0,0 +1,50 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.bean;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 键集分页的一页结果；{@link #getNextKey()}即下一页的起点，原样传回listAfter即可取得下一页
+ * 
+ * @author Lei
+ */
+public class KeysetPage<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final List<T> items;
+	private final Object[] nextKey;
+	private final boolean hasNext;
+
+	public KeysetPage(List<T> items, Object[] nextKey, boolean hasNext) {
+		this.items = Collections.unmodifiableList(items);
+		this.nextKey = nextKey;
+		this.hasNext = hasNext;
+	}
+
+	/**
+	 * @return 本页的记录
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return 本页最后一条记录的排序键值（顺序与MetaInfo.seekFields一致）；本页为空时返回null
+	 */
+	public Object[] getNextKey() {
+		return nextKey == null ? null : nextKey.clone();
+	}
+
+	/**
+	 * @return 是否还有下一页
+	 */
+	public boolean hasNext() {
+		return hasNext;
+	}
+}
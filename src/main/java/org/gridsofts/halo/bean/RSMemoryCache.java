@@ -24,9 +24,18 @@ import org.gridsofts.halo.util.StringUtil;
 public class RSMemoryCache implements Serializable {
 	private static final long serialVersionUID = 1L;
 
-	private ArrayList<ArrayList<Object>> row;
-	private ArrayList<Object> col;
-	private ArrayList<String> colNameAry;
+	// 读取列值的方式
+	private static final int ReadObject = 0;
+	private static final int ReadInt = 1;
+	private static final int ReadLong = 2;
+	private static final int ReadDouble = 3;
+	private static final int ReadString = 4;
+
+	private ArrayList<Object[]> row;
+	private String[] colNameAry;
+
+	// 列名（全大写）到列索引（从0开始）的映射
+	private HashMap<String, Integer> colIndexes;
 
 	private int rowPoint;
 
@@ -45,22 +54,76 @@ public class RSMemoryCache implements Serializable {
 
 		ResultSetMetaData rsmd = rs.getMetaData();
 
+		int colCount = rsmd.getColumnCount();
+
 		row = new ArrayList<>();
-		colNameAry = new ArrayList<>();
+		colNameAry = new String[colCount];
+		colIndexes = new HashMap<>(colCount * 2);
 		rowPoint = -1;
 
-		int colCount = rsmd.getColumnCount();
-		for (int i = 1; i <= colCount; i++) {
-			this.colNameAry.add(rsmd.getColumnLabel(i).toUpperCase());
+		// 按驱动报告的列类型确定读取方式，以便直接取得基本类型的值
+		int[] readers = new int[colCount];
+
+		for (int i = 0; i < colCount; i++) {
+			colNameAry[i] = rsmd.getColumnLabel(i + 1).toUpperCase();
+			colIndexes.putIfAbsent(colNameAry[i], i);
+
+			readers[i] = getReader(rsmd, i + 1);
 		}
 
 		while (rs.next()) {
-			this.col = new ArrayList<>();
-			for (int i = 1; i <= colCount; i++) {
-				this.col.add(rs.getObject(i));
+			Object[] col = new Object[colCount];
+
+			for (int i = 0; i < colCount; i++) {
+				col[i] = read(rs, i + 1, readers[i]);
 			}
-			this.row.add(this.col);
+
+			this.row.add(col);
+		}
+	}
+
+	private static int getReader(ResultSetMetaData rsmd, int index) {
+
+		String className = null;
+		try {
+			className = rsmd.getColumnClassName(index);
+		} catch (Throwable e) {
+		}
+
+		if (Integer.class.getName().equals(className)) {
+			return ReadInt;
+		} else if (Long.class.getName().equals(className)) {
+			return ReadLong;
+		} else if (Double.class.getName().equals(className)) {
+			return ReadDouble;
+		} else if (String.class.getName().equals(className)) {
+			return ReadString;
+		}
+
+		return ReadObject;
+	}
+
+	private static Object read(ResultSet rs, int index, int reader) throws SQLException {
+
+		Object value = null;
+
+		switch (reader) {
+		case ReadInt:
+			value = rs.getInt(index);
+			break;
+		case ReadLong:
+			value = rs.getLong(index);
+			break;
+		case ReadDouble:
+			value = rs.getDouble(index);
+			break;
+		case ReadString:
+			return rs.getString(index);
+		default:
+			return rs.getObject(index);
 		}
+
+		return rs.wasNull() ? null : value;
 	}
 
 	/**
@@ -87,7 +150,7 @@ public class RSMemoryCache implements Serializable {
 		if (colNameAry == null) {
 			return 0;
 		}
-		return colNameAry.size();
+		return colNameAry.length;
 	}
 
 	/**
@@ -101,7 +164,16 @@ public class RSMemoryCache implements Serializable {
 		if (colNameAry == null || index < 0 || index >= getColumns()) {
 			return null;
 		}
-		return String.valueOf(colNameAry.get(index));
+		return colNameAry[index];
+	}
+
+	/**
+	 * 返回所有列的字段名（全大写），顺序即列索引。
+	 * 
+	 * @return 字段名数组
+	 */
+	public String[] getColNames() {
+		return colNameAry.clone();
 	}
 
 	/**
@@ -142,27 +214,30 @@ public class RSMemoryCache implements Serializable {
 	public Map<String, Object> getRowValueMap() {
 
 		Map<String, Object> valueMap = new HashMap<>();
-		
-		ArrayList<Object> temp = null;
 
-		if (rowPoint >= 0 && rowPoint < row.size()) {
-			temp = row.get(rowPoint);
-		}
+		Object[] temp = currentRow();
 
-		if (temp != null && temp.size() > 0) {
-			
-			for (int i = 0, len = temp.size(); i < len; i++) {
-				
-				String name = colNameAry.get(i);
-				Object value = temp.get(i);
-				
-				valueMap.put(name, value);
+		if (temp != null) {
+			for (int i = 0; i < temp.length; i++) {
+				valueMap.put(colNameAry[i], temp[i]);
 			}
 		}
-		
+
 		return valueMap;
 	}
 
+	/**
+	 * 获取当前行的所有列值，顺序与{@link #getColNames()}一致
+	 * 
+	 * @return
+	 */
+	public Object[] getRowValues() {
+
+		Object[] temp = currentRow();
+
+		return temp == null ? new Object[0] : temp.clone();
+	}
+
 	/**
 	 * 返回当前行记录中的指定列的值，类型为Object。
 	 * 
@@ -171,17 +246,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为Object的列值
 	 */
 	public Object getObject(int index) {
-		ArrayList<Object> temp = null;
-
-		if (rowPoint >= 0 && rowPoint < row.size()) {
-			temp = row.get(rowPoint);
-		}
-
-		if (temp == null || temp.get(index - 1) == null || StringUtil.isNull(temp.get(index - 1).toString())) {
-			return null;
-		} else {
-			return temp.get(index - 1);
-		}
+		return getValue(index - 1);
 	}
 
 	/**
@@ -192,24 +257,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为Object的列值
 	 */
 	public Object getObject(String name) {
-
-		int index = colNameAry.indexOf(name.toUpperCase());
-
-		if (index < 0) {
-			return null;
-		}
-
-		ArrayList<Object> temp = null;
-
-		if (rowPoint >= 0 && rowPoint < row.size()) {
-			temp = row.get(rowPoint);
-		}
-
-		if (temp == null || temp.get(index) == null || StringUtil.isNull(temp.get(index).toString())) {
-			return null;
-		} else {
-			return temp.get(index);
-		}
+		return getValue(indexOf(name));
 	}
 
 	/**
@@ -220,10 +268,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为String的列值
 	 */
 	public String getString(int index) {
-		if (getObject(index) == null) {
-			return null;
-		}
-		return String.valueOf(getObject(index));
+		return toString(getValue(index - 1));
 	}
 
 	/**
@@ -234,10 +279,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为String的列值
 	 */
 	public String getString(String name) {
-		if (getObject(name) == null) {
-			return null;
-		}
-		return String.valueOf(getObject(name));
+		return toString(getValue(indexOf(name)));
 	}
 
 	/**
@@ -248,10 +290,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为int的列值
 	 */
 	public int getInt(int index) {
-		if (getString(index) == null) {
-			return 0;
-		}
-		return Integer.valueOf(getString(index));
+		return toInt(getValue(index - 1));
 	}
 
 	/**
@@ -262,38 +301,29 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为int的列值
 	 */
 	public int getInt(String name) {
-		if (getString(name) == null) {
-			return 0;
-		}
-		return Integer.valueOf(getString(name));
+		return toInt(getValue(indexOf(name)));
 	}
 
 	/**
-	 * 返回当前行记录中的指定列的值，类型为int。
+	 * 返回当前行记录中的指定列的值，类型为long。
 	 * 
 	 * @param index
 	 *            指定列索引，从1开始
-	 * @return 类型为int的列值
+	 * @return 类型为long的列值
 	 */
 	public long getLong(int index) {
-		if (getString(index) == null) {
-			return 0;
-		}
-		return Long.valueOf(getString(index));
+		return toLong(getValue(index - 1));
 	}
 
 	/**
-	 * 通过列名，返回当前行记录中的指定列的值，类型为int。
+	 * 通过列名，返回当前行记录中的指定列的值，类型为long。
 	 * 
 	 * @param name
 	 *            指定的列名称
-	 * @return 类型为int的列值
+	 * @return 类型为long的列值
 	 */
 	public long getLong(String name) {
-		if (getString(name) == null) {
-			return 0;
-		}
-		return Long.valueOf(getString(name));
+		return toLong(getValue(indexOf(name)));
 	}
 
 	/**
@@ -304,10 +334,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为float的列值
 	 */
 	public float getFloat(int index) {
-		if (getString(index) == null) {
-			return 0;
-		}
-		return Float.valueOf(getString(index));
+		return toFloat(getValue(index - 1));
 	}
 
 	/**
@@ -318,10 +345,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为float的列值
 	 */
 	public float getFloat(String name) {
-		if (getString(name) == null) {
-			return 0;
-		}
-		return Float.valueOf(getString(name));
+		return toFloat(getValue(indexOf(name)));
 	}
 
 	/**
@@ -332,10 +356,7 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为double的列值
 	 */
 	public double getDouble(int index) {
-		if (getString(index) == null) {
-			return 0;
-		}
-		return Double.valueOf(getString(index));
+		return toDouble(getValue(index - 1));
 	}
 
 	/**
@@ -346,9 +367,99 @@ public class RSMemoryCache implements Serializable {
 	 * @return 类型为double的列值
 	 */
 	public double getDouble(String name) {
-		if (getString(name) == null) {
-			return 0;
+		return toDouble(getValue(indexOf(name)));
+	}
+
+	private Object[] currentRow() {
+
+		if (rowPoint >= 0 && rowPoint < row.size()) {
+			return row.get(rowPoint);
+		}
+
+		return null;
+	}
+
+	/**
+	 * @param name
+	 *            列名，不区分大小写
+	 * @return 列索引，从0开始；未找到时返回-1
+	 */
+	private int indexOf(String name) {
+
+		Integer index = colIndexes.get(name);
+
+		if (index == null) {
+			index = colIndexes.get(name.toUpperCase());
+		}
+
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * 获取当前行的列值；空白字符串视为空值
+	 * 
+	 * @param index
+	 *            列索引，从0开始
+	 * @return
+	 */
+	private Object getValue(int index) {
+
+		if (index < 0) {
+			return null;
+		}
+
+		Object[] temp = currentRow();
+
+		if (temp == null) {
+			return null;
+		}
+
+		Object value = temp[index];
+
+		if (value instanceof String && StringUtil.isNull((String) value)) {
+			return null;
+		}
+
+		return value;
+	}
+
+	private static String toString(Object value) {
+		return value == null ? null : value.toString();
+	}
+
+	private static int toInt(Object value) {
+
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
 		}
-		return Double.valueOf(getString(name));
+
+		return value == null ? 0 : Integer.valueOf(value.toString());
+	}
+
+	private static long toLong(Object value) {
+
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+
+		return value == null ? 0 : Long.valueOf(value.toString());
+	}
+
+	private static float toFloat(Object value) {
+
+		if (value instanceof Number) {
+			return ((Number) value).floatValue();
+		}
+
+		return value == null ? 0 : Float.valueOf(value.toString());
+	}
+
+	private static double toDouble(Object value) {
+
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+
+		return value == null ? 0 : Double.valueOf(value.toString());
 	}
 }
@@ -0,0 +1,219 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import org.gridsofts.halo.itf.IEvictionPolicy;
+
+/**
+ * 有界缓存；按总权重限制容量（每个条目的权重默认为1，即按条目数限制），超出时由淘汰策略选出被淘汰的条目。<br>
+ * 可以为条目设置存活时间，过期的条目在下次访问时移除。
+ * 
+ * @author Lei
+ */
+public class BoundedCache<K, V> {
+
+	private final long maxWeight;
+	private final long ttl;
+
+	private final IEvictionPolicy<K> policy;
+	private final ToLongFunction<V> weigher;
+
+	private final Map<K, Entry<V>> entries = new HashMap<>();
+	private long totalWeight = 0;
+
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long evictionCount = 0;
+	private long expirationCount = 0;
+	private long invalidationCount = 0;
+
+	/**
+	 * @param maxSize
+	 *            最大条目数
+	 * @param ttl
+	 *            条目的存活时间（毫秒）；0表示不过期
+	 * @param policy
+	 *            淘汰策略
+	 */
+	public BoundedCache(long maxSize, long ttl, IEvictionPolicy<K> policy) {
+		this(maxSize, ttl, policy, v -> 1);
+	}
+
+	/**
+	 * @param maxWeight
+	 *            最大总权重
+	 * @param ttl
+	 *            条目的存活时间（毫秒）；0表示不过期
+	 * @param policy
+	 *            淘汰策略
+	 * @param weigher
+	 *            计算条目的权重
+	 */
+	public BoundedCache(long maxWeight, long ttl, IEvictionPolicy<K> policy, ToLongFunction<V> weigher) {
+		this.maxWeight = maxWeight;
+		this.ttl = ttl;
+		this.policy = policy;
+		this.weigher = weigher;
+	}
+
+	/**
+	 * 获取缓存的值
+	 * 
+	 * @param key
+	 * @return 不存在或已过期时返回null
+	 */
+	public synchronized V get(K key) {
+		return get(key, null);
+	}
+
+	/**
+	 * 获取缓存的值，并验证其是否仍然有效；无效的条目被移除
+	 * 
+	 * @param key
+	 * @param validator
+	 *            为null时不验证
+	 * @return 不存在、已过期或无效时返回null
+	 */
+	public synchronized V get(K key, Predicate<? super V> validator) {
+
+		Entry<V> entry = entries.get(key);
+
+		if (entry != null && entry.expiresAt > 0 && entry.expiresAt < System.currentTimeMillis()) {
+			unlink(key, entry);
+			expirationCount++;
+
+			entry = null;
+		}
+
+		if (entry != null && validator != null && !validator.test(entry.value)) {
+			unlink(key, entry);
+			invalidationCount++;
+
+			entry = null;
+		}
+
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+
+		policy.onAccess(key);
+		hitCount++;
+
+		return entry.value;
+	}
+
+	/**
+	 * 放入缓存；权重超过容量的值不会被缓存
+	 * 
+	 * @param key
+	 * @param value
+	 */
+	public synchronized void put(K key, V value) {
+
+		long weight = weigher.applyAsLong(value);
+
+		Entry<V> previous = entries.get(key);
+		if (previous != null) {
+			unlink(key, previous);
+		}
+
+		if (weight > maxWeight) {
+			return;
+		}
+
+		entries.put(key, new Entry<>(value, weight, ttl > 0 ? System.currentTimeMillis() + ttl : 0));
+		totalWeight += weight;
+		policy.onInsert(key);
+
+		while (totalWeight > maxWeight) {
+			K victim = policy.selectVictim();
+
+			Entry<V> entry = victim == null ? null : entries.get(victim);
+			if (entry == null) {
+				break;
+			}
+
+			unlink(victim, entry);
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * 使给定的条目失效
+	 * 
+	 * @param key
+	 */
+	public synchronized void invalidate(K key) {
+
+		Entry<V> entry = entries.get(key);
+		if (entry != null) {
+			unlink(key, entry);
+			invalidationCount++;
+		}
+	}
+
+	/**
+	 * 使满足条件的条目失效
+	 * 
+	 * @param filter
+	 */
+	public synchronized void invalidateIf(Predicate<? super K> filter) {
+
+		Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<K, Entry<V>> entry = it.next();
+
+			if (filter.test(entry.getKey())) {
+				it.remove();
+
+				totalWeight -= entry.getValue().weight;
+				policy.onRemove(entry.getKey());
+				invalidationCount++;
+			}
+		}
+	}
+
+	/**
+	 * 使全部条目失效
+	 */
+	public synchronized void invalidateAll() {
+		invalidateIf(key -> true);
+	}
+
+	/**
+	 * @return 统计信息的快照
+	 */
+	public synchronized CacheStats getStats() {
+		return new CacheStats(hitCount, missCount, evictionCount, expirationCount, invalidationCount,
+				entries.size(), totalWeight);
+	}
+
+	private void unlink(K key, Entry<V> entry) {
+		entries.remove(key);
+		totalWeight -= entry.weight;
+		policy.onRemove(key);
+	}
+
+	private static class Entry<V> {
+
+		final V value;
+		final long weight;
+		final long expiresAt;
+
+		Entry(V value, long weight, long expiresAt) {
+			this.value = value;
+			this.weight = weight;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.cache;
+
+import java.io.Serializable;
+
+/**
+ * 缓存统计信息的快照
+ * 
+ * @author Lei
+ */
+public class CacheStats implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final long expirationCount;
+	private final long invalidationCount;
+	private final int size;
+	private final long weight;
+
+	CacheStats(long hitCount, long missCount, long evictionCount, long expirationCount, long invalidationCount,
+			int size, long weight) {
+
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+		this.invalidationCount = invalidationCount;
+		this.size = size;
+		this.weight = weight;
+	}
+
+	/**
+	 * 合并两份统计信息
+	 * 
+	 * @param other
+	 * @return
+	 */
+	public CacheStats plus(CacheStats other) {
+		return new CacheStats(hitCount + other.hitCount, missCount + other.missCount,
+				evictionCount + other.evictionCount, expirationCount + other.expirationCount,
+				invalidationCount + other.invalidationCount, size + other.size, weight + other.weight);
+	}
+
+	/**
+	 * @return 命中次数
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return 未命中次数（含已过期的条目）
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return 命中率；没有访问时为0
+	 */
+	public double getHitRate() {
+		long requestCount = hitCount + missCount;
+		return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+	}
+
+	/**
+	 * @return 因容量不足而淘汰的条目数
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return 因过期而移除的条目数
+	 */
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+
+	/**
+	 * @return 因数据变更而失效的条目数
+	 */
+	public long getInvalidationCount() {
+		return invalidationCount;
+	}
+
+	/**
+	 * @return 当前的条目数
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return 当前的总权重
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hit=" + hitCount + ", miss=" + missCount + ", hitRate=" + getHitRate() + ", eviction="
+				+ evictionCount + ", expiration=" + expirationCount + ", invalidation=" + invalidationCount
+				+ ", size=" + size + ", weight=" + weight + "]";
+	}
+}
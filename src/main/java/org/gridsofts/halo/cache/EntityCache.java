@@ -0,0 +1,349 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+import org.gridsofts.halo.annotation.Cacheable;
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.itf.IEvictionPolicy;
+import org.gridsofts.halo.util.StringUtil;
+
+/**
+ * 实体缓存（二级缓存）；按“实体类 + 主键值”缓存查询到的行数据，命中时按行数据重新构造Bean，因此调用者之间不会共享Bean实例。<br>
+ * 只有标注了{@link Cacheable}，或在halo.properties中配置了缓存的实体类才会被缓存：<br>
+ * 
+ * <pre>
+ * com.example.Region.cache=LRU        # LRU、LFU、NONE或淘汰策略的类名
+ * com.example.Region.cacheSize=5000
+ * com.example.Region.cacheTTL=60000   # 毫秒，0表示不过期
+ * </pre>
+ * 
+ * 配置文件中的设置优先于注解。<br>
+ * 查询与写入缓存之间数据可能已被修改：查询前以{@link #stamp}取得版本号，写入时（{@link #put}）版本号已变化则放弃写入，以免缓存旧数据。<br>
+ * 注意：缓存属于DAO实例，通过其它DAO实例或其它途径对数据的修改不会使其失效，此时应设置合适的存活时间。
+ * 
+ * @author Lei
+ */
+public class EntityCache {
+
+	private final Properties properties;
+
+	// 按实体类（标注Table的类）缓存；未开启缓存的类对应Optional.empty()
+	private final ConcurrentMap<Class<?>, Optional<BoundedCache<List<Object>, CachedEntity>>> caches = new ConcurrentHashMap<>();
+
+	// 各实体类按主键散列分段的版本号，每次失效时递增
+	private static final int VersionStripes = 64;
+	private final ConcurrentMap<Class<?>, AtomicLongArray> versions = new ConcurrentHashMap<>();
+
+	public EntityCache(Properties properties) {
+		this.properties = properties == null ? new Properties() : properties;
+	}
+
+	/**
+	 * 测试给定的实体类是否开启了缓存
+	 * 
+	 * @param tableClass
+	 * @return
+	 */
+	public boolean isEnabled(Class<?> tableClass) {
+		return getCache(tableClass) != null;
+	}
+
+	/**
+	 * 获取缓存的实体行数据
+	 * 
+	 * @param tableClass
+	 * @param key
+	 *            主键值
+	 * @return 未缓存时返回null
+	 */
+	public CachedEntity get(Class<?> tableClass, Object[] key) {
+
+		BoundedCache<List<Object>, CachedEntity> cache = getCache(tableClass);
+
+		return cache == null ? null : cache.get(toKey(key));
+	}
+
+	/**
+	 * 获取给定主键的当前版本号；应在查询数据库之前取得，并在写入缓存时传给{@link #put}
+	 * 
+	 * @param tableClass
+	 * @param key
+	 *            主键值
+	 * @return
+	 */
+	public long stamp(Class<?> tableClass, Object[] key) {
+		return getVersions(tableClass).get(getStripe(toKey(key)));
+	}
+
+	/**
+	 * 缓存实体行数据；自取得版本号以来该主键被失效过时不缓存
+	 * 
+	 * @param tableClass
+	 * @param key
+	 *            主键值
+	 * @param stamp
+	 *            查询数据库之前由{@link #stamp}取得的版本号
+	 * @param columnLabels
+	 *            结果集的列名（全大写）
+	 * @param row
+	 *            行数据
+	 */
+	public void put(Class<?> tableClass, Object[] key, long stamp, String[] columnLabels, Object[] row) {
+
+		BoundedCache<List<Object>, CachedEntity> cache = getCache(tableClass);
+
+		if (cache == null) {
+			return;
+		}
+
+		List<Object> cacheKey = toKey(key);
+
+		AtomicLongArray classVersions = getVersions(tableClass);
+		int stripe = getStripe(cacheKey);
+
+		if (classVersions.get(stripe) != stamp) {
+			return;
+		}
+
+		cache.put(cacheKey, new CachedEntity(columnLabels, row));
+
+		// 失效先递增版本号再清除缓存，因此写入后版本号未变，或失效在写入之后清除了缓存，二者必居其一
+		if (classVersions.get(stripe) != stamp) {
+			cache.invalidate(cacheKey);
+		}
+	}
+
+	/**
+	 * 使给定主键的实体失效
+	 * 
+	 * @param tableClass
+	 * @param key
+	 */
+	public void invalidate(Class<?> tableClass, Object[] key) {
+
+		BoundedCache<List<Object>, CachedEntity> cache = getCache(tableClass);
+
+		if (cache != null) {
+			List<Object> cacheKey = toKey(key);
+
+			getVersions(tableClass).incrementAndGet(getStripe(cacheKey));
+			cache.invalidate(cacheKey);
+		}
+	}
+
+	/**
+	 * 使给定实体类的全部缓存失效
+	 * 
+	 * @param tableClass
+	 */
+	public void invalidateAll(Class<?> tableClass) {
+
+		BoundedCache<List<Object>, CachedEntity> cache = getCache(tableClass);
+
+		if (cache != null) {
+			invalidateAll(tableClass, cache);
+		}
+	}
+
+	/**
+	 * 使满足条件的实体类的全部缓存失效
+	 * 
+	 * @param filter
+	 */
+	public void invalidateIf(Predicate<Class<?>> filter) {
+		caches.forEach((tableClass, cache) -> {
+			if (cache.isPresent() && filter.test(tableClass)) {
+				invalidateAll(tableClass, cache.get());
+			}
+		});
+	}
+
+	/**
+	 * 使全部实体缓存失效
+	 */
+	public void invalidateAll() {
+		caches.forEach((tableClass, cache) -> cache.ifPresent(c -> invalidateAll(tableClass, c)));
+	}
+
+	private void invalidateAll(Class<?> tableClass, BoundedCache<List<Object>, CachedEntity> cache) {
+
+		AtomicLongArray classVersions = getVersions(tableClass);
+		for (int i = 0; i < VersionStripes; i++) {
+			classVersions.incrementAndGet(i);
+		}
+
+		cache.invalidateAll();
+	}
+
+	private AtomicLongArray getVersions(Class<?> tableClass) {
+
+		AtomicLongArray classVersions = versions.get(tableClass);
+
+		if (classVersions == null) {
+			classVersions = versions.computeIfAbsent(tableClass, c -> new AtomicLongArray(VersionStripes));
+		}
+
+		return classVersions;
+	}
+
+	private static int getStripe(List<Object> cacheKey) {
+		return (cacheKey.hashCode() & Integer.MAX_VALUE) % VersionStripes;
+	}
+
+	/**
+	 * 获取给定实体类的缓存统计信息
+	 * 
+	 * @param tableClass
+	 * @return 未开启缓存时返回null
+	 */
+	public CacheStats getStats(Class<?> tableClass) {
+
+		BoundedCache<List<Object>, CachedEntity> cache = getCache(tableClass);
+
+		return cache == null ? null : cache.getStats();
+	}
+
+	/**
+	 * @return 全部实体类合计的缓存统计信息
+	 */
+	public CacheStats getStats() {
+
+		CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0, 0);
+
+		for (Optional<BoundedCache<List<Object>, CachedEntity>> cache : caches.values()) {
+			if (cache.isPresent()) {
+				stats = stats.plus(cache.get().getStats());
+			}
+		}
+
+		return stats;
+	}
+
+	private BoundedCache<List<Object>, CachedEntity> getCache(Class<?> tableClass) {
+
+		Optional<BoundedCache<List<Object>, CachedEntity>> cache = caches.get(tableClass);
+
+		if (cache == null) {
+			cache = caches.computeIfAbsent(tableClass, this::createCache);
+		}
+
+		return cache.orElse(null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Optional<BoundedCache<List<Object>, CachedEntity>> createCache(Class<?> tableClass) {
+
+		Cacheable annotation = tableClass.getAnnotation(Cacheable.class);
+
+		String prefix = tableClass.getName() + ".";
+		String policyName = properties.getProperty(prefix + "cache");
+
+		if (annotation == null && StringUtil.isNull(policyName)) {
+			return Optional.empty();
+		}
+
+		long maxSize = annotation == null ? 1000 : annotation.maxSize();
+		long ttl = annotation == null ? 0 : annotation.ttl();
+		Class<?> policyClass = annotation == null ? LruEvictionPolicy.class : annotation.eviction();
+
+		if (!StringUtil.isNull(policyName)) {
+			policyName = policyName.trim();
+
+			if ("NONE".equalsIgnoreCase(policyName)) {
+				return Optional.empty();
+			} else if ("LRU".equalsIgnoreCase(policyName)) {
+				policyClass = LruEvictionPolicy.class;
+			} else if ("LFU".equalsIgnoreCase(policyName)) {
+				policyClass = LfuEvictionPolicy.class;
+			} else {
+				try {
+					policyClass = Class.forName(policyName);
+				} catch (ClassNotFoundException e) {
+					throw new DAOException("找不到缓存淘汰策略：" + policyName);
+				}
+			}
+		}
+
+		if (StringUtil.isInteger(properties.getProperty(prefix + "cacheSize"))) {
+			maxSize = Long.parseLong(properties.getProperty(prefix + "cacheSize").trim());
+		}
+
+		if (StringUtil.isInteger(properties.getProperty(prefix + "cacheTTL"))) {
+			ttl = Long.parseLong(properties.getProperty(prefix + "cacheTTL").trim());
+		}
+
+		IEvictionPolicy<List<Object>> policy = null;
+		try {
+			policy = (IEvictionPolicy<List<Object>>) policyClass.newInstance();
+		} catch (Exception e) {
+			throw new DAOException("无法创建缓存淘汰策略，原始信息：" + e.getMessage());
+		}
+
+		return Optional.of(new BoundedCache<>(maxSize, ttl, policy));
+	}
+
+	/**
+	 * 将主键值转换为可比较的键；整数统一为Long，以免同一主键因类型不同（如Integer/Long）而不能命中
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public static List<Object> toKey(Object[] key) {
+
+		List<Object> values = new ArrayList<>(key.length);
+
+		for (Object value : key) {
+			if (value instanceof Integer || value instanceof Long || value instanceof Short
+					|| value instanceof Byte) {
+				value = ((Number) value).longValue();
+			} else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+				value = ((BigInteger) value).longValue();
+			} else if (value instanceof BigDecimal) {
+				try {
+					value = ((BigDecimal) value).longValueExact();
+				} catch (ArithmeticException e) {
+				}
+			}
+
+			values.add(value);
+		}
+
+		return values;
+	}
+
+	/**
+	 * 缓存的实体行数据
+	 */
+	public static class CachedEntity {
+
+		// 结果集的列名（全大写）
+		public final String[] columnLabels;
+		// 行数据，顺序与列名一致
+		public final Object[] row;
+
+		CachedEntity(String[] columnLabels, Object[] row) {
+			this.columnLabels = columnLabels;
+			this.row = row;
+		}
+
+		@Override
+		public String toString() {
+			return "CachedEntity " + Arrays.toString(row);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.gridsofts.halo.itf.IEvictionPolicy;
+
+/**
+ * 最不经常使用（LFU）淘汰策略；访问次数相同时，淘汰最早进入该次数的键
+ * 
+ * @author Lei
+ */
+public class LfuEvictionPolicy<K> implements IEvictionPolicy<K> {
+
+	private final Map<K, Integer> frequencies = new HashMap<>();
+
+	// 按访问次数分组的键
+	private final TreeMap<Integer, LinkedHashSet<K>> buckets = new TreeMap<>();
+
+	@Override
+	public void onInsert(K key) {
+		onRemove(key);
+
+		frequencies.put(key, 1);
+		buckets.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(key);
+	}
+
+	@Override
+	public void onAccess(K key) {
+
+		Integer frequency = frequencies.get(key);
+		if (frequency == null) {
+			return;
+		}
+
+		unlink(key, frequency);
+
+		frequencies.put(key, frequency + 1);
+		buckets.computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>()).add(key);
+	}
+
+	@Override
+	public void onRemove(K key) {
+
+		Integer frequency = frequencies.remove(key);
+		if (frequency != null) {
+			unlink(key, frequency);
+		}
+	}
+
+	@Override
+	public K selectVictim() {
+
+		Map.Entry<Integer, LinkedHashSet<K>> lowest = buckets.firstEntry();
+
+		return lowest == null ? null : lowest.getValue().iterator().next();
+	}
+
+	private void unlink(K key, Integer frequency) {
+
+		LinkedHashSet<K> bucket = buckets.get(frequency);
+		if (bucket != null) {
+			bucket.remove(key);
+
+			if (bucket.isEmpty()) {
+				buckets.remove(frequency);
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.gridsofts.halo.itf.IEvictionPolicy;
+
+/**
+ * 最近最少使用（LRU）淘汰策略
+ * 
+ * @author Lei
+ */
+public class LruEvictionPolicy<K> implements IEvictionPolicy<K> {
+
+	// 按访问顺序排列，最久未访问的在前
+	private final LinkedHashSet<K> order = new LinkedHashSet<>();
+
+	@Override
+	public void onInsert(K key) {
+		order.remove(key);
+		order.add(key);
+	}
+
+	@Override
+	public void onAccess(K key) {
+		if (order.remove(key)) {
+			order.add(key);
+		}
+	}
+
+	@Override
+	public void onRemove(K key) {
+		order.remove(key);
+	}
+
+	@Override
+	public K selectVictim() {
+		Iterator<K> it = order.iterator();
+		return it.hasNext() ? it.next() : null;
+	}
+}
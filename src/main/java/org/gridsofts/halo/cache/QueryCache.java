@@ -0,0 +1,315 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 查询结果缓存；按“方言SQL + 参数值 + 目标类 + 分页窗口”缓存查询到的行数据，命中时按行数据重新构造Bean。<br>
+ * 每个表维护一个版本号，表被修改时版本号加一；缓存条目记录查询开始前各相关表的版本号，读取时版本不一致即视为失效。<br>
+ * 因此使缓存失效的代价与缓存的条目数无关，且查询期间发生的修改也能使该查询的结果失效。<br>
+ * <br>
+ * 
+ * 缓存容量按估算的内存占用（字节）限制，超出时淘汰最近最少使用的条目。
+ * 
+ * @author Lei
+ */
+public class QueryCache {
+
+	// 最大内存占用（字节）；0表示不缓存
+	private final long maxWeight;
+
+	private final BoundedCache<QueryKey, CachedResult> cache;
+
+	// 各表的版本号（表名全大写）
+	private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+	// 全局版本号；无法确定被修改的表时加一，使全部条目失效
+	private final AtomicLong globalVersion = new AtomicLong();
+
+	/**
+	 * @param maxWeight
+	 *            最大内存占用（估算的字节数）；0表示不缓存
+	 * @param ttl
+	 *            条目的存活时间（毫秒）；0表示不过期
+	 */
+	public QueryCache(long maxWeight, long ttl) {
+		this.maxWeight = maxWeight;
+		this.cache = maxWeight > 0
+				? new BoundedCache<>(maxWeight, ttl, new LruEvictionPolicy<>(), CachedResult::getWeight) : null;
+	}
+
+	/**
+	 * @return 是否开启了查询缓存
+	 */
+	public boolean isEnabled() {
+		return cache != null;
+	}
+
+	/**
+	 * 在执行查询之前记录相关表的版本号
+	 * 
+	 * @param tables
+	 *            查询读取的表（全大写）
+	 * @return
+	 */
+	public Snapshot snapshot(Collection<String> tables) {
+
+		String[] tableNames = tables.toArray(new String[0]);
+		long[] versions = new long[tableNames.length];
+
+		long global = globalVersion.get();
+		for (int i = 0; i < tableNames.length; i++) {
+			versions[i] = getVersion(tableNames[i]).get();
+		}
+
+		return new Snapshot(tableNames, versions, global);
+	}
+
+	/**
+	 * 获取缓存的查询结果
+	 * 
+	 * @param key
+	 * @return 未缓存或已失效时返回null
+	 */
+	public CachedResult get(QueryKey key) {
+
+		if (cache == null) {
+			return null;
+		}
+
+		return cache.get(key, result -> isCurrent(result.snapshot));
+	}
+
+	/**
+	 * 缓存查询结果
+	 * 
+	 * @param key
+	 * @param snapshot
+	 *            执行查询之前记录的版本号
+	 * @param columnLabels
+	 *            结果集的列名（全大写）
+	 * @param rows
+	 *            行数据
+	 */
+	public void put(QueryKey key, Snapshot snapshot, String[] columnLabels, List<Object[]> rows) {
+
+		// 查询期间相关表已被修改，结果可能已经过时
+		if (cache == null || !isCurrent(snapshot)) {
+			return;
+		}
+
+		cache.put(key, new CachedResult(snapshot, columnLabels, rows, key.getWeight()));
+	}
+
+	/**
+	 * 使读取了给定表的查询结果失效
+	 * 
+	 * @param tables
+	 *            表名（全大写）
+	 */
+	public void invalidateTables(Collection<String> tables) {
+		for (String table : tables) {
+			getVersion(table).incrementAndGet();
+		}
+	}
+
+	/**
+	 * 使全部查询结果失效
+	 */
+	public void invalidateAll() {
+		globalVersion.incrementAndGet();
+	}
+
+	/**
+	 * @return 统计信息的快照；未开启缓存时各项均为0
+	 */
+	public CacheStats getStats() {
+		return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0, 0) : cache.getStats();
+	}
+
+	/**
+	 * @return 最大内存占用（估算的字节数）
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	private AtomicLong getVersion(String table) {
+
+		AtomicLong version = tableVersions.get(table);
+
+		if (version == null) {
+			version = tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+		}
+
+		return version;
+	}
+
+	private boolean isCurrent(Snapshot snapshot) {
+
+		if (snapshot.globalVersion != globalVersion.get()) {
+			return false;
+		}
+
+		for (int i = 0; i < snapshot.tables.length; i++) {
+			if (snapshot.versions[i] != getVersion(snapshot.tables[i]).get()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 估算对象占用的内存（字节）
+	 * 
+	 * @param value
+	 * @return
+	 */
+	static long estimateWeight(Object value) {
+
+		if (value == null) {
+			return 4;
+		} else if (value instanceof String) {
+			return 40 + 2L * ((String) value).length();
+		} else if (value instanceof byte[]) {
+			return 16 + ((byte[]) value).length;
+		} else if (value instanceof char[]) {
+			return 16 + 2L * ((char[]) value).length;
+		} else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+			return 24;
+		}
+
+		return 32;
+	}
+
+	/**
+	 * 查询开始前各相关表的版本号
+	 */
+	public static class Snapshot {
+
+		private final String[] tables;
+		private final long[] versions;
+		private final long globalVersion;
+
+		Snapshot(String[] tables, long[] versions, long globalVersion) {
+			this.tables = tables;
+			this.versions = versions;
+			this.globalVersion = globalVersion;
+		}
+	}
+
+	/**
+	 * 查询缓存的键
+	 */
+	public static class QueryKey {
+
+		private final String sql;
+		private final List<Object> params;
+		private final Class<?> type;
+		private final int start;
+		private final int limit;
+
+		private final int hash;
+
+		/**
+		 * @param sql
+		 *            方言处理后的SQL
+		 * @param params
+		 *            参数值
+		 * @param type
+		 *            目标类
+		 * @param start
+		 *            分页起始位置
+		 * @param limit
+		 *            分页大小
+		 */
+		public QueryKey(String sql, Object[] params, Class<?> type, int start, int limit) {
+			this.sql = sql;
+			this.params = params == null ? Collections.emptyList() : Arrays.asList(params.clone());
+			this.type = type;
+			this.start = start;
+			this.limit = limit;
+
+			this.hash = Objects.hash(sql, this.params, type, start, limit);
+		}
+
+		long getWeight() {
+
+			long weight = 64 + estimateWeight(sql);
+			for (Object param : params) {
+				weight += estimateWeight(param);
+			}
+
+			return weight;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof QueryKey)) {
+				return false;
+			}
+
+			QueryKey other = (QueryKey) obj;
+
+			return hash == other.hash && start == other.start && limit == other.limit && type == other.type
+					&& sql.equals(other.sql) && params.equals(other.params);
+		}
+	}
+
+	/**
+	 * 缓存的查询结果
+	 */
+	public static class CachedResult {
+
+		private final Snapshot snapshot;
+
+		// 结果集的列名（全大写）
+		public final String[] columnLabels;
+		// 行数据，顺序与列名一致
+		public final List<Object[]> rows;
+
+		private final long weight;
+
+		CachedResult(Snapshot snapshot, String[] columnLabels, List<Object[]> rows, long keyWeight) {
+			this.snapshot = snapshot;
+			this.columnLabels = columnLabels;
+			this.rows = Collections.unmodifiableList(rows);
+
+			long weight = keyWeight + 64 + 16L * columnLabels.length;
+			for (Object[] row : rows) {
+				weight += 16 + 4L * row.length;
+
+				for (Object value : row) {
+					weight += estimateWeight(value);
+				}
+			}
+
+			this.weight = weight;
+		}
+
+		long getWeight() {
+			return weight;
+		}
+	}
+}
@@ -0,0 +1,320 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预编译语句缓存；按连接分别维护一个以SQL文本为键的LRU缓存，超出容量时关闭最久未使用的语句。<br>
+ * 语句借出期间从缓存中移除，因此同一连接上嵌套执行相同的SQL时，会另外预编译一个语句，互不干扰。<br>
+ * <br>
+ * 
+ * 注意：<br>
+ * 连接关闭后，其缓存的语句将在下次为新连接建立缓存时一并清理。<br>
+ * 缓存按物理连接（unwrap(Connection.class)）区分，因此连接池每次借出不同的包装对象时，同一物理连接上的语句仍可复用。<br>
+ * 只有在连接被复用时（如使用连接池）缓存才有效；IConnectionFactory每次新建连接时，语句无法被再次使用，此时应将容量设为0。<br>
+ * 
+ * @author Lei
+ */
+public class StatementCache {
+
+	// 每个连接最多缓存的语句数；0表示不缓存
+	private final int maxSize;
+
+	private final Map<Connection, Statements> caches = new ConcurrentHashMap<>();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	public StatementCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 获取预编译语句，优先从缓存中取得；使用完毕后必须调用{@link #release(Connection, Statement)}
+	 * 
+	 * @param conn
+	 * @param sql
+	 * @return
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+		return prepare(conn, sql, c -> c.prepareStatement(sql));
+	}
+
+	/**
+	 * 获取返回指定列自动生成值的预编译语句
+	 * 
+	 * @param conn
+	 * @param sql
+	 * @param columnNames
+	 *            自动生成值的列名
+	 * @return
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepare(Connection conn, String sql, String[] columnNames) throws SQLException {
+		return prepare(conn, "K:" + String.join(",", columnNames) + ":" + sql,
+				c -> c.prepareStatement(sql, columnNames));
+	}
+
+	/**
+	 * 获取指定是否返回自动生成的主键的预编译语句
+	 * 
+	 * @param conn
+	 * @param sql
+	 * @param autoGeneratedKeys
+	 *            Statement.RETURN_GENERATED_KEYS或Statement.NO_GENERATED_KEYS
+	 * @return
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+		return prepare(conn, "G" + autoGeneratedKeys + ":" + sql, c -> c.prepareStatement(sql, autoGeneratedKeys));
+	}
+
+	private PreparedStatement prepare(Connection conn, String key, Preparer preparer) throws SQLException {
+
+		if (maxSize <= 0) {
+			missCount.increment();
+			return preparer.prepare(conn);
+		}
+
+		Connection physical = unwrap(conn);
+
+		Statements statements = caches.get(physical);
+		if (statements == null) {
+			purgeClosedConnections();
+
+			statements = caches.computeIfAbsent(physical, c -> new Statements());
+		}
+
+		PreparedStatement stat = statements.take(key);
+
+		if (stat != null) {
+			hitCount.increment();
+		} else {
+			missCount.increment();
+			stat = preparer.prepare(conn);
+		}
+
+		statements.lend(stat, key);
+
+		return stat;
+	}
+
+	/**
+	 * 归还语句；语句被清空参数后放回缓存，无法放回时直接关闭
+	 * 
+	 * @param conn
+	 * @param stat
+	 */
+	public void release(Connection conn, Statement stat) {
+
+		if (stat == null) {
+			return;
+		}
+
+		Statements statements = conn == null ? null : caches.get(unwrap(conn));
+
+		if (statements == null || !statements.giveBack(stat)) {
+			closeQuietly(stat);
+		}
+	}
+
+	/**
+	 * 关闭并移除全部缓存的语句；借出中的语句在归还时关闭
+	 */
+	public void clear() {
+
+		Iterator<Statements> it = caches.values().iterator();
+		while (it.hasNext()) {
+			Statements statements = it.next();
+			it.remove();
+
+			statements.closeAll();
+		}
+	}
+
+	/**
+	 * 清理已关闭的连接所对应的缓存
+	 */
+	private void purgeClosedConnections() {
+
+		Iterator<Map.Entry<Connection, Statements>> it = caches.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Connection, Statements> entry = it.next();
+
+			boolean closed = true;
+			try {
+				closed = entry.getKey().isClosed();
+			} catch (SQLException e) {
+			}
+
+			if (closed) {
+				it.remove();
+				entry.getValue().closeAll();
+			}
+		}
+	}
+
+	/**
+	 * 获取连接包装（如连接池借出的代理）之下的物理连接；无法取得时返回连接本身
+	 * 
+	 * @param conn
+	 * @return
+	 */
+	private static Connection unwrap(Connection conn) {
+		try {
+			Connection physical = conn.unwrap(Connection.class);
+
+			return physical == null ? conn : physical;
+		} catch (Throwable e) {
+			return conn;
+		}
+	}
+
+	private static void closeQuietly(Statement stat) {
+		try {
+			stat.close();
+		} catch (SQLException e) {
+		}
+	}
+
+	/**
+	 * @return 命中次数
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return 未命中（新预编译）次数
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * @return 因超出容量而关闭的语句数
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 * @return 当前缓存的语句数（不含借出中的语句）
+	 */
+	public int size() {
+		return caches.values().stream().mapToInt(Statements::size).sum();
+	}
+
+	/**
+	 * @return 每个连接最多缓存的语句数
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	@FunctionalInterface
+	private interface Preparer {
+		PreparedStatement prepare(Connection conn) throws SQLException;
+	}
+
+	/**
+	 * 单个连接上的语句缓存；连接同一时刻只被一个线程使用，加锁仅为保证跨线程的可见性
+	 */
+	private class Statements {
+
+		// 空闲的语句，按访问顺序排列
+		private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<String, PreparedStatement>(16,
+				0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+
+				if (size() > maxSize) {
+					evictionCount.increment();
+					closeQuietly(eldest.getValue());
+
+					return true;
+				}
+
+				return false;
+			}
+		};
+
+		// 借出中的语句及其键
+		private final IdentityHashMap<Statement, String> borrowed = new IdentityHashMap<>();
+
+		synchronized PreparedStatement take(String key) {
+
+			PreparedStatement stat = idle.remove(key);
+
+			try {
+				if (stat != null && stat.isClosed()) {
+					stat = null;
+				}
+			} catch (SQLException e) {
+				stat = null;
+			}
+
+			return stat;
+		}
+
+		synchronized void lend(PreparedStatement stat, String key) {
+			borrowed.put(stat, key);
+		}
+
+		synchronized boolean giveBack(Statement stat) {
+
+			String key = borrowed.remove(stat);
+
+			// 不是从本缓存借出的语句，或相同的语句已被放回（嵌套执行时）
+			if (key == null || idle.containsKey(key)) {
+				return false;
+			}
+
+			try {
+				if (stat.isClosed()) {
+					return true;
+				}
+
+				PreparedStatement prepared = (PreparedStatement) stat;
+				prepared.clearParameters();
+				prepared.clearBatch();
+			} catch (SQLException e) {
+				return false;
+			}
+
+			idle.put(key, (PreparedStatement) stat);
+
+			return true;
+		}
+
+		synchronized void closeAll() {
+
+			for (PreparedStatement stat : idle.values()) {
+				closeQuietly(stat);
+			}
+
+			idle.clear();
+		}
+
+		synchronized int size() {
+			return idle.size();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.gridsofts.halo.MetaInfo;
+
+/**
+ * H2方言（2.x）。<br>
+ * 分页使用LIMIT/OFFSET；“插入或更新”使用标准的MERGE INTO ... USING；插入时以SELECT * FROM FINAL TABLE (INSERT ...)返回所插入的行。
+ * 
+ * @author Lei
+ */
+public class H2Dialect extends PostgreSQLDialect {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String getUpsertSQL(List<Object> returnValues, MetaInfo metaInfo, String tableName, Object bean) {
+		// H2无法推断“SELECT ? AS col”中参数的类型，因此以VALUES行构造源数据
+		String source = "(VALUES (" + metaInfo.columnNames.stream().map(c -> "?").collect(Collectors.joining(", "))
+				+ ")) HALO_S(" + String.join(", ", metaInfo.columnNames) + ")";
+
+		return UpsertSupport.getMergeSQL(returnValues, metaInfo, tableName, bean, source);
+	}
+
+	@Override
+	public String getReturningSQL(String insertSQL, MetaInfo metaInfo) {
+		return "SELECT * FROM FINAL TABLE (" + insertSQL + ")";
+	}
+}
@@ -7,11 +7,12 @@ package org.gridsofts.halo.dialect;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 import org.gridsofts.halo.MetaInfo;
+import org.gridsofts.halo.SqlTemplate;
 import org.gridsofts.halo.itf.IDialect;
 import org.gridsofts.halo.util.BeanUtil;
 
@@ -30,85 +31,107 @@ public class MysqlDialect implements Serializable, IDialect {
 	@Override
 	public String getInsertSQL(List<Object> returnValues, List<String> keyColumnNames,
 			MetaInfo metaInfo, String tableName, Object... beans) {
-		
-		StringBuffer sqlBuffer = new StringBuffer();
-
-		Field[] fields = metaInfo.clazz.getDeclaredFields();
 
-		if (fields == null || fields.length == 0 || beans == null || beans.length == 0) {
+		if (beans == null || beans.length == 0) {
 			throw new NullPointerException();
 		}
 
-		// 取出需要处理的字段
-		List<Field> validFields = new ArrayList<>();
-		for (int i = 0; i < fields.length; i++) {
-			String colName = fields[i].getName();
+		SqlTemplate template = metaInfo.getSqlTemplate(tableName);
 
-			// 如果此字段不是数据表中的列，则跳过
-			if (BeanUtil.isTransient(fields[i])) {
-				continue;
-			}
+		// 主键列
+		// 如果需要自动生成主键，则跳过
+		keyColumnNames.addAll(metaInfo.generatedKeyColumns);
 
-			// 主键列
-			// 如果需要自动生成主键，则跳过
-			if (BeanUtil.isPrimaryField(metaInfo.tableMetaInfo, colName)
-					&& metaInfo.tableMetaInfo.autoGenerateKeys()) {
-				
-				keyColumnNames.add(BeanUtil.getColumnName(fields[i]).toUpperCase());
-
-				continue;
+		// 保存列值
+		for (Object bean : beans) {
+			for (Field field : metaInfo.insertFields) {
+				returnValues.add(BeanUtil.getFieldValue(bean, field.getName()));
 			}
+		}
 
-			validFields.add(fields[i]);
+		// 单行插入直接使用预编译的模板
+		if (beans.length == 1) {
+			return template.insert;
 		}
 
+		StringBuffer sqlBuffer = new StringBuffer();
+
 		// 拼接插入语句
 		sqlBuffer.append("INSERT INTO " + tableName + " (");
+		sqlBuffer.append(String.join(", ", template.insertColumns));
+		sqlBuffer.append(") VALUES ");
+
+		// 拼接插入值
+		String rowValues = template.insertColumns.stream().map(c -> "?")
+				.collect(Collectors.joining(", ", " ( ", " ) "));
 
-		for (int i = 0, fldCount = validFields.size(); i < fldCount; i++) {
-			Field field = validFields.get(i);
+		for (int i = 0; i < beans.length; i++) {
 
-			sqlBuffer.append(BeanUtil.getColumnName(field).toUpperCase());
+			sqlBuffer.append(rowValues);
 
-			if (i < fldCount - 1) {
+			if (i < beans.length - 1) {
 				sqlBuffer.append(", ");
 			}
 		}
 
-		sqlBuffer.append(") VALUES ");
+		return sqlBuffer.toString();
+	}
 
-		// 拼接插入值
-		for (int i = 0; i < beans.length; i++) {
+	@Override
+	public List<Field> getInsertFields(MetaInfo metaInfo, Object bean) {
+		return metaInfo.insertFields;
+	}
+
+	@Override
+	public String getUpsertSQL(List<Object> returnValues, MetaInfo metaInfo, String tableName, Object bean) {
 
-			sqlBuffer.append(" ( ");
+		List<String> updateColumns = UpsertSupport.getModifiableColumns(metaInfo);
 
-			for (int j = 0, fldCount = validFields.size(); j < fldCount; j++) {
-				Field field = validFields.get(j);
+		// 没有可修改的列时，以主键赋值为自身，相当于忽略
+		String updates = updateColumns.isEmpty()
+				? metaInfo.primaryKeyColumns.get(0) + " = " + metaInfo.primaryKeyColumns.get(0)
+				: updateColumns.stream().map(c -> {
+					return c + " = VALUES(" + c + ")";
+				}).collect(Collectors.joining(", "));
 
-				sqlBuffer.append("?");
+		return getUpsertInsert(returnValues, metaInfo, tableName, bean) + " ON DUPLICATE KEY UPDATE " + updates;
+	}
 
-				// 保存列值
-				returnValues.add(BeanUtil.getFieldValue(beans[i], field.getName()));
+	/**
+	 * 拼接插入全部列（含主键）的单行插入语句，并保存列值；供“插入或更新”语句使用
+	 * 
+	 * @param returnValues
+	 * @param metaInfo
+	 * @param tableName
+	 * @param bean
+	 * @return
+	 */
+	protected String getUpsertInsert(List<Object> returnValues, MetaInfo metaInfo, String tableName, Object bean) {
+
+		UpsertSupport.addValues(returnValues, metaInfo, bean);
+
+		return "INSERT INTO " + tableName + " (" + String.join(", ", metaInfo.columnNames) + ") VALUES ("
+				+ metaInfo.columnNames.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+	}
 
-				if (j < fldCount - 1) {
-					sqlBuffer.append(", ");
-				}
-			}
+	@Override
+	public synchronized String getPageSQL(String sql, int start, int limit) {
 
-			sqlBuffer.append(" ) ");
+		String pageSql = sql;
 
-			if (i < beans.length - 1) {
-				sqlBuffer.append(", ");
-			}
+		if (start < 0) {
+			start = 0;
 		}
 
-		sqlBuffer.append("; ");
+		if (limit > 0) {
+			pageSql += " LIMIT " + start + ", " + limit;
+		}
 
-		return sqlBuffer.toString();
+		return pageSql;
 	}
 
 	@Override
-	public synchronized String getPageSQL(String sql, int start, int limit) {
+	public String getPageSQL(String sql, int start, int limit, List<Object> params) {
 
 		String pageSql = sql;
 
@@ -117,7 +140,10 @@ public class MysqlDialect implements Serializable, IDialect {
 		}
 
 		if (limit > 0) {
-			pageSql += " LIMIT " + start + ", " + limit;
+			pageSql += " LIMIT ?, ?";
+
+			params.add(start);
+			params.add(limit);
 		}
 
 		return pageSql;
@@ -0,0 +1,55 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import java.util.List;
+
+/**
+ * Oracle 12c及以上版本的方言。<br>
+ * 分页使用OFFSET/FETCH子句，首页也带OFFSET 0，使各页语句一致；limit不大于0时只跳过start行，不限制行数。<br>
+ * 插入语句与OracleDialect相同，多行插入由batchSave以JDBC批处理执行。
+ * 
+ * @author Lei
+ */
+public class Oracle12cDialect extends OracleDialect {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String getPageSQL(String sql, int start, int limit) {
+
+		String pageSql = sql;
+
+		if (SelectHead.matcher(sql).find() && (start > 0 || limit > 0)) {
+
+			pageSql += " OFFSET " + Math.max(start, 0) + " ROWS";
+
+			if (limit > 0) {
+				pageSql += " FETCH NEXT " + limit + " ROWS ONLY";
+			}
+		}
+
+		return pageSql;
+	}
+
+	@Override
+	public String getPageSQL(String sql, int start, int limit, List<Object> params) {
+
+		String pageSql = sql;
+
+		if (SelectHead.matcher(sql).find() && (start > 0 || limit > 0)) {
+
+			pageSql += " OFFSET ? ROWS";
+			params.add(Math.max(start, 0));
+
+			if (limit > 0) {
+				pageSql += " FETCH NEXT ? ROWS ONLY";
+				params.add(limit);
+			}
+		}
+
+		return pageSql;
+	}
+}
@@ -7,9 +7,9 @@ package org.gridsofts.halo.dialect;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 import org.gridsofts.halo.MetaInfo;
 import org.gridsofts.halo.exception.DAOException;
@@ -38,18 +38,15 @@ public class OracleDialect implements Serializable, IDialect {
 	 * @param bean
 	 * @return
 	 */
-	private String getPkPolicy(Object bean) {
-		return property.getProperty(bean.getClass().getName() + ".PKPolicy");
+	protected String getPkPolicy(Object bean) {
+		return property == null ? null : property.getProperty(bean.getClass().getName() + ".PKPolicy");
 	}
 
 	@Override
 	public String getInsertSQL(List<Object> returnValues, List<String> keyColumnNames,
 			MetaInfo metaInfo, String tableName, Object... beans) {
 
-		StringBuffer sqlBuffer = new StringBuffer();
-
-		Field[] fields = metaInfo.clazz.getDeclaredFields();
-		if (fields == null || fields.length == 0 || beans == null || beans.length == 0) {
+		if (beans == null || beans.length == 0) {
 			throw new NullPointerException();
 		}
 
@@ -57,99 +54,153 @@ public class OracleDialect implements Serializable, IDialect {
 			throw new DAOException("Oracle暂不支持批量插入操作");
 		}
 
-		// 取出需要处理的字段
-		List<Field> validFields = new ArrayList<>();
-		for (int i = 0; i < fields.length; i++) {
-			String colName = fields[i].getName();
+		// 主键列
+		// 如果需要自动生成主键，则由主键策略（序列）生成
+		keyColumnNames.addAll(metaInfo.generatedKeyColumns);
 
-			// 如果此字段不是数据表中的列，则跳过
-			if (BeanUtil.isTransient(fields[i])) {
-				continue;
-			}
+		return "INSERT INTO " + tableName + " (" + getInsertColumns(metaInfo) + ") VALUES "
+				+ getInsertValues(returnValues, metaInfo, beans[0]);
+	}
 
-			// 主键列
-			// 如果需要自动生成主键，则跳过
-			if (BeanUtil.isPrimaryField(metaInfo.tableMetaInfo, colName)
-					&& metaInfo.tableMetaInfo.autoGenerateKeys()) {
+	@Override
+	public List<Field> getInsertFields(MetaInfo metaInfo, Object bean) {
 
-				keyColumnNames.add(BeanUtil.getColumnName(fields[i]).toUpperCase());
-			}
+		// 由主键策略（序列）生成的主键不占用占位符
+		return metaInfo.fields.stream().filter(field -> {
+			return !isSequenceKey(metaInfo, field.getName(), bean);
+		}).collect(Collectors.toList());
+	}
 
-			validFields.add(fields[i]);
-		}
+	/**
+	 * 拼接插入语句的列名
+	 * 
+	 * @param metaInfo
+	 * @return
+	 */
+	protected String getInsertColumns(MetaInfo metaInfo) {
 
-		// 拼接插入语句
-		sqlBuffer.append("INSERT INTO " + tableName + " (");
+		StringBuffer sqlBuffer = new StringBuffer();
 
-		for (int i = 0, fldCount = validFields.size(); i < fldCount; i++) {
-			Field field = validFields.get(i);
+		// 所有数据列
+		List<String> columnNames = metaInfo.columnNames;
 
-			sqlBuffer.append(BeanUtil.getColumnName(field).toUpperCase());
+		for (int i = 0, fldCount = columnNames.size(); i < fldCount; i++) {
+			sqlBuffer.append(columnNames.get(i).toUpperCase());
 
 			if (i < fldCount - 1) {
 				sqlBuffer.append(", ");
 			}
 		}
 
-		sqlBuffer.append(") VALUES ");
+		return sqlBuffer.toString();
+	}
+
+	/**
+	 * 拼接单行的插入值，并保存列值
+	 * 
+	 * @param returnValues
+	 * @param metaInfo
+	 * @param bean
+	 * @return
+	 */
+	protected String getInsertValues(List<Object> returnValues, MetaInfo metaInfo, Object bean) {
 
-		// 拼接插入值
-		for (int i = 0; i < beans.length; i++) {
+		StringBuffer sqlBuffer = new StringBuffer();
 
-			sqlBuffer.append(" ( ");
+		List<Field> validFields = metaInfo.fields;
 
-			for (int j = 0, fldCount = validFields.size(); j < fldCount; j++) {
-				Field field = validFields.get(j);
-				String colName = field.getName();
+		sqlBuffer.append(" ( ");
 
-				// 主键列
-				// 如果需要自动生成主键，则加入序列
-				if (BeanUtil.isPrimaryField(metaInfo.tableMetaInfo, colName)
-						&& metaInfo.tableMetaInfo.autoGenerateKeys() && property != null
-						&& !StringUtil.isNull(getPkPolicy(beans[i]))) {
+		for (int j = 0, fldCount = validFields.size(); j < fldCount; j++) {
+			Field field = validFields.get(j);
+			String colName = field.getName();
 
-					sqlBuffer.append(getPkPolicy(beans[i]));
-				} else {
+			// 主键列
+			// 如果需要自动生成主键，则加入序列
+			if (isSequenceKey(metaInfo, colName, bean)) {
 
-					sqlBuffer.append("?");
+				sqlBuffer.append(getPkPolicy(bean));
+			} else {
 
-					// 保存列值
-					returnValues.add(BeanUtil.getFieldValue(beans[i], colName));
-				}
+				sqlBuffer.append("?");
 
-				if (j < fldCount - 1) {
-					sqlBuffer.append(", ");
-				}
+				// 保存列值
+				returnValues.add(BeanUtil.getFieldValue(bean, colName));
 			}
 
-			sqlBuffer.append(" ) ");
-
-			if (i < beans.length - 1) {
+			if (j < fldCount - 1) {
 				sqlBuffer.append(", ");
 			}
 		}
 
+		sqlBuffer.append(" ) ");
+
 		return sqlBuffer.toString();
 	}
 
+	/**
+	 * 判断给定字段是否由主键策略（序列）生成
+	 * 
+	 * @param metaInfo
+	 * @param fieldName
+	 * @param bean
+	 * @return
+	 */
+	protected boolean isSequenceKey(MetaInfo metaInfo, String fieldName, Object bean) {
+		return BeanUtil.isPrimaryField(metaInfo.tableMetaInfo, fieldName) && metaInfo.tableMetaInfo.autoGenerateKeys()
+				&& !StringUtil.isNull(getPkPolicy(bean));
+	}
+
+	@Override
+	public String getUpsertSQL(List<Object> returnValues, MetaInfo metaInfo, String tableName, Object bean) {
+		String source = metaInfo.columnNames.stream().map(c -> {
+			return "? AS " + c;
+		}).collect(Collectors.joining(", ", "(SELECT ", " FROM DUAL) HALO_S"));
+
+		return UpsertSupport.getMergeSQL(returnValues, metaInfo, tableName, bean, source);
+	}
+
 	@Override
 	public String getPageSQL(String sql, int start, int limit) {
 		String pageSql = sql;
 
-		if (SelectHead.matcher(sql).find() && start != -1 && limit != -1) {
+		if (SelectHead.matcher(sql).find() && (start > 0 || limit > 0)) {
 
-			String rownoName = "R_" + System.currentTimeMillis();
-			String tableName = "T_" + System.currentTimeMillis();
+			// 别名固定不变，以便数据库缓存语句
+			String rownoName = "HALO_R";
+			String tableName = "HALO_T";
 
 			pageSql = "SELECT * FROM (SELECT ROWNUM AS " + rownoName + ", " + tableName
 					+ ".* FROM (" + sql + " ) " + tableName + ") WHERE 1 = 1 ";
 
-			if (start >= 0) {
+			if (start > 0) {
 				pageSql += " AND " + rownoName + " > " + start;
 			}
 
-			if (limit >= 0) {
-				pageSql += " AND " + rownoName + " <= " + (start + limit);
+			if (limit > 0) {
+				pageSql += " AND " + rownoName + " <= " + (Math.max(start, 0) + limit);
+			}
+		}
+
+		return pageSql;
+	}
+
+	@Override
+	public String getPageSQL(String sql, int start, int limit, List<Object> params) {
+		String pageSql = sql;
+
+		if (SelectHead.matcher(sql).find() && (start > 0 || limit > 0)) {
+
+			pageSql = "SELECT * FROM (SELECT ROWNUM AS HALO_R, HALO_T.* FROM (" + sql
+					+ " ) HALO_T) WHERE 1 = 1 ";
+
+			// 首页也绑定起始位置，使各页语句一致
+			pageSql += " AND HALO_R > ?";
+			params.add(Math.max(start, 0));
+
+			if (limit > 0) {
+				pageSql += " AND HALO_R <= ?";
+				params.add(Math.max(start, 0) + limit);
 			}
 		}
 
@@ -0,0 +1,77 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.gridsofts.halo.MetaInfo;
+
+/**
+ * PostgreSQL方言。<br>
+ * 分页使用LIMIT/OFFSET；“插入或更新”使用INSERT ... ON CONFLICT (主键) DO UPDATE；插入时以RETURNING *返回所插入的行。
+ * 
+ * @author Lei
+ */
+public class PostgreSQLDialect extends MysqlDialect {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String getUpsertSQL(List<Object> returnValues, MetaInfo metaInfo, String tableName, Object bean) {
+
+		List<String> updateColumns = UpsertSupport.getModifiableColumns(metaInfo);
+
+		String conflict = " ON CONFLICT (" + String.join(", ", metaInfo.primaryKeyColumns) + ")";
+
+		if (updateColumns.isEmpty()) {
+			return getUpsertInsert(returnValues, metaInfo, tableName, bean) + conflict + " DO NOTHING";
+		}
+
+		return getUpsertInsert(returnValues, metaInfo, tableName, bean) + conflict + " DO UPDATE SET "
+				+ updateColumns.stream().map(c -> {
+					return c + " = EXCLUDED." + c;
+				}).collect(Collectors.joining(", "));
+	}
+
+	@Override
+	public String getReturningSQL(String insertSQL, MetaInfo metaInfo) {
+		return insertSQL + " RETURNING *";
+	}
+
+	@Override
+	public String getPageSQL(String sql, int start, int limit) {
+
+		String pageSql = sql;
+
+		if (limit > 0) {
+			pageSql += " LIMIT " + limit;
+		}
+
+		if (start > 0) {
+			pageSql += " OFFSET " + start;
+		}
+
+		return pageSql;
+	}
+
+	@Override
+	public String getPageSQL(String sql, int start, int limit, List<Object> params) {
+
+		String pageSql = sql;
+
+		if (limit > 0) {
+			pageSql += " LIMIT ?";
+			params.add(limit);
+		}
+
+		if (start > 0) {
+			pageSql += " OFFSET ?";
+			params.add(start);
+		}
+
+		return pageSql;
+	}
+}
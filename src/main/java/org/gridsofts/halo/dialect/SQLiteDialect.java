@@ -0,0 +1,39 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import java.util.List;
+
+/**
+ * SQLite方言；语法与PostgreSQL相同：“插入或更新”使用ON CONFLICT（3.24及以上），插入时以RETURNING *返回所插入的行（3.35及以上）。<br>
+ * SQLite的OFFSET必须跟在LIMIT之后，因此只指定起始位置时以LIMIT -1表示不限行数。
+ * 
+ * @author Lei
+ */
+public class SQLiteDialect extends PostgreSQLDialect {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String getPageSQL(String sql, int start, int limit) {
+
+		if (limit <= 0 && start > 0) {
+			return sql + " LIMIT -1 OFFSET " + start;
+		}
+
+		return super.getPageSQL(sql, start, limit);
+	}
+
+	@Override
+	public String getPageSQL(String sql, int start, int limit, List<Object> params) {
+
+		if (limit <= 0 && start > 0) {
+			params.add(start);
+			return sql + " LIMIT -1 OFFSET ?";
+		}
+
+		return super.getPageSQL(sql, start, limit, params);
+	}
+}
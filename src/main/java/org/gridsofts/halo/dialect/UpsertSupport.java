@@ -0,0 +1,99 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.gridsofts.halo.MetaInfo;
+import org.gridsofts.halo.util.BeanUtil;
+
+/**
+ * 各方言生成“插入或更新”语句的公共部分
+ * 
+ * @author Lei
+ */
+final class UpsertSupport {
+
+	private UpsertSupport() {
+	}
+
+	/**
+	 * 获取允许修改的列名（非主键，且未标注DontModify）
+	 * 
+	 * @param metaInfo
+	 * @return
+	 */
+	static List<String> getModifiableColumns(MetaInfo metaInfo) {
+
+		List<String> columns = new ArrayList<>();
+
+		for (int i = 0; i < metaInfo.fields.size(); i++) {
+			if (metaInfo.isModifiable(i)) {
+				columns.add(metaInfo.columnNames.get(i));
+			}
+		}
+
+		return columns;
+	}
+
+	/**
+	 * 保存全部列（含主键）的值
+	 * 
+	 * @param returnValues
+	 * @param metaInfo
+	 * @param bean
+	 */
+	static void addValues(List<Object> returnValues, MetaInfo metaInfo, Object bean) {
+		for (Field field : metaInfo.fields) {
+			returnValues.add(BeanUtil.getFieldValue(bean, field.getName()));
+		}
+	}
+
+	/**
+	 * 拼接标准的MERGE语句：MERGE INTO table USING source HALO_S ON (...) WHEN MATCHED THEN UPDATE ...
+	 * WHEN NOT MATCHED THEN INSERT ...
+	 * 
+	 * @param returnValues
+	 * @param metaInfo
+	 * @param tableName
+	 * @param bean
+	 * @param source
+	 *            以HALO_S为别名、按MetaInfo.columnNames顺序提供全部列值（占位符）的源数据
+	 * @return
+	 */
+	static String getMergeSQL(List<Object> returnValues, MetaInfo metaInfo, String tableName, Object bean,
+			String source) {
+
+		addValues(returnValues, metaInfo, bean);
+
+		List<String> updateColumns = getModifiableColumns(metaInfo);
+
+		StringBuffer sqlBuffer = new StringBuffer();
+
+		sqlBuffer.append("MERGE INTO ").append(tableName).append(" USING ").append(source).append(" ON (");
+		sqlBuffer.append(metaInfo.primaryKeyColumns.stream().map(k -> {
+			return tableName + "." + k + " = HALO_S." + k;
+		}).collect(Collectors.joining(" AND ")));
+		sqlBuffer.append(")");
+
+		if (!updateColumns.isEmpty()) {
+			sqlBuffer.append(" WHEN MATCHED THEN UPDATE SET ");
+			sqlBuffer.append(updateColumns.stream().map(c -> {
+				return c + " = HALO_S." + c;
+			}).collect(Collectors.joining(", ")));
+		}
+
+		sqlBuffer.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", metaInfo.columnNames));
+		sqlBuffer.append(") VALUES (").append(metaInfo.columnNames.stream().map(c -> {
+			return "HALO_S." + c;
+		}).collect(Collectors.joining(", "))).append(")");
+
+		return sqlBuffer.toString();
+	}
+}
@@ -5,6 +5,7 @@
  */
 package org.gridsofts.halo.itf;
 
+import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Properties;
 import java.util.regex.Pattern;
@@ -22,5 +23,63 @@ public interface IDialect {
 	public String getInsertSQL(List<Object> returnValues, List<String> keyColumnNames,
 			MetaInfo metaInfo, String tableName, Object... beans);
 
+	/**
+	 * 获取单行插入语句中各占位符对应的字段，顺序与getInsertSQL保存的列值一致；
+	 * 批量保存时据此逐行取值，不必为每个Bean重新生成插入语句。<br>
+	 * 单行插入语句只取决于Bean的类型（如按类型配置的主键序列）。默认实现返回null，表示无法确定，此时由DAO为每个Bean生成插入语句。
+	 * 
+	 * @param metaInfo
+	 * @param bean
+	 * @return 无法确定时返回null
+	 */
+	public default List<Field> getInsertFields(MetaInfo metaInfo, Object bean) {
+		return null;
+	}
+
 	public String getPageSQL(String sql, int start, int limit);
+
+	/**
+	 * 生成分页SQL，分页位置以占位符表示，以便不同页使用同一语句；
+	 * 对应的绑定值依次追加到params的末尾（即原SQL的参数之后）。<br>
+	 * 默认实现以字面值拼接分页位置，不追加绑定值。
+	 * 
+	 * @param sql
+	 * @param start
+	 * @param limit
+	 * @param params
+	 *            原SQL的参数
+	 * @return
+	 */
+	public default String getPageSQL(String sql, int start, int limit, List<Object> params) {
+		return getPageSQL(sql, start, limit);
+	}
+
+	/**
+	 * 生成单条语句的“插入或更新”SQL：按主键判断记录是否存在，存在时更新允许修改的列，否则插入全部列（含主键）。<br>
+	 * 列值依次加入returnValues。默认实现不支持，返回null，此时由DAO先查询再插入或更新。
+	 * 
+	 * @param returnValues
+	 * @param metaInfo
+	 * @param tableName
+	 * @param bean
+	 * @return 不支持时返回null
+	 */
+	public default String getUpsertSQL(List<Object> returnValues, MetaInfo metaInfo, String tableName,
+			Object bean) {
+		return null;
+	}
+
+	/**
+	 * 将插入语句改写为返回所插入行（全部列）的查询语句，如“INSERT ... RETURNING *”，
+	 * 以便在同一次往返中取得自动生成的主键及数据库生成的列值。<br>
+	 * 默认实现不支持，返回null，此时由DAO通过getGeneratedKeys取得主键后重新查询。
+	 * 
+	 * @param insertSQL
+	 *            由getInsertSQL生成的单行插入语句
+	 * @param metaInfo
+	 * @return 不支持时返回null
+	 */
+	public default String getReturningSQL(String insertSQL, MetaInfo metaInfo) {
+		return null;
+	}
 }
@@ -0,0 +1,26 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.itf;
+
+/**
+ * 缓存的淘汰策略；缓存容量不足时，由策略选出被淘汰的键。<br>
+ * 实现类需要有无参构造方法；其方法总是在缓存的锁内被调用，因此无需自行同步。
+ * 
+ * @author Lei
+ */
+public interface IEvictionPolicy<K> {
+
+	public void onInsert(K key);
+
+	public void onAccess(K key);
+
+	public void onRemove(K key);
+
+	/**
+	 * @return 下一个应被淘汰的键；没有可淘汰的键时返回null
+	 */
+	public K selectVictim();
+}
@@ -0,0 +1,129 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.pool;
+
+import java.io.Serializable;
+
+/**
+ * 连接池运行指标的快照
+ * 
+ * @author Lei
+ */
+public class PoolMetrics implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int activeCount;
+	private final int idleCount;
+	private final long borrowCount;
+	private final long totalBorrowWaitNanos;
+	private final long maxBorrowWaitNanos;
+	private final long timeoutCount;
+	private final long createdCount;
+	private final long destroyedCount;
+	private final long validationFailureCount;
+	private final long leakCount;
+
+	PoolMetrics(int activeCount, int idleCount, long borrowCount, long totalBorrowWaitNanos,
+			long maxBorrowWaitNanos, long timeoutCount, long createdCount, long destroyedCount,
+			long validationFailureCount, long leakCount) {
+
+		this.activeCount = activeCount;
+		this.idleCount = idleCount;
+		this.borrowCount = borrowCount;
+		this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+		this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+		this.timeoutCount = timeoutCount;
+		this.createdCount = createdCount;
+		this.destroyedCount = destroyedCount;
+		this.validationFailureCount = validationFailureCount;
+		this.leakCount = leakCount;
+	}
+
+	/**
+	 * @return 正在被使用的连接数
+	 */
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	/**
+	 * @return 空闲的连接数
+	 */
+	public int getIdleCount() {
+		return idleCount;
+	}
+
+	/**
+	 * @return 连接总数
+	 */
+	public int getTotalCount() {
+		return activeCount + idleCount;
+	}
+
+	/**
+	 * @return 累计借出连接的次数
+	 */
+	public long getBorrowCount() {
+		return borrowCount;
+	}
+
+	/**
+	 * @return 平均借出等待时间（毫秒）
+	 */
+	public double getAverageBorrowWaitMillis() {
+		return borrowCount == 0 ? 0 : totalBorrowWaitNanos / 1000000.0 / borrowCount;
+	}
+
+	/**
+	 * @return 最长借出等待时间（毫秒）
+	 */
+	public double getMaxBorrowWaitMillis() {
+		return maxBorrowWaitNanos / 1000000.0;
+	}
+
+	/**
+	 * @return 累计等待超时的次数
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	/**
+	 * @return 累计创建的物理连接数
+	 */
+	public long getCreatedCount() {
+		return createdCount;
+	}
+
+	/**
+	 * @return 累计关闭的物理连接数
+	 */
+	public long getDestroyedCount() {
+		return destroyedCount;
+	}
+
+	/**
+	 * @return 累计验证失败的次数
+	 */
+	public long getValidationFailureCount() {
+		return validationFailureCount;
+	}
+
+	/**
+	 * @return 累计检测到的疑似泄漏的连接数
+	 */
+	public long getLeakCount() {
+		return leakCount;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolMetrics [active=" + activeCount + ", idle=" + idleCount + ", borrow=" + borrowCount
+				+ ", avgWait=" + getAverageBorrowWaitMillis() + "ms, maxWait=" + getMaxBorrowWaitMillis()
+				+ "ms, timeout=" + timeoutCount + ", created=" + createdCount + ", destroyed=" + destroyedCount
+				+ ", validationFailure=" + validationFailureCount + ", leak=" + leakCount + "]";
+	}
+}
@@ -0,0 +1,562 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.gridsofts.halo.exception.ConnectionException;
+import org.gridsofts.halo.itf.IConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 内置的轻量级JDBC连接池。<br>
+ * 空闲连接保存在无锁队列中，借出数量由信号量限制；支持最小/最大连接数、借出时按间隔验证、泄漏检测及运行指标。<br>
+ * 每次借出的是包装物理连接的代理：调用其close()即归还连接池；重复归还或归还后再调用close()均被忽略，
+ * 归还后的代理不能再使用，因此不会影响此后借到同一物理连接的线程。<br>
+ * <br>
+ * 
+ * 用法：
+ * 
+ * <pre>
+ * PooledConnectionFactory factory = new PooledConnectionFactory(url, user, password);
+ * factory.setMaxSize(20);
+ * factory.start();
+ * 
+ * SuperDAO dao = new SuperDAO(factory);
+ * </pre>
+ * 
+ * @author Lei
+ */
+public class PooledConnectionFactory implements IConnectionFactory, AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(PooledConnectionFactory.class);
+
+	private final String url;
+	private final Properties info;
+
+	// 最小连接数（空闲时保持）
+	private int minSize = 0;
+	// 最大连接数
+	private int maxSize = 10;
+	// 借出连接时的最长等待时间（毫秒）
+	private long maxWait = 30000;
+	// 借出时验证连接的间隔（毫秒）；距离上次验证超过此间隔时才验证
+	private long validationInterval = 30000;
+	// 验证连接的超时时间（秒）
+	private int validationTimeout = 5;
+	// 空闲连接的最长保留时间（毫秒），超过最小连接数的空闲连接将被关闭
+	private long idleTimeout = 600000;
+	// 连接被借出超过此时间（毫秒）即视为疑似泄漏；0表示不检测
+	private long leakDetectionThreshold = 0;
+	// 后台维护任务的执行间隔（毫秒）
+	private long housekeepingInterval = 30000;
+
+	private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+	// 借出中的连接（借出的代理）及其物理连接
+	private final ConcurrentHashMap<Connection, PooledConnection> borrowedConnections = new ConcurrentHashMap<>();
+
+	private volatile Semaphore permits;
+	private volatile ScheduledExecutorService housekeeper;
+	private volatile boolean closed = false;
+
+	// 运行指标
+	private final LongAdder borrowCount = new LongAdder();
+	private final LongAdder borrowWaitNanos = new LongAdder();
+	private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+	private final LongAdder timeoutCount = new LongAdder();
+	private final LongAdder createdCount = new LongAdder();
+	private final LongAdder destroyedCount = new LongAdder();
+	private final LongAdder validationFailureCount = new LongAdder();
+	private final LongAdder leakCount = new LongAdder();
+
+	public PooledConnectionFactory(String url, String user, String password) {
+		this(url, new Properties());
+
+		if (user != null) {
+			info.setProperty("user", user);
+		}
+
+		if (password != null) {
+			info.setProperty("password", password);
+		}
+	}
+
+	public PooledConnectionFactory(String url, Properties info) {
+
+		if (url == null) {
+			throw new NullPointerException();
+		}
+
+		this.url = url;
+		this.info = info == null ? new Properties() : info;
+	}
+
+	/**
+	 * 启动连接池：预先创建最小数量的连接，并启动后台维护任务（空闲回收、泄漏检测）。<br>
+	 * 未调用此方法时，连接池在首次借出连接时自动启动。
+	 * 
+	 * @return
+	 */
+	public synchronized PooledConnectionFactory start() {
+
+		if (permits != null) {
+			return this;
+		}
+
+		if (closed) {
+			throw new ConnectionException("连接池已经关闭！");
+		}
+
+		if (maxSize <= 0 || minSize < 0 || minSize > maxSize) {
+			throw new IllegalArgumentException("连接池大小配置无效：minSize=" + minSize + ", maxSize=" + maxSize);
+		}
+
+		permits = new Semaphore(maxSize, true);
+
+		fillToMinimum();
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "halo-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingInterval, housekeepingInterval,
+				TimeUnit.MILLISECONDS);
+
+		return this;
+	}
+
+	@Override
+	public Connection getConnection() throws ConnectionException {
+
+		if (closed) {
+			throw new ConnectionException("连接池已经关闭！");
+		}
+
+		if (permits == null) {
+			start();
+		}
+
+		long startTime = System.nanoTime();
+
+		try {
+			if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+				timeoutCount.increment();
+
+				throw new ConnectionException("等待数据库连接超时（" + maxWait + "ms），当前指标：" + getMetrics());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new ConnectionException("等待数据库连接时被中断");
+		}
+
+		try {
+			PooledConnection pooled = null;
+
+			// 优先使用最近归还的连接
+			while ((pooled = idleConnections.pollFirst()) != null) {
+
+				if (validate(pooled)) {
+					break;
+				}
+
+				destroy(pooled);
+			}
+
+			if (pooled == null) {
+				pooled = create();
+			}
+
+			pooled.borrowedAt = System.currentTimeMillis();
+			pooled.borrowStackTrace = leakDetectionThreshold > 0 ? new Throwable("连接借出位置") : null;
+			pooled.leakReported = false;
+
+			Connection lease = (Connection) Proxy.newProxyInstance(PooledConnectionFactory.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new Lease(pooled));
+
+			borrowedConnections.put(lease, pooled);
+
+			long waitNanos = System.nanoTime() - startTime;
+
+			borrowCount.increment();
+			borrowWaitNanos.add(waitNanos);
+			maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+			return lease;
+
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public void release(Connection conn) {
+
+		if (conn == null) {
+			return;
+		}
+
+		PooledConnection pooled = borrowedConnections.remove(conn);
+
+		// 不是从本连接池借出的连接，或已经归还；此时物理连接可能已被其它线程借出，不能关闭
+		if (pooled == null) {
+			logger.debug("==> Halo Pool: 忽略未借出或已归还的连接：{}", conn);
+			return;
+		}
+
+		try {
+			if (closed || !reset(pooled)) {
+				destroy(pooled);
+			} else {
+				pooled.lastUsedAt = System.currentTimeMillis();
+				idleConnections.offerFirst(pooled);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * 关闭连接池，并关闭所有空闲连接；已借出的连接在归还时关闭
+	 */
+	@Override
+	public synchronized void close() {
+
+		closed = true;
+
+		if (housekeeper != null) {
+			housekeeper.shutdownNow();
+		}
+
+		PooledConnection pooled = null;
+		while ((pooled = idleConnections.pollFirst()) != null) {
+			destroy(pooled);
+		}
+	}
+
+	/**
+	 * 获取连接池当前的运行指标
+	 * 
+	 * @return
+	 */
+	public PoolMetrics getMetrics() {
+		return new PoolMetrics(borrowedConnections.size(), idleConnections.size(), borrowCount.sum(),
+				borrowWaitNanos.sum(), maxBorrowWaitNanos.get(), timeoutCount.sum(), createdCount.sum(),
+				destroyedCount.sum(), validationFailureCount.sum(), leakCount.sum());
+	}
+
+	/**
+	 * 创建物理连接
+	 * 
+	 * @return
+	 * @throws ConnectionException
+	 */
+	private PooledConnection create() throws ConnectionException {
+
+		try {
+			Connection conn = DriverManager.getConnection(url, info);
+
+			if (conn == null) {
+				throw new ConnectionException();
+			}
+
+			createdCount.increment();
+
+			return new PooledConnection(conn);
+		} catch (SQLException e) {
+			throw new ConnectionException("无法创建数据库连接，原始信息：" + e.getMessage());
+		}
+	}
+
+	/**
+	 * 关闭物理连接
+	 * 
+	 * @param pooled
+	 */
+	private void destroy(PooledConnection pooled) {
+		closeQuietly(pooled.connection);
+		destroyedCount.increment();
+	}
+
+	/**
+	 * 借出前验证连接；距离上次验证未超过验证间隔时，只检查连接是否已关闭
+	 * 
+	 * @param pooled
+	 * @return
+	 */
+	private boolean validate(PooledConnection pooled) {
+
+		long now = System.currentTimeMillis();
+
+		try {
+			if (pooled.connection.isClosed()) {
+				validationFailureCount.increment();
+				return false;
+			}
+
+			if (now - pooled.lastValidatedAt >= validationInterval) {
+
+				if (!pooled.connection.isValid(validationTimeout)) {
+					validationFailureCount.increment();
+					return false;
+				}
+
+				pooled.lastValidatedAt = now;
+			}
+
+			return true;
+		} catch (Throwable e) {
+			validationFailureCount.increment();
+		}
+
+		return false;
+	}
+
+	/**
+	 * 归还时重置连接状态：回滚未提交的事务，恢复自动提交
+	 * 
+	 * @param pooled
+	 * @return 如果连接已不可用则返回false
+	 */
+	private boolean reset(PooledConnection pooled) {
+
+		try {
+			if (pooled.connection.isClosed()) {
+				return false;
+			}
+
+			if (!pooled.connection.getAutoCommit()) {
+				pooled.connection.rollback();
+				pooled.connection.setAutoCommit(true);
+			}
+
+			return true;
+		} catch (Throwable e) {
+		}
+
+		return false;
+	}
+
+	/**
+	 * 后台维护任务：回收超时的空闲连接，补足最小连接数，检测连接泄漏
+	 */
+	private void housekeep() {
+
+		try {
+			long now = System.currentTimeMillis();
+
+			// 回收超时的空闲连接，但保留最小连接数
+			Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+			while (iterator.hasNext() && idleConnections.size() + borrowedConnections.size() > minSize) {
+				PooledConnection pooled = iterator.next();
+
+				if (now - pooled.lastUsedAt > idleTimeout && idleConnections.removeFirstOccurrence(pooled)) {
+					destroy(pooled);
+				}
+			}
+
+			fillToMinimum();
+
+			// 泄漏检测
+			if (leakDetectionThreshold > 0) {
+				for (PooledConnection pooled : borrowedConnections.values()) {
+
+					if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThreshold) {
+						pooled.leakReported = true;
+						leakCount.increment();
+
+						logger.warn("==> Halo Pool: 连接已被借出" + (now - pooled.borrowedAt) + "ms仍未归还，疑似泄漏",
+								pooled.borrowStackTrace);
+					}
+				}
+			}
+		} catch (Throwable e) {
+			logger.warn("==> Halo Pool: 维护任务执行失败", e);
+		}
+	}
+
+	/**
+	 * 补足最小连接数
+	 */
+	private void fillToMinimum() {
+
+		while (!closed && idleConnections.size() + borrowedConnections.size() < minSize) {
+			try {
+				PooledConnection pooled = create();
+				pooled.lastUsedAt = System.currentTimeMillis();
+				idleConnections.offerLast(pooled);
+			} catch (ConnectionException e) {
+				logger.warn("==> Halo Pool: 无法补足最小连接数，原始信息：{}", e.getMessage());
+				break;
+			}
+		}
+	}
+
+	private static void closeQuietly(Connection conn) {
+		try {
+			conn.close();
+		} catch (Throwable e) {
+		}
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public void setMinSize(int minSize) {
+		this.minSize = minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 设置最大连接数；需要在连接池启动前设置
+	 * 
+	 * @param maxSize
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	public long getValidationInterval() {
+		return validationInterval;
+	}
+
+	public void setValidationInterval(long validationInterval) {
+		this.validationInterval = validationInterval;
+	}
+
+	public int getValidationTimeout() {
+		return validationTimeout;
+	}
+
+	public void setValidationTimeout(int validationTimeout) {
+		this.validationTimeout = validationTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getLeakDetectionThreshold() {
+		return leakDetectionThreshold;
+	}
+
+	public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+		this.leakDetectionThreshold = leakDetectionThreshold;
+	}
+
+	public long getHousekeepingInterval() {
+		return housekeepingInterval;
+	}
+
+	/**
+	 * 设置后台维护任务的执行间隔；需要在连接池启动前设置
+	 * 
+	 * @param housekeepingInterval
+	 */
+	public void setHousekeepingInterval(long housekeepingInterval) {
+		this.housekeepingInterval = housekeepingInterval;
+	}
+
+	/**
+	 * 借出的连接代理：close()归还连接池，归还后的调用均抛出异常（isClosed除外）；
+	 * unwrap(Connection.class)返回物理连接，便于按物理连接缓存预编译语句
+	 */
+	private class Lease implements InvocationHandler {
+
+		private final PooledConnection pooled;
+
+		Lease(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "PooledConnection[" + pooled.connection + "]";
+			case "close":
+				release((Connection) proxy);
+				return null;
+			case "isClosed":
+				if (!borrowedConnections.containsKey(proxy)) {
+					return true;
+				}
+				break;
+			default:
+			}
+
+			if (!borrowedConnections.containsKey(proxy)) {
+				throw new SQLException("连接已经归还连接池");
+			}
+
+			try {
+				return method.invoke(pooled.connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * 池中的连接及其状态
+	 */
+	private static class PooledConnection {
+
+		final Connection connection;
+
+		volatile long lastUsedAt;
+		volatile long lastValidatedAt;
+
+		volatile long borrowedAt;
+		volatile Throwable borrowStackTrace;
+		volatile boolean leakReported;
+
+		PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.lastValidatedAt = System.currentTimeMillis();
+			this.lastUsedAt = this.lastValidatedAt;
+		}
+	}
+}
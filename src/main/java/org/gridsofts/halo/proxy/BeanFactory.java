@@ -8,21 +8,23 @@ package org.gridsofts.halo.proxy;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
-import net.sf.cglib.proxy.Enhancer;
-
 import org.gridsofts.halo.AbstractDAO;
 import org.gridsofts.halo.MetaInfo;
 import org.gridsofts.halo.annotation.ManyToOne;
 import org.gridsofts.halo.annotation.OneToMany;
 import org.gridsofts.halo.annotation.Table;
+import org.gridsofts.halo.cache.EntityCache;
 import org.gridsofts.halo.exception.AnnotationException;
 import org.gridsofts.halo.exception.DAOException;
-import org.gridsofts.halo.itf.ITypeConverter;
 import org.gridsofts.halo.util.BeanUtil;
 import org.gridsofts.halo.util.StringUtil;
 
@@ -30,6 +32,9 @@ public class BeanFactory {
 
 	private static final Pattern SimpleWordExp = Pattern.compile("^\\w+$");
 
+	// 单条“in”条件内最多的值个数（Oracle的限制为1000）
+	private static final int MaxInListSize = 1000;
+
 	/**
 	 * 根据给定的类信息及名值映射，构造Bean。<br/>
 	 * 如果该类内配置了需要立即加载的关联Bean（或List），则在对Bean赋值后立即加载。
@@ -45,23 +50,68 @@ public class BeanFactory {
 	public static <T> T create(AbstractDAO dao, Class<T> t, Map<String, Object> nameValueMap)
 			throws DAOException {
 
-		MetaInfo tableAnnotationInfo = findTableAnnotation(t);
-		if (tableAnnotationInfo == null) {
-			throw new DAOException("该类未标注Table注解");
-		}
+		String[] columnLabels = nameValueMap.keySet().toArray(new String[0]);
 
-		T bean = null;
-		try {
-			bean = t.newInstance();
-		} catch (Exception e) {
-			throw new DAOException("该类无法实例化，原始信息：" + e.getMessage());
-		}
+		return create(dao, t, BeanMapper.get(t, columnLabels), toRow(columnLabels, nameValueMap));
+	}
 
-		if (bean == null) {
-			throw new NullPointerException();
+	/**
+	 * 根据给定的行映射器及行数据，构造Bean。<br/>
+	 * 如果该类内配置了需要立即加载的关联Bean（或List），则在对Bean赋值后立即加载。
+	 * 
+	 * @param <T>
+	 * @param dao
+	 * @param t
+	 * @param mapper
+	 *            与结果集列布局对应的行映射器
+	 * @param row
+	 *            行数据
+	 * @return
+	 * @throws DAOException
+	 */
+	public static <T> T create(AbstractDAO dao, Class<T> t, BeanMapper mapper, Object[] row)
+			throws DAOException {
+
+		T bean = newInstance(t);
+
+		mapper.map(bean, row, dao.getTypeConverterArray());
+		mapJoins(dao, mapper, bean, row, new HashMap<>());
+
+		return loadAssociations(dao, mapper, bean, false);
+	}
+
+	/**
+	 * 根据给定的行映射器及多行数据，构造Bean列表。<br/>
+	 * 需要立即加载的关联Bean中，配置了批量加载的“多对一”对象在全部Bean构造完毕后分批一并加载。
+	 * 
+	 * @param <T>
+	 * @param dao
+	 * @param t
+	 * @param mapper
+	 *            与结果集列布局对应的行映射器
+	 * @param rows
+	 *            行数据
+	 * @return
+	 * @throws DAOException
+	 */
+	public static <T> List<T> create(AbstractDAO dao, Class<T> t, BeanMapper mapper, List<Object[]> rows)
+			throws DAOException {
+
+		List<T> list = new ArrayList<>(rows.size());
+
+		// 同一次查询中，相同的关联记录只构造一个Bean
+		Map<List<Object>, Object> identities = new HashMap<>();
+
+		for (Object[] row : rows) {
+			T bean = newInstance(t);
+
+			mapper.map(bean, row, dao.getTypeConverterArray());
+			mapJoins(dao, mapper, bean, row, identities);
+
+			list.add(loadAssociations(dao, mapper, bean, true));
 		}
 
-		return fillBeanFields(dao, tableAnnotationInfo, bean, nameValueMap);
+		return loadBatchAssociations(dao, mapper, list);
 	}
 
 	/**
@@ -78,26 +128,187 @@ public class BeanFactory {
 	public static <T> T createProxyBean(AbstractDAO dao, Class<T> t, Map<String, Object> nameValueMap)
 			throws AnnotationException {
 
-		MetaInfo tableAnnotationInfo = findTableAnnotation(t);
-		if (tableAnnotationInfo == null) {
-			throw new DAOException("该类未标注Table注解");
-		}
+		String[] columnLabels = nameValueMap.keySet().toArray(new String[0]);
 
-		// 创建代理
-		Enhancer enhancer = new Enhancer();
-		enhancer.setSuperclass(t);
+		return createProxyBean(dao, t, BeanMapper.get(t, columnLabels), toRow(columnLabels, nameValueMap));
+	}
 
-		// 方法拦截器
-		enhancer.setCallback(new LazyInterceptor(dao, t, tableAnnotationInfo.tableMetaInfo));
+	/**
+	 * 根据给定的行映射器及行数据，构造对应的代理JavaBean。
+	 * 
+	 * @param <T>
+	 * @param dao
+	 * @param t
+	 * @param mapper
+	 *            与结果集列布局对应的行映射器
+	 * @param row
+	 *            行数据
+	 * @return
+	 * @throws AnnotationException
+	 */
+	public static <T> T createProxyBean(AbstractDAO dao, Class<T> t, BeanMapper mapper, Object[] row)
+			throws AnnotationException {
 
-		T proxyBean = t.cast(enhancer.create());
+		T proxyBean = newProxy(dao, t, mapper, null);
 
 		// 如果创建代理失败则直接返回
 		if (proxyBean == null) {
 			return null;
 		}
 
-		return fillBeanFields(dao, tableAnnotationInfo, proxyBean, nameValueMap);
+		mapper.map(proxyBean, row, dao.getTypeConverterArray());
+		mapJoins(dao, mapper, proxyBean, row, new HashMap<>());
+
+		return loadAssociations(dao, mapper, proxyBean, false);
+	}
+
+	/**
+	 * 根据给定的行映射器及多行数据，构造代理JavaBean列表。<br/>
+	 * 同一列表中的代理Bean首次访问需要批量加载的延迟加载关联对象时，为列表中的全部Bean一并加载。
+	 * 
+	 * @param <T>
+	 * @param dao
+	 * @param t
+	 * @param mapper
+	 *            与结果集列布局对应的行映射器
+	 * @param rows
+	 *            行数据
+	 * @return
+	 * @throws AnnotationException
+	 */
+	public static <T> List<T> createProxyBeans(AbstractDAO dao, Class<T> t, BeanMapper mapper, List<Object[]> rows)
+			throws AnnotationException {
+
+		List<T> list = new ArrayList<>(rows.size());
+
+		// 没有需要批量加载的关联时不必分组
+		int batchAssociationCount = ProxyType.get(t).batchAssociationCount;
+
+		BeanGroup group = rows.size() > 1 && batchAssociationCount > 0 ? new BeanGroup(batchAssociationCount) : null;
+
+		// 同一次查询中，相同的关联记录只构造一个Bean
+		Map<List<Object>, Object> identities = new HashMap<>();
+
+		for (Object[] row : rows) {
+			T proxyBean = newProxy(dao, t, mapper, group);
+
+			// 如果创建代理失败则以null占位，与行数据一一对应
+			if (proxyBean == null) {
+				list.add(null);
+				continue;
+			}
+
+			mapper.map(proxyBean, row, dao.getTypeConverterArray());
+			mapJoins(dao, mapper, proxyBean, row, identities);
+
+			if (group != null) {
+				group.add(proxyBean);
+			}
+
+			list.add(loadAssociations(dao, mapper, proxyBean, true));
+		}
+
+		return loadBatchAssociations(dao, mapper, list);
+	}
+
+	/**
+	 * 从同一行数据中构造以连接方式立即加载的关联Bean，并赋给Bean
+	 * 
+	 * @param dao
+	 * @param mapper
+	 * @param bean
+	 * @param row
+	 * @param identities
+	 *            本次查询中已构造的关联Bean，键为关联类及主键值
+	 * @throws DAOException
+	 */
+	private static void mapJoins(AbstractDAO dao, BeanMapper mapper, Object bean, Object[] row,
+			Map<List<Object>, Object> identities) throws DAOException {
+
+		for (BeanMapper.Join join : mapper.getJoins()) {
+			Object[] joinRow = join.getRow(row);
+			Object[] key = join.getKey(joinRow);
+
+			// 外键为空，或未连接到记录
+			if (key == null) {
+				continue;
+			}
+
+			List<Object> identity = new ArrayList<>(key.length + 1);
+			identity.add(join.type);
+			identity.addAll(EntityCache.toKey(key));
+
+			Object target = identities.get(identity);
+
+			if (target == null) {
+				if (dao.isCascading()) {
+					target = createProxyBean(dao, join.type, join.mapper, joinRow);
+				} else {
+					target = create(dao, join.type, join.mapper, joinRow);
+				}
+
+				identities.put(identity, target);
+			}
+
+			join.set(bean, target);
+		}
+	}
+
+	/**
+	 * 实例化给定的类
+	 * 
+	 * @param t
+	 * @return
+	 * @throws DAOException
+	 */
+	private static <T> T newInstance(Class<T> t) throws DAOException {
+
+		T bean = null;
+		try {
+			bean = t.newInstance();
+		} catch (Exception e) {
+			throw new DAOException("该类无法实例化，原始信息：" + e.getMessage());
+		}
+
+		if (bean == null) {
+			throw new NullPointerException();
+		}
+
+		return bean;
+	}
+
+	/**
+	 * 创建代理Bean
+	 * 
+	 * @param dao
+	 * @param t
+	 * @param mapper
+	 * @param group
+	 *            代理Bean所属的组；为空时不批量加载延迟加载的关联对象
+	 * @return
+	 */
+	private static <T> T newProxy(AbstractDAO dao, Class<T> t, BeanMapper mapper, BeanGroup group) {
+
+		// 代理类按实体类生成一次，此后只需以新的方法拦截器实例化
+		return ProxyType.get(t).newInstance(t, new LazyInterceptor(dao, t, mapper.getTableAnnotation(), group));
+	}
+
+	/**
+	 * 按给定的列名顺序，从名值映射中取出行数据
+	 * 
+	 * @param columnLabels
+	 * @param nameValueMap
+	 * @return
+	 */
+	private static Object[] toRow(String[] columnLabels, Map<String, Object> nameValueMap) {
+
+		Object[] row = new Object[columnLabels.length];
+
+		for (int i = 0; i < columnLabels.length; i++) {
+			row[i] = nameValueMap.get(columnLabels[i]);
+		}
+
+		return row;
 	}
 
 	/**
@@ -250,7 +461,6 @@ public class BeanFactory {
 		}
 
 		Class<?> type = otmAnnotation.elementType();
-		String sort = otmAnnotation.sort();
 
 		// 判断是否标注了与字段名不同的数据列名
 		String[] foreignKeys = otmAnnotation.foreignKey();
@@ -286,27 +496,7 @@ public class BeanFactory {
 			condition.append(" and " + otmAnnotation.condition());
 		}
 
-		if (!StringUtil.isNull(otmAnnotation.orderBy())) {
-
-			if (SimpleWordExp.matcher(otmAnnotation.orderBy()).find()) {
-
-				// 判断是否标注了与字段名不同的数据列名
-				Field orderBy = null;
-				try {
-					orderBy = type.getDeclaredField(otmAnnotation.orderBy());
-				} catch (Exception e) {
-					throw new DAOException("查找该类的排序字段“" + otmAnnotation.orderBy() + "”时出现异常，原始信息："
-							+ e.getMessage());
-				}
-
-				String orderColName = BeanUtil.getColumnName(orderBy);
-
-				condition.append(" order by " + orderColName + " " + sort);
-			} else {
-
-				condition.append(" order by " + otmAnnotation.orderBy());
-			}
-		}
+		condition.append(getOrderBy(otmAnnotation));
 
 		// 取值
 		List<Object> priValue = new ArrayList<>();
@@ -333,6 +523,160 @@ public class BeanFactory {
 		}
 	}
 
+	/**
+	 * 为多个Bean批量加载“一对多”集合；已加载（非空）的Bean被跳过。<br/>
+	 * 按标注的批大小以“where 外键 in (...)”（附加关联条件及排序）分批查询，再按外键值分组赋给各个Bean；没有对应元素的Bean得到空集合。
+	 * 
+	 * @param dao
+	 * @param t
+	 * @param primaryKeys
+	 * @param otmField
+	 * @param beans
+	 * @throws DAOException
+	 */
+	public static void loadOneToMany(AbstractDAO dao, Class<?> t, String[] primaryKeys, Field otmField,
+			List<?> beans) throws DAOException {
+
+		OneToMany otmAnnotation = otmField.getAnnotation(OneToMany.class);
+
+		Method otmFieldSetter = null;
+		try {
+			otmFieldSetter = t.getMethod(BeanUtil.getSetterMethodName(otmField.getName()),
+					List.class);
+		} catch (Exception e) {
+			throw new DAOException("查找该类的setter方法时出现异常，原始信息：" + e.getMessage());
+		}
+
+		Class<?> type = otmAnnotation.elementType();
+
+		String[] foreignKeys = otmAnnotation.foreignKey();
+
+		if (primaryKeys == null || primaryKeys.length == 0 || foreignKeys == null
+				|| foreignKeys.length != primaryKeys.length) {
+			throw new AnnotationException();
+		}
+
+		// 判断是否标注了与字段名不同的数据列名
+		List<String> foreignNames = new ArrayList<>();
+		for (String keyName : foreignKeys) {
+			try {
+				foreignNames.add(BeanUtil.getColumnName(type.getDeclaredField(keyName)));
+			} catch (Exception e) {
+				throw new DAOException("查找该类的字段“" + keyName + "”时出现异常，原始信息：" + e.getMessage());
+			}
+		}
+
+		Method[] priKeyGetters = getGetters(t, Arrays.asList(primaryKeys));
+		Method[] foreKeyGetters = getGetters(type, Arrays.asList(foreignKeys));
+
+		// 按主键值分组尚未加载的Bean；直接读取字段，以免经由代理的getter再次触发加载
+		Map<List<Object>, Object[]> primaryValues = new LinkedHashMap<>();
+		Map<List<Object>, List<Object>> beanGroups = new HashMap<>();
+
+		try {
+			otmField.setAccessible(true);
+
+			for (Object bean : beans) {
+				if (bean == null || otmField.get(bean) != null) {
+					continue;
+				}
+
+				Object[] primaryValue = invokeGetters(priKeyGetters, bean);
+				if (primaryValue == null) {
+					continue;
+				}
+
+				List<Object> key = EntityCache.toKey(primaryValue);
+
+				primaryValues.putIfAbsent(key, primaryValue);
+				beanGroups.computeIfAbsent(key, k -> new ArrayList<>()).add(bean);
+			}
+		} catch (DAOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new DAOException("读取该类的主键值时出现异常，原始信息：" + e.getMessage());
+		}
+
+		// 附加的关联条件及排序
+		String extraCondition = StringUtil.isNull(otmAnnotation.condition()) ? ""
+				: " and (" + otmAnnotation.condition() + ")";
+		String orderBy = getOrderBy(otmAnnotation);
+
+		List<Object[]> pending = new ArrayList<>(primaryValues.values());
+
+		int chunkSize = Math.min(Math.max(otmAnnotation.batchSize(), 1), MaxInListSize);
+
+		for (int from = 0; from < pending.size(); from += chunkSize) {
+			List<Object[]> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+
+			List<Object> param = new ArrayList<>();
+			for (Object[] primaryValue : chunk) {
+				param.addAll(Arrays.asList(primaryValue));
+			}
+
+			String condition = "where (" + getKeysCondition(foreignNames, chunk.size()) + ")" + extraCondition
+					+ orderBy;
+
+			// 按外键值分组，组内保持查询结果的顺序
+			Map<List<Object>, List<Object>> elements = new HashMap<>();
+
+			try {
+				for (Object element : dao.list(type, condition, param.toArray())) {
+
+					Object[] foreignValue = invokeGetters(foreKeyGetters, element);
+					if (foreignValue != null) {
+						elements.computeIfAbsent(EntityCache.toKey(foreignValue), k -> new ArrayList<>()).add(
+								element);
+					}
+				}
+
+				for (Object[] primaryValue : chunk) {
+					List<Object> key = EntityCache.toKey(primaryValue);
+					List<Object> list = elements.getOrDefault(key, Collections.emptyList());
+
+					// 各Bean持有各自的集合，以免修改一个Bean的集合影响其它Bean
+					for (Object bean : beanGroups.get(key)) {
+						otmFieldSetter.invoke(bean, new ArrayList<>(list));
+					}
+				}
+			} catch (Exception e) {
+				throw new DAOException("查询“一对多”关联对象时出现异常，原始信息：" + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * 拼接“一对多”集合的排序子句
+	 * 
+	 * @param otmAnnotation
+	 * @return 未标注排序字段时返回空串
+	 * @throws DAOException
+	 */
+	private static String getOrderBy(OneToMany otmAnnotation) throws DAOException {
+
+		if (StringUtil.isNull(otmAnnotation.orderBy())) {
+			return "";
+		}
+
+		if (SimpleWordExp.matcher(otmAnnotation.orderBy()).find()) {
+
+			// 判断是否标注了与字段名不同的数据列名
+			Field orderBy = null;
+			try {
+				orderBy = otmAnnotation.elementType().getDeclaredField(otmAnnotation.orderBy());
+			} catch (Exception e) {
+				throw new DAOException("查找该类的排序字段“" + otmAnnotation.orderBy() + "”时出现异常，原始信息："
+						+ e.getMessage());
+			}
+
+			String orderColName = BeanUtil.getColumnName(orderBy);
+
+			return " order by " + orderColName + " " + otmAnnotation.sort();
+		}
+
+		return " order by " + otmAnnotation.orderBy();
+	}
+
 	/**
 	 * 加载“多对一”对象
 	 * 
@@ -382,62 +726,249 @@ public class BeanFactory {
 	}
 
 	/**
-	 * 向上查找标注有Table注解的类
+	 * 为多个Bean批量加载“多对一”对象；已加载（非空）的Bean被跳过。<br/>
+	 * 外键值去重后，按标注的批大小以“where 主键 in (...)”分批查询，再按主键值赋给各个Bean。
 	 * 
+	 * @param dao
 	 * @param t
+	 * @param mtoField
+	 * @param beans
+	 * @throws DAOException
+	 */
+	public static void loadManyToOne(AbstractDAO dao, Class<?> t, Field mtoField, List<?> beans)
+			throws DAOException {
+
+		Class<?> type = mtoField.getType();
+
+		Method mtoFieldSetter = null;
+		try {
+			mtoFieldSetter = t.getMethod(BeanUtil.getSetterMethodName(mtoField.getName()), type);
+		} catch (Exception e) {
+			throw new DAOException("查找该类的setter方法时出现异常，原始信息：" + e.getMessage());
+		}
+
+		ManyToOne mtoAnnotation = mtoField.getAnnotation(ManyToOne.class);
+		String[] foreignKeys = mtoAnnotation.foreignKey();
+
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(type);
+		} catch (Exception e) {
+			throw new DAOException("获取关联类的元信息时出现异常，原始信息：" + e.getMessage());
+		}
+
+		if (foreignKeys == null || foreignKeys.length == 0
+				|| foreignKeys.length != metaInfo.primaryKeys.size()) {
+			throw new AnnotationException();
+		}
+
+		Method[] foreKeyGetters = getGetters(t, Arrays.asList(foreignKeys));
+
+		List<String> primaryKeyNames = new ArrayList<>();
+		for (Field primaryKey : metaInfo.primaryKeys) {
+			primaryKeyNames.add(primaryKey.getName());
+		}
+
+		Method[] priKeyGetters = getGetters(type, primaryKeyNames);
+
+		// 按外键值分组尚未加载的Bean；直接读取字段，以免经由代理的getter再次触发加载
+		Map<List<Object>, Object[]> foreignValues = new LinkedHashMap<>();
+		Map<List<Object>, List<Object>> beanGroups = new HashMap<>();
+
+		try {
+			mtoField.setAccessible(true);
+
+			for (Object bean : beans) {
+				if (bean == null || mtoField.get(bean) != null) {
+					continue;
+				}
+
+				Object[] foreignValue = invokeGetters(foreKeyGetters, bean);
+				if (foreignValue == null) {
+					continue;
+				}
+
+				List<Object> key = EntityCache.toKey(foreignValue);
+
+				foreignValues.putIfAbsent(key, foreignValue);
+				beanGroups.computeIfAbsent(key, k -> new ArrayList<>()).add(bean);
+			}
+		} catch (DAOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new DAOException("读取该类的外键值时出现异常，原始信息：" + e.getMessage());
+		}
+
+		List<Object[]> pending = new ArrayList<>(foreignValues.values());
+
+		int chunkSize = Math.min(Math.max(mtoAnnotation.batchSize(), 1), MaxInListSize);
+
+		for (int from = 0; from < pending.size(); from += chunkSize) {
+			List<Object[]> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+
+			List<Object> param = new ArrayList<>();
+			for (Object[] foreignValue : chunk) {
+				param.addAll(Arrays.asList(foreignValue));
+			}
+
+			String condition = "where " + getKeysCondition(metaInfo.primaryKeyColumns, chunk.size());
+
+			try {
+				for (Object target : dao.list(type, condition, param.toArray())) {
+
+					List<Object> key = EntityCache.toKey(invokeGetters(priKeyGetters, target));
+
+					for (Object bean : beanGroups.getOrDefault(key, Collections.emptyList())) {
+						mtoFieldSetter.invoke(bean, target);
+					}
+				}
+			} catch (Exception e) {
+				throw new DAOException("查询“多对一”关联对象时出现异常，原始信息：" + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * 拼接按多组键值查询的条件：单列键时为“列 in (?, ...)”，复合键时为“(列1 = ? and 列2 = ?) or ...”
+	 * 
+	 * @param keyColumns
+	 * @param rowCount
 	 * @return
 	 */
-	private static <T> MetaInfo findTableAnnotation(Class<T> t) {
+	private static String getKeysCondition(List<String> keyColumns, int rowCount) {
 
-		if (t.getAnnotation(Table.class) != null) {
-			MetaInfo tableAnnotationInfo = new MetaInfo();
+		StringBuffer condition = new StringBuffer();
 
-			tableAnnotationInfo.clazz = t;
-			tableAnnotationInfo.tableMetaInfo = t.getAnnotation(Table.class);
+		if (keyColumns.size() == 1) {
+			condition.append(keyColumns.get(0)).append(" in (");
+
+			for (int i = 0; i < rowCount; i++) {
+				condition.append(i == 0 ? "?" : ", ?");
+			}
 
-			return tableAnnotationInfo;
+			return condition.append(")").toString();
 		}
 
-		if (t.getSuperclass() != null) {
-			return findTableAnnotation(t.getSuperclass());
+		for (int i = 0; i < rowCount; i++) {
+			condition.append(i == 0 ? "(" : " or (");
+
+			for (int j = 0; j < keyColumns.size(); j++) {
+				condition.append(j == 0 ? "" : " and ").append(keyColumns.get(j)).append(" = ?");
+			}
+
+			condition.append(")");
 		}
 
-		return null;
+		return condition.toString();
 	}
 
 	/**
-	 * 向上查找标注有Table注解的类
+	 * 查找给定字段的getter方法
 	 * 
 	 * @param t
+	 * @param fieldNames
+	 * @return
+	 * @throws DAOException
+	 */
+	private static Method[] getGetters(Class<?> t, List<String> fieldNames) throws DAOException {
+
+		Method[] getters = new Method[fieldNames.size()];
+
+		for (int i = 0; i < getters.length; i++) {
+			try {
+				getters[i] = t.getMethod(BeanUtil.getGetterMethodName(fieldNames.get(i)));
+			} catch (Exception e) {
+				throw new DAOException("查找该类的getter方法时出现异常，原始信息：" + e.getMessage());
+			}
+		}
+
+		return getters;
+	}
+
+	/**
+	 * 调用给定的getter方法取值
+	 * 
+	 * @param getters
+	 * @param bean
+	 * @return 任一值为空时返回null
+	 * @throws DAOException
+	 */
+	private static Object[] invokeGetters(Method[] getters, Object bean) throws DAOException {
+
+		Object[] values = new Object[getters.length];
+
+		for (int i = 0; i < getters.length; i++) {
+			try {
+				values[i] = getters[i].invoke(bean);
+			} catch (Exception e) {
+				throw new DAOException("调用该类的getter方法时出现异常，原始信息：" + e.getMessage());
+			}
+
+			if (values[i] == null) {
+				return null;
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * 为多个Bean加载需要立即加载、且配置了批量加载的关联Bean（或List）
+	 * 
+	 * @param dao
+	 * @param mapper
+	 * @param beans
 	 * @return
 	 */
-	@SuppressWarnings("unused")
-	private static <T> Class<? super T> findClassAnnotatedWithTable(Class<T> t) {
+	private static <T> List<T> loadBatchAssociations(AbstractDAO dao, BeanMapper mapper, List<T> beans) {
 
-		if (t.getAnnotation(Table.class) != null) {
-			return t;
+		if (beans.isEmpty()) {
+			return beans;
 		}
 
-		if (t.getSuperclass() != null) {
-			return findClassAnnotatedWithTable(t.getSuperclass());
+		Class<?> tableClass = mapper.getTableClass();
+
+		Table tableAnnotation = tableClass.getAnnotation(Table.class);
+
+		for (Field field : tableClass.getDeclaredFields()) {
+			OneToMany otmAnnotation = field.getAnnotation(OneToMany.class);
+			ManyToOne mtoAnnotation = field.getAnnotation(ManyToOne.class);
+
+			if (otmAnnotation != null && !otmAnnotation.lazy() && otmAnnotation.batchSize() > 0) {
+				try {
+					loadOneToMany(dao, tableClass, tableAnnotation.primaryKey(), field, beans);
+				} catch (Throwable e) {
+				}
+			}
+
+			if (mtoAnnotation != null && !mtoAnnotation.lazy() && mtoAnnotation.batchSize() > 0
+					&& !mapper.isJoined(field)) {
+				try {
+					loadManyToOne(dao, tableClass, field, beans);
+				} catch (Throwable e) {
+				}
+			}
 		}
 
-		return null;
+		return beans;
 	}
 
 	/**
-	 * 填充Bean的所有属性
+	 * 加载需要立即加载的关联Bean（或List）
 	 * 
 	 * @param dao
+	 * @param mapper
 	 * @param bean
-	 * @param nameValueMap
+	 * @param deferBatch
+	 *            是否跳过配置了批量加载的关联，留待全部Bean构造完毕后一并加载
 	 * @return
 	 */
-	private static <T> T fillBeanFields(AbstractDAO dao, MetaInfo metaInfo, T bean,
-			Map<String, Object> nameValueMap) {
+	private static <T> T loadAssociations(AbstractDAO dao, BeanMapper mapper, T bean, boolean deferBatch) {
 
-		Table tableAnnotation = metaInfo.tableMetaInfo;
-		Field[] fields = metaInfo.clazz.getDeclaredFields();
+		Class<?> tableClass = mapper.getTableClass();
+
+		Table tableAnnotation = tableClass.getAnnotation(Table.class);
+		Field[] fields = tableClass.getDeclaredFields();
 
 		if (fields == null || fields.length == 0) {
 			return bean;
@@ -460,40 +991,6 @@ public class BeanFactory {
 			}
 		}
 
-		// 为clone bean的各字段赋值
-		for (int i = 0, fieldCount = fields.length; i < fieldCount; i++) {
-
-			// 跳过静态、常量字段
-			if (BeanUtil.isConstField(fields[i])) {
-				continue;
-			}
-
-			String upperCaseColName = BeanUtil.getColumnName(fields[i]).toUpperCase();
-
-			if (nameValueMap.containsKey(upperCaseColName)) {
-
-				try {
-					// setter
-					String setterName = BeanUtil.getSetterMethodName(fields[i].getName());
-					Method setterMethod = bean.getClass()
-							.getMethod(setterName, fields[i].getType());
-
-					// 如果找不到指定字段的setter方法，则忽略
-					if (setterMethod == null) {
-						continue;
-					}
-
-					Object fldValue = nameValueMap.get(upperCaseColName);
-					ITypeConverter[] typeConverters = dao.getTypeConverters() == null ? null : dao
-							.getTypeConverters().toArray(new ITypeConverter[0]);
-
-					setterMethod.invoke(bean,
-							BeanUtil.convert(fldValue, fields[i].getType(), typeConverters));
-				} catch (Throwable e) {
-				}
-			}
-		}
-
 		// 需要立即加载的内容
 		if (otmFieldAry != null) {
 			Iterator<Field> iterator = otmFieldAry.iterator();
@@ -502,7 +999,7 @@ public class BeanFactory {
 				Field otmField = iterator.next();
 				OneToMany otmAnnotation = otmField.getAnnotation(OneToMany.class);
 
-				if (!otmAnnotation.lazy()) {
+				if (!otmAnnotation.lazy() && !(deferBatch && otmAnnotation.batchSize() > 0)) {
 					try {
 						loadOneToMany(dao, bean.getClass(), tableAnnotation.primaryKey(), otmField,
 								bean);
@@ -518,7 +1015,9 @@ public class BeanFactory {
 				Field mtoField = iterator.next();
 				ManyToOne mtoAnnotation = mtoField.getAnnotation(ManyToOne.class);
 
-				if (!mtoAnnotation.lazy()) {
+				// 已从同一行数据中构造的关联对象无需另行加载
+				if (!mtoAnnotation.lazy() && !mapper.isJoined(mtoField)
+						&& !(deferBatch && mtoAnnotation.batchSize() > 0)) {
 					try {
 						loadManyToOne(dao, bean.getClass(), mtoField, bean);
 					} catch (Throwable e) {
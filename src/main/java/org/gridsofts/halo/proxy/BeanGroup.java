@@ -0,0 +1,125 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.proxy;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.gridsofts.halo.AbstractDAO;
+import org.gridsofts.halo.exception.DAOException;
+
+/**
+ * 同一次查询得到的一组代理Bean；组内任一Bean首次访问需要批量加载的关联对象时，为组内全部Bean一并加载。<br/>
+ * 组内的Bean以弱引用持有，保留其中一个Bean不会使整组Bean无法回收；全部批量加载的关联都加载过后，不再持有组内的Bean。
+ * 
+ * @author Lei
+ */
+class BeanGroup {
+
+	// 组内的Bean；全部批量加载的关联都加载过后为null
+	private List<WeakReference<Object>> beans = new ArrayList<>();
+
+	// 需要批量加载的关联字段数
+	private final int batchFieldCount;
+
+	// 已经为全组批量加载过的关联字段
+	private final Set<Field> loadedFields = new HashSet<>();
+
+	/**
+	 * @param batchFieldCount
+	 *            需要批量加载的关联字段数
+	 */
+	BeanGroup(int batchFieldCount) {
+		this.batchFieldCount = batchFieldCount;
+	}
+
+	synchronized void add(Object bean) {
+		if (beans != null) {
+			beans.add(new WeakReference<>(bean));
+		}
+	}
+
+	/**
+	 * 为组内全部Bean批量加载“多对一”对象
+	 * 
+	 * @param dao
+	 * @param t
+	 * @param mtoField
+	 * @param proxy
+	 *            触发加载的Bean
+	 * @throws DAOException
+	 */
+	void loadManyToOne(AbstractDAO dao, Class<?> t, Field mtoField, Object proxy) throws DAOException {
+
+		List<Object> pending = claim(mtoField);
+
+		// 全组已加载过，该Bean的关联对象是此后被置空的，或外键未对应任何记录，按单个Bean加载
+		if (pending == null) {
+			BeanFactory.loadManyToOne(dao, t, mtoField, proxy);
+		} else {
+			BeanFactory.loadManyToOne(dao, t, mtoField, pending);
+		}
+	}
+
+	/**
+	 * 为组内全部Bean批量加载“一对多”集合
+	 * 
+	 * @param dao
+	 * @param t
+	 * @param primaryKeys
+	 * @param otmField
+	 * @param proxy
+	 *            触发加载的Bean
+	 * @throws DAOException
+	 */
+	void loadOneToMany(AbstractDAO dao, Class<?> t, String[] primaryKeys, Field otmField, Object proxy)
+			throws DAOException {
+
+		List<Object> pending = claim(otmField);
+
+		// 全组已加载过，该Bean的集合是此后被置空的，按单个Bean加载
+		if (pending == null) {
+			BeanFactory.loadOneToMany(dao, t, primaryKeys, otmField, proxy);
+		} else {
+			BeanFactory.loadOneToMany(dao, t, primaryKeys, otmField, pending);
+		}
+	}
+
+	/**
+	 * 标记给定字段已为全组加载
+	 * 
+	 * @param field
+	 * @return 首次标记时返回组内尚未被回收的全部Bean，否则返回null
+	 */
+	private synchronized List<Object> claim(Field field) {
+
+		if (beans == null || !loadedFields.add(field)) {
+			return null;
+		}
+
+		List<Object> pending = new ArrayList<>(beans.size());
+
+		for (WeakReference<Object> ref : beans) {
+			Object bean = ref.get();
+
+			if (bean != null) {
+				pending.add(bean);
+			}
+		}
+
+		// 全部批量加载的关联都已加载，此后按单个Bean加载
+		if (loadedFields.size() >= batchFieldCount) {
+			beans = null;
+		}
+
+		return Collections.unmodifiableList(pending);
+	}
+}
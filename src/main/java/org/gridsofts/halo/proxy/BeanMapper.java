@@ -0,0 +1,364 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.proxy;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.cglib.reflect.FastClass;
+
+import org.gridsofts.halo.MetaInfo;
+import org.gridsofts.halo.SqlTemplate;
+import org.gridsofts.halo.annotation.Table;
+import org.gridsofts.halo.cache.BoundedCache;
+import org.gridsofts.halo.cache.LruEvictionPolicy;
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.itf.ITypeConverter;
+import org.gridsofts.halo.util.BeanUtil;
+
+/**
+ * 行映射器；按“实体类 + 结果集列布局”编译一次，此后按列索引直接为Bean赋值。<br/>
+ * 赋值优先使用cglib生成的FastClass调用setter，如果无法生成（如非public类），则退回反射调用。
+ * 
+ * @author Lei
+ */
+public class BeanMapper {
+
+	// 每个类最多缓存的列布局数；自定义查询的列布局可能很多，超出时淘汰最久未使用的映射器
+	private static final int MaxLayoutsPerClass = 64;
+
+	// 按类缓存的映射器，键为结果集的列布局（全大写列名）
+	private static final ClassValue<BoundedCache<List<String>, BeanMapper>> Mappers = new ClassValue<BoundedCache<List<String>, BeanMapper>>() {
+
+		@Override
+		protected BoundedCache<List<String>, BeanMapper> computeValue(Class<?> type) {
+			return new BoundedCache<>(MaxLayoutsPerClass, 0, new LruEvictionPolicy<>());
+		}
+	};
+
+	// 标注有Table注解的类
+	private final Class<?> tableClass;
+	private final Table tableAnnotation;
+
+	// 以下数组一一对应，每项表示一个需要赋值的字段
+	private final int[] columnIndexes;
+	private final Class<?>[] fieldTypes;
+	private final int[] fastSetters;
+	private final Method[] setters;
+
+	private final FastClass fastClass;
+
+	// 以连接方式立即加载的关联；结果集中不含关联表的列时为空
+	private final Join[] joins;
+
+	/**
+	 * 获取给定实体类在给定列布局下的映射器，首次使用（或已被淘汰）时编译
+	 * 
+	 * @param t
+	 *            实体类
+	 * @param columnLabels
+	 *            结果集的列名（全大写），顺序即列索引
+	 * @return
+	 * @throws DAOException
+	 */
+	public static BeanMapper get(Class<?> t, String[] columnLabels) throws DAOException {
+
+		BoundedCache<List<String>, BeanMapper> mappers = Mappers.get(t);
+
+		BeanMapper mapper = mappers.get(Arrays.asList(columnLabels));
+
+		// 编译在锁外进行；并发编译同一列布局时，后放入的映射器替换先放入的，二者等价
+		if (mapper == null) {
+			String[] labels = columnLabels.clone();
+			mapper = new BeanMapper(t, labels);
+
+			mappers.put(Arrays.asList(labels), mapper);
+		}
+
+		return mapper;
+	}
+
+	private BeanMapper(Class<?> t, String[] columnLabels) throws DAOException {
+
+		Class<?> tableClass = t;
+		while (tableClass != null && tableClass.getAnnotation(Table.class) == null) {
+			tableClass = tableClass.getSuperclass();
+		}
+
+		if (tableClass == null) {
+			throw new DAOException("该类未标注Table注解");
+		}
+
+		this.tableClass = tableClass;
+		this.tableAnnotation = tableClass.getAnnotation(Table.class);
+
+		FastClass fastClass = null;
+		try {
+			fastClass = FastClass.create(tableClass);
+		} catch (Throwable e) {
+		}
+
+		List<Integer> columnIndexList = new ArrayList<>();
+		List<Class<?>> fieldTypeList = new ArrayList<>();
+		List<Integer> fastSetterList = new ArrayList<>();
+		List<Method> setterList = new ArrayList<>();
+
+		List<String> labels = Arrays.asList(columnLabels);
+		Field[] fields = tableClass.getDeclaredFields();
+
+		for (int i = 0; fields != null && i < fields.length; i++) {
+
+			// 跳过静态、常量字段
+			if (BeanUtil.isConstField(fields[i])) {
+				continue;
+			}
+
+			// 列名相同时，以最后出现的列为准
+			int columnIndex = labels.lastIndexOf(BeanUtil.getColumnName(fields[i]).toUpperCase());
+			if (columnIndex < 0) {
+				continue;
+			}
+
+			// 如果找不到指定字段的setter方法，则忽略
+			String setterName = BeanUtil.getSetterMethodName(fields[i].getName());
+
+			Method setterMethod = null;
+			try {
+				setterMethod = tableClass.getMethod(setterName, fields[i].getType());
+			} catch (Throwable e) {
+			}
+
+			if (setterMethod == null) {
+				continue;
+			}
+
+			int fastSetter = -1;
+			if (fastClass != null) {
+				fastSetter = fastClass.getIndex(setterName, new Class<?>[] { fields[i].getType() });
+			}
+
+			// 反射调用时，允许访问非public类中的方法
+			if (fastSetter < 0) {
+				try {
+					setterMethod.setAccessible(true);
+				} catch (Throwable e) {
+				}
+			}
+
+			columnIndexList.add(columnIndex);
+			fieldTypeList.add(fields[i].getType());
+			fastSetterList.add(fastSetter);
+			setterList.add(setterMethod);
+		}
+
+		this.fastClass = fastClass;
+		this.columnIndexes = columnIndexList.stream().mapToInt(Integer::intValue).toArray();
+		this.fieldTypes = fieldTypeList.toArray(new Class<?>[0]);
+		this.fastSetters = fastSetterList.stream().mapToInt(Integer::intValue).toArray();
+		this.setters = setterList.toArray(new Method[0]);
+
+		this.joins = compileJoins(tableClass, labels);
+	}
+
+	/**
+	 * 找出结果集中包含的连接抓取的关联表
+	 * 
+	 * @param tableClass
+	 * @param labels
+	 * @return
+	 */
+	private static Join[] compileJoins(Class<?> tableClass, List<String> labels) {
+
+		MetaInfo metaInfo = null;
+		try {
+			metaInfo = MetaInfo.get(tableClass);
+		} catch (Throwable e) {
+			return new Join[0];
+		}
+
+		List<Join> joins = new ArrayList<>();
+
+		for (int i = 0; i < metaInfo.joinFetchFields.size(); i++) {
+
+			// 结果集中不含该关联表的列（如自定义的查询语句），则仍按普通方式加载
+			if (!labels.contains(SqlTemplate.getJoinColumnLabel(i, 0))) {
+				continue;
+			}
+
+			try {
+				joins.add(new Join(tableClass, metaInfo.joinFetchFields.get(i), i, labels));
+			} catch (Throwable e) {
+			}
+		}
+
+		return joins.toArray(new Join[0]);
+	}
+
+	/**
+	 * @return 标注有Table注解的类
+	 */
+	public Class<?> getTableClass() {
+		return tableClass;
+	}
+
+	/**
+	 * @return Table注解
+	 */
+	public Table getTableAnnotation() {
+		return tableAnnotation;
+	}
+
+	/**
+	 * @return 以连接方式立即加载的关联，即结果集中包含其关联表的列的关联
+	 */
+	public Join[] getJoins() {
+		return joins;
+	}
+
+	/**
+	 * 判断给定的关联字段是否可以从结果集中直接构造
+	 * 
+	 * @param field
+	 * @return
+	 */
+	public boolean isJoined(Field field) {
+
+		for (Join join : joins) {
+			if (join.field.equals(field)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * 将一行数据写入给定的Bean
+	 * 
+	 * @param bean
+	 * @param row
+	 *            行数据，顺序与编译时的列布局一致
+	 * @param typeConverters
+	 *            类型转换器（如果有）
+	 */
+	public void map(Object bean, Object[] row, ITypeConverter[] typeConverters) {
+
+		for (int i = 0, count = columnIndexes.length; i < count; i++) {
+			Object fldValue = BeanUtil.convert(row[columnIndexes[i]], fieldTypes[i], typeConverters);
+
+			try {
+				if (fastSetters[i] >= 0) {
+					fastClass.invoke(fastSetters[i], bean, new Object[] { fldValue });
+				} else {
+					setters[i].invoke(bean, fldValue);
+				}
+			} catch (Throwable e) {
+			}
+		}
+	}
+
+	/**
+	 * 以连接方式立即加载的关联在结果集中的映射
+	 */
+	public static class Join {
+
+		// 关联字段
+		public final Field field;
+		// 关联类
+		public final Class<?> type;
+		// 关联类在关联表列布局下的行映射器
+		public final BeanMapper mapper;
+
+		private final Method setter;
+
+		// 关联表各列在结果集中的索引
+		private final int[] columnIndexes;
+		// 关联类的各主键在关联表行数据中的索引
+		private final int[] keyIndexes;
+
+		private Join(Class<?> tableClass, Field field, int joinIndex, List<String> labels) throws Exception {
+
+			MetaInfo target = MetaInfo.get(field.getType());
+
+			this.field = field;
+			this.type = field.getType();
+			this.setter = tableClass.getMethod(BeanUtil.getSetterMethodName(field.getName()), type);
+
+			String[] targetLabels = new String[target.columnNames.size()];
+			this.columnIndexes = new int[targetLabels.length];
+
+			for (int i = 0; i < targetLabels.length; i++) {
+				targetLabels[i] = target.columnNames.get(i).toUpperCase();
+				columnIndexes[i] = labels.indexOf(SqlTemplate.getJoinColumnLabel(joinIndex, i));
+
+				if (columnIndexes[i] < 0) {
+					throw new DAOException("结果集中缺少关联表的列");
+				}
+			}
+
+			this.keyIndexes = new int[target.primaryKeys.size()];
+			for (int i = 0; i < keyIndexes.length; i++) {
+				keyIndexes[i] = target.fields.indexOf(target.primaryKeys.get(i));
+			}
+
+			this.mapper = BeanMapper.get(type, targetLabels);
+		}
+
+		/**
+		 * 从结果集的行数据中取出关联表的行数据
+		 * 
+		 * @param row
+		 * @return
+		 */
+		public Object[] getRow(Object[] row) {
+
+			Object[] joinRow = new Object[columnIndexes.length];
+
+			for (int i = 0; i < columnIndexes.length; i++) {
+				joinRow[i] = row[columnIndexes[i]];
+			}
+
+			return joinRow;
+		}
+
+		/**
+		 * 取出关联表行数据中的主键值
+		 * 
+		 * @param joinRow
+		 * @return 任一主键值为空（即未连接到记录）时返回null
+		 */
+		public Object[] getKey(Object[] joinRow) {
+
+			Object[] key = new Object[keyIndexes.length];
+
+			for (int i = 0; i < keyIndexes.length; i++) {
+				if ((key[i] = joinRow[keyIndexes[i]]) == null) {
+					return null;
+				}
+			}
+
+			return key;
+		}
+
+		/**
+		 * 为Bean的关联字段赋值
+		 * 
+		 * @param bean
+		 * @param value
+		 * @throws DAOException
+		 */
+		public void set(Object bean, Object value) throws DAOException {
+			try {
+				setter.invoke(bean, value);
+			} catch (Exception e) {
+				throw new DAOException("调用该类的setter方法时出现异常，原始信息：" + e.getMessage());
+			}
+		}
+	}
+}
@@ -6,113 +6,97 @@
 package org.gridsofts.halo.proxy;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.regex.Pattern;
 
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
 import org.gridsofts.halo.AbstractDAO;
-import org.gridsofts.halo.annotation.ManyToOne;
-import org.gridsofts.halo.annotation.OneToMany;
 import org.gridsofts.halo.annotation.Table;
-import org.gridsofts.halo.util.BeanUtil;
+import org.gridsofts.halo.proxy.ProxyType.Association;
 
+/**
+ * 延迟加载拦截器；代理类的回调过滤器只将延迟加载关联的getter分派至此，其它方法不经过拦截器。<br/>
+ * 每个关联首次被访问时加载一次，此后直接调用父类的getter。
+ * 
+ * @author Lei
+ */
 public class LazyInterceptor implements MethodInterceptor, Serializable {
 	private static final long serialVersionUID = 1L;
 
-	private static final Pattern GetMethodExp = Pattern.compile("^get");
-
 	private AbstractDAO dao;
 	private Class<?> cls;
 
 	private Table tableAnnotation;
 
-	private List<Field> otmFieldAry;
-	private List<Field> mtoFieldAry;
+	// 代理类型，含按方法索引的延迟加载关联
+	private transient ProxyType proxyType;
+
+	// 各延迟加载关联是否已经加载，与ProxyType.associations一一对应
+	private boolean[] loaded;
+
+	// 同一次查询得到的一组代理Bean；为空时不批量加载
+	private transient BeanGroup group;
 
 	public LazyInterceptor(AbstractDAO dao, Class<?> cls, Table tableAnnotation) {
+		this(dao, cls, tableAnnotation, null);
+	}
+
+	LazyInterceptor(AbstractDAO dao, Class<?> cls, Table tableAnnotation, BeanGroup group) {
 
 		this.dao = dao;
 		this.cls = cls;
+		this.group = group;
 
 		this.tableAnnotation = tableAnnotation;
 
-		this.otmFieldAry = new ArrayList<>();
-		this.mtoFieldAry = new ArrayList<>();
-
-		// 取出OneToMany、ManyToOne标注
-		Field[] fields = cls.getDeclaredFields();
-		for (int i = 0, fieldCount = fields.length; i < fieldCount; i++) {
-			OneToMany otmAnnotation = fields[i].getAnnotation(OneToMany.class);
-			ManyToOne mtoAnnotation = fields[i].getAnnotation(ManyToOne.class);
-
-			if (otmAnnotation != null) {
-				otmFieldAry.add(fields[i]);
-			}
-
-			if (mtoAnnotation != null) {
-				mtoFieldAry.add(fields[i]);
-			}
-		}
+		// 关联字段按类解析一次，各实例共享
+		this.proxyType = ProxyType.get(cls);
+		this.loaded = new boolean[proxyType.associations.length];
 	}
 
 	@Override
 	public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy)
 			throws Throwable {
 
-		// 过滤掉非以“get”开头的方法
-		if (!GetMethodExp.matcher(method.getName()).find()) {
-			return proxy.invokeSuper(obj, args);
+		// 反序列化后重新获取代理类型
+		if (proxyType == null) {
+			proxyType = ProxyType.get(cls);
 		}
 
-		boolean finded = false;
+		Association association = proxyType.getAssociation(method);
 
-		if (otmFieldAry != null) {
-			Iterator<Field> iterator = otmFieldAry.iterator();
+		if (association == null || loaded[association.index]) {
+			return proxy.invokeSuper(obj, args);
+		}
 
-			while (iterator.hasNext()) {
-				Field otmField = iterator.next();
-				OneToMany otmAnnotation = otmField.getAnnotation(OneToMany.class);
+		// 已经赋值（如被同组的其它Bean批量加载）时无需加载
+		Object value = proxy.invokeSuper(obj, args);
+		if (value != null) {
+			loaded[association.index] = true;
+			return value;
+		}
 
+		try {
+			if (association.oneToMany) {
 				String[] primaryKeys = tableAnnotation.primaryKey();
 
-				if (otmAnnotation.lazy()
-						&& BeanUtil.getGetterMethodName(otmField.getName())
-								.equals(method.getName()) && proxy.invokeSuper(obj, args) == null) {
-
-					// 为了提高运行效率，如果在一对多里找到了对应的字段，则不再进行查找
-					finded = true;
-
-					try {
-						BeanFactory.loadOneToMany(dao, cls, primaryKeys, otmField, obj);
-					} catch (Throwable e) {
-					}
+				if (group != null && association.batchSize > 0) {
+					group.loadOneToMany(dao, cls, primaryKeys, association.field, obj);
+				} else {
+					BeanFactory.loadOneToMany(dao, cls, primaryKeys, association.field, obj);
 				}
-			}
-		}
-
-		if (!finded && mtoFieldAry != null) {
-			Iterator<Field> iterator = mtoFieldAry.iterator();
-
-			while (iterator.hasNext()) {
-				Field mtoField = iterator.next();
-				ManyToOne mtoAnnotation = mtoField.getAnnotation(ManyToOne.class);
-
-				if (mtoAnnotation.lazy()
-						&& BeanUtil.getGetterMethodName(mtoField.getName())
-								.equals(method.getName()) && proxy.invokeSuper(obj, args) == null) {
-
-					try {
-						BeanFactory.loadManyToOne(dao, cls, mtoField, obj);
-					} catch (Throwable e) {
-					}
+			} else {
+				if (group != null && association.batchSize > 0) {
+					group.loadManyToOne(dao, cls, association.field, obj);
+				} else {
+					BeanFactory.loadManyToOne(dao, cls, association.field, obj);
 				}
 			}
+
+			loaded[association.index] = true;
+		} catch (Throwable e) {
+			// 加载出现异常时，下次访问再次尝试
 		}
 
 		return proxy.invokeSuper(obj, args);
@@ -0,0 +1,212 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.proxy;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.NoOp;
+
+import org.gridsofts.halo.annotation.ManyToOne;
+import org.gridsofts.halo.annotation.OneToMany;
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.util.BeanUtil;
+
+/**
+ * 实体类的代理类型；按实体类生成一次cglib代理类并解析一次关联字段，此后创建代理Bean时只需实例化。<br/>
+ * 代理类以回调过滤器分派方法：只有延迟加载关联的getter经由拦截器，其它方法直接调用父类方法。<br/>
+ * 基于ClassValue缓存，不会阻止实体类被卸载。
+ * 
+ * @author Lei
+ */
+class ProxyType {
+
+	private static final ClassValue<ProxyType> Registry = new ClassValue<ProxyType>() {
+
+		@Override
+		protected ProxyType computeValue(Class<?> type) {
+			return new ProxyType(type);
+		}
+	};
+
+	// 回调的序号：直接调用父类方法；经由延迟加载拦截器
+	private static final int NoOpCallback = 0;
+	private static final int LazyCallback = 1;
+
+	// 直接调用父类方法的拦截器，仅用于创建原型实例
+	private static final MethodInterceptor PassThrough = (obj, method, args, proxy) -> {
+		return proxy.invokeSuper(obj, args);
+	};
+
+	// 延迟加载的关联，序号即其在数组中的索引
+	final Association[] associations;
+
+	// 需要为同一次查询的全部Bean批量加载（batchSize大于0）的关联数
+	final int batchAssociationCount;
+
+	// 延迟加载关联的getter方法与关联的对应表
+	private final Map<Method, Association> dispatchTable;
+
+	// 代理类的原型实例，由其按给定的拦截器创建新实例
+	private final Factory prototype;
+
+	/**
+	 * 获取给定实体类的代理类型，首次使用时生成代理类
+	 * 
+	 * @param cls
+	 * @return
+	 */
+	static ProxyType get(Class<?> cls) {
+		return Registry.get(cls);
+	}
+
+	private ProxyType(Class<?> cls) {
+
+		// 取出延迟加载的OneToMany、ManyToOne标注
+		List<Association> associations = new ArrayList<>();
+		Map<Method, Association> dispatchTable = new HashMap<>();
+
+		Field[] fields = cls.getDeclaredFields();
+		for (int i = 0, fieldCount = fields.length; i < fieldCount; i++) {
+			OneToMany otmAnnotation = fields[i].getAnnotation(OneToMany.class);
+			ManyToOne mtoAnnotation = fields[i].getAnnotation(ManyToOne.class);
+
+			boolean lazy = (otmAnnotation != null && otmAnnotation.lazy())
+					|| (mtoAnnotation != null && mtoAnnotation.lazy());
+
+			if (!lazy) {
+				continue;
+			}
+
+			// 找不到getter方法的字段不会被访问，因此忽略
+			Method getter = null;
+			try {
+				getter = cls.getMethod(BeanUtil.getGetterMethodName(fields[i].getName()));
+			} catch (Exception e) {
+				continue;
+			}
+
+			Association association = new Association(associations.size(), fields[i], otmAnnotation != null);
+
+			associations.add(association);
+			dispatchTable.put(getter, association);
+		}
+
+		this.associations = associations.toArray(new Association[0]);
+		this.dispatchTable = dispatchTable;
+
+		this.batchAssociationCount = (int) associations.stream().filter(association -> {
+			return association.batchSize > 0;
+		}).count();
+
+		// 生成代理类
+		Enhancer enhancer = new Enhancer();
+		enhancer.setSuperclass(cls);
+		enhancer.setCallbackTypes(new Class<?>[] { NoOp.class, MethodInterceptor.class });
+		enhancer.setCallbackFilter(new DispatchFilter(dispatchTable.keySet()));
+
+		Class<?> proxyClass = enhancer.createClass();
+
+		// 创建原型实例；回调只对当前线程此次实例化有效
+		Enhancer.registerCallbacks(proxyClass, new Callback[] { NoOp.INSTANCE, PassThrough });
+		try {
+			this.prototype = (Factory) proxyClass.newInstance();
+		} catch (Exception e) {
+			throw new DAOException("无法创建代理实例，原始信息：" + e.getMessage());
+		} finally {
+			Enhancer.registerCallbacks(proxyClass, null);
+		}
+	}
+
+	/**
+	 * 获取给定getter方法对应的延迟加载关联
+	 * 
+	 * @param method
+	 * @return 不是延迟加载关联的getter时返回null
+	 */
+	Association getAssociation(Method method) {
+		return dispatchTable.get(method);
+	}
+
+	/**
+	 * 创建代理实例
+	 * 
+	 * @param t
+	 * @param interceptor
+	 *            延迟加载拦截器
+	 * @return
+	 */
+	<T> T newInstance(Class<T> t, MethodInterceptor interceptor) {
+
+		Callback[] callbacks = new Callback[2];
+		callbacks[NoOpCallback] = NoOp.INSTANCE;
+		callbacks[LazyCallback] = interceptor;
+
+		return t.cast(prototype.newInstance(callbacks));
+	}
+
+	/**
+	 * 延迟加载的关联
+	 */
+	static class Association {
+
+		// 序号
+		final int index;
+		// 关联字段
+		final Field field;
+		// 是否是“一对多”集合，否则为“多对一”对象
+		final boolean oneToMany;
+		// 批量加载的批大小
+		final int batchSize;
+
+		Association(int index, Field field, boolean oneToMany) {
+			this.index = index;
+			this.field = field;
+			this.oneToMany = oneToMany;
+			this.batchSize = oneToMany ? field.getAnnotation(OneToMany.class).batchSize()
+					: field.getAnnotation(ManyToOne.class).batchSize();
+		}
+	}
+
+	/**
+	 * 回调过滤器；只将延迟加载关联的getter分派至拦截器。<br/>
+	 * cglib按过滤器的相等性缓存生成的代理类，因此以所分派的方法集合判断相等。
+	 */
+	private static class DispatchFilter implements CallbackFilter {
+
+		private final Set<Method> lazyGetters;
+
+		DispatchFilter(Set<Method> lazyGetters) {
+			this.lazyGetters = new HashSet<>(lazyGetters);
+		}
+
+		@Override
+		public int accept(Method method) {
+			return lazyGetters.contains(method) ? LazyCallback : NoOpCallback;
+		}
+
+		@Override
+		public int hashCode() {
+			return lazyGetters.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof DispatchFilter && lazyGetters.equals(((DispatchFilter) obj).lazyGetters);
+		}
+	}
+}
@@ -571,11 +571,10 @@ public class BeanUtil {
 	 */
 	public static Object convert(final Object value, Class<?> targetCls, ITypeConverter[] typeConverters) {
 
-		if (typeConverters != null && typeConverters.length > 0) {
-			Optional<ITypeConverter> typeConverter = Arrays.stream(typeConverters)
-					.filter(converter -> converter.accept(value, targetCls)).findFirst();
-			if (typeConverter.isPresent()) {
-				return typeConverter.get().convert(value);
+		// 此方法在行映射时会被频繁调用，因此不使用Stream
+		for (int i = 0; typeConverters != null && i < typeConverters.length; i++) {
+			if (typeConverters[i].accept(value, targetCls)) {
+				return typeConverters[i].convert(value);
 			}
 		}
 
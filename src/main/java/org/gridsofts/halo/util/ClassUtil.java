@@ -0,0 +1,109 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * 提供与类加载相关的方法集合
+ * 
+ * @author Lei
+ */
+public class ClassUtil {
+
+	/**
+	 * 查找给定包（含子包）内的所有类，支持目录及Jar包两种形式的类路径
+	 * 
+	 * @param packageName
+	 * @return
+	 */
+	public static List<Class<?>> getClasses(String packageName) {
+
+		List<Class<?>> classes = new ArrayList<>();
+
+		if (StringUtil.isNull(packageName)) {
+			return classes;
+		}
+
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = ClassUtil.class.getClassLoader();
+		}
+
+		String packagePath = packageName.replace('.', '/');
+
+		try {
+			Enumeration<URL> resources = loader.getResources(packagePath);
+
+			while (resources.hasMoreElements()) {
+				URL url = resources.nextElement();
+
+				if ("file".equals(url.getProtocol())) {
+					findClassesInDirectory(loader, packageName,
+							new File(URLDecoder.decode(url.getFile(), "UTF-8")), classes);
+				} else if ("jar".equals(url.getProtocol())) {
+					findClassesInJar(loader, packagePath,
+							((JarURLConnection) url.openConnection()).getJarFile(), classes);
+				}
+			}
+		} catch (IOException e) {
+		}
+
+		return classes;
+	}
+
+	private static void findClassesInDirectory(ClassLoader loader, String packageName, File directory,
+			List<Class<?>> classes) {
+
+		File[] files = directory.listFiles();
+
+		for (int i = 0; files != null && i < files.length; i++) {
+			String fileName = files[i].getName();
+
+			if (files[i].isDirectory()) {
+				findClassesInDirectory(loader, packageName + "." + fileName, files[i], classes);
+			} else if (fileName.endsWith(".class")) {
+				loadClass(loader, packageName + "." + fileName.substring(0, fileName.length() - 6), classes);
+			}
+		}
+	}
+
+	private static void findClassesInJar(ClassLoader loader, String packagePath, JarFile jarFile,
+			List<Class<?>> classes) {
+
+		Enumeration<JarEntry> entries = jarFile.entries();
+
+		while (entries.hasMoreElements()) {
+			String entryName = entries.nextElement().getName();
+
+			if (entryName.startsWith(packagePath + "/") && entryName.endsWith(".class")) {
+				loadClass(loader, entryName.substring(0, entryName.length() - 6).replace('/', '.'), classes);
+			}
+		}
+	}
+
+	private static void loadClass(ClassLoader loader, String className, List<Class<?>> classes) {
+
+		// 跳过匿名类、内部类以及package-info
+		if (className.indexOf('$') >= 0 || className.endsWith("package-info")) {
+			return;
+		}
+
+		try {
+			classes.add(Class.forName(className, false, loader));
+		} catch (Throwable e) {
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL文本的简单分析工具；不是完整的SQL解析器，只用于找出语句涉及的表，供缓存失效使用。<br>
+ * 分析结果宁多勿少：可能包含并非表名的标识符，但不会遗漏FROM/JOIN/INTO/UPDATE之后的表。
+ * 
+ * @author Lei
+ */
+public class SqlUtil {
+
+	// 字符串常量及注释
+	private static final Pattern LiteralExp = Pattern.compile("'(?:[^']|'')*'|--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+
+	// 标识符（可含引号及“schema.”前缀）、逗号、括号
+	private static final Pattern TokenExp = Pattern.compile("[\\w$#.`\"\\[\\]]+|[,()]");
+
+	// 其后跟随表名的关键字
+	private static final Set<String> QueryTableKeywords = new HashSet<>(Arrays.asList("FROM", "JOIN"));
+	private static final Set<String> UpdateTableKeywords = new HashSet<>(Arrays.asList("FROM", "JOIN", "UPDATE",
+			"INTO", "TABLE"));
+
+	// 不能作为表别名的关键字
+	private static final Set<String> Keywords = new HashSet<>(Arrays.asList("WHERE", "JOIN", "LEFT", "RIGHT",
+			"INNER", "OUTER", "FULL", "CROSS", "NATURAL", "ON", "USING", "GROUP", "ORDER", "HAVING", "UNION",
+			"INTERSECT", "EXCEPT", "MINUS", "LIMIT", "OFFSET", "FETCH", "FOR", "SET", "VALUES", "SELECT", "WINDOW",
+			"START", "CONNECT", "RETURNING", "DEFAULT", "PARTITION", "WITH"));
+
+	/**
+	 * 找出查询语句读取的表
+	 * 
+	 * @param sql
+	 * @return 全大写、不含schema前缀的表名；无法找到时返回空集合
+	 */
+	public static Set<String> getQueryTables(String sql) {
+		return getTables(sql, QueryTableKeywords);
+	}
+
+	/**
+	 * 找出更新语句（INSERT/UPDATE/DELETE/MERGE/REPLACE/TRUNCATE）涉及的表；包括只被读取的表
+	 * 
+	 * @param sql
+	 * @return 全大写、不含schema前缀的表名；无法找到时返回空集合
+	 */
+	public static Set<String> getModifiedTables(String sql) {
+		return getTables(sql, UpdateTableKeywords);
+	}
+
+	/**
+	 * 规范化表名：去掉引号及schema前缀，转为大写
+	 * 
+	 * @param tableName
+	 * @return
+	 */
+	public static String normalizeTableName(String tableName) {
+
+		String name = tableName.replaceAll("[`\"\\[\\]]", "");
+
+		int dot = name.lastIndexOf('.');
+		if (dot >= 0) {
+			name = name.substring(dot + 1);
+		}
+
+		return name.toUpperCase();
+	}
+
+	private static Set<String> getTables(String sql, Set<String> tableKeywords) {
+
+		Set<String> tables = new LinkedHashSet<>();
+
+		if (sql == null) {
+			return tables;
+		}
+
+		List<String> tokens = new ArrayList<>();
+
+		Matcher matcher = TokenExp.matcher(LiteralExp.matcher(sql).replaceAll(" "));
+		while (matcher.find()) {
+			tokens.add(matcher.group());
+		}
+
+		for (int i = 0, count = tokens.size(); i < count; i++) {
+
+			if (!tableKeywords.contains(tokens.get(i).toUpperCase())) {
+				continue;
+			}
+
+			// 表名[ [AS] 别名][, 表名[ [AS] 别名] ...]；子查询中的表由其自身的FROM找出
+			int j = i + 1;
+			while (j < count && isIdentifier(tokens.get(j))) {
+				tables.add(normalizeTableName(tokens.get(j++)));
+
+				if (j < count && "AS".equalsIgnoreCase(tokens.get(j))) {
+					j++;
+				}
+
+				if (j < count && isIdentifier(tokens.get(j))) {
+					j++;
+				}
+
+				if (j < count && ",".equals(tokens.get(j))) {
+					j++;
+				} else {
+					break;
+				}
+			}
+		}
+
+		return tables;
+	}
+
+	private static boolean isIdentifier(String token) {
+		return !",".equals(token) && !"(".equals(token) && !")".equals(token)
+				&& !Keywords.contains(token.toUpperCase());
+	}
+}
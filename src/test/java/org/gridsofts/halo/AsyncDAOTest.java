@@ -0,0 +1,144 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.exception.ConnectionException;
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.itf.IConnectionFactory;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 异步DAO的测试：失败时Future异常完成，每个操作单独请求并交还连接
+ * 
+ * @author Lei
+ */
+public class AsyncDAOTest extends H2TestCase {
+
+	private static final int Threads = 4;
+
+	private ExecutorService executor;
+	private AsyncDAO async;
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		executor = AsyncDAO.newBoundedExecutor(Threads);
+		async = new AsyncDAO(dao, executor);
+
+		execute("insert into ORDERS (id, title, amount) select X, 'order-' || X, X from system_range(1, 10)");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		async.close();
+		executor.shutdownNow();
+
+		super.tearDown();
+	}
+
+	public void testFailureCompletesExceptionally() throws Exception {
+
+		CompletableFuture<Integer> update = async.executeUpdate("update MISSING set amount = ?", 1);
+
+		try {
+			update.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof DAOException);
+		}
+
+		assertTrue(update.isCompletedExceptionally());
+		assertEquals(0, openConnections.get());
+
+		// 失败的操作不影响之后的操作
+		assertEquals(10, async.list(Order.class).get(5, TimeUnit.SECONDS).size());
+		assertEquals(0, openConnections.get());
+	}
+
+	public void testEachOperationHoldsItsOwnConnection() throws Exception {
+
+		AtomicInteger peak = new AtomicInteger();
+		CountDownLatch allRequested = new CountDownLatch(Threads);
+
+		// 所有操作都取得连接之后才放行，以证明它们同时各占一个连接
+		IConnectionFactory gated = new IConnectionFactory() {
+
+			@Override
+			public Connection getConnection() throws ConnectionException {
+
+				Connection conn = factory.getConnection();
+				peak.accumulateAndGet(openConnections.get(), Math::max);
+
+				allRequested.countDown();
+				try {
+					allRequested.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				return conn;
+			}
+
+			@Override
+			public void release(Connection conn) {
+				factory.release(conn);
+			}
+		};
+
+		SuperDAO gatedDAO = new SuperDAO(gated);
+		gatedDAO.dialect = createDialect();
+
+		try (AsyncDAO gatedAsync = new AsyncDAO(gatedDAO, executor)) {
+
+			List<CompletableFuture<Order>> finds = new ArrayList<>();
+			for (int i = 1; i <= Threads; i++) {
+				finds.add(gatedAsync.find(Order.class, i));
+			}
+
+			for (int i = 0; i < finds.size(); i++) {
+				assertEquals(i + 1, finds.get(i).get(10, TimeUnit.SECONDS).getAmount().intValue());
+			}
+		}
+
+		assertEquals(Threads, peak.get());
+		assertEquals(0, openConnections.get());
+	}
+
+	public void testCloseShutsDownOnlyOwnedExecutor() {
+
+		async.close();
+		assertFalse(executor.isShutdown());
+
+		AsyncDAO owning = new AsyncDAO(dao);
+		assertEquals(10, owning.list(Order.class).join().size());
+
+		owning.close();
+
+		try {
+			owning.find(Order.class, 1);
+			fail();
+		} catch (RuntimeException e) {
+		}
+	}
+}
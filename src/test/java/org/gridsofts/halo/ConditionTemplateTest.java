@@ -0,0 +1,98 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gridsofts.halo.bean.Condition;
+import org.gridsofts.halo.bean.Condition.Param;
+import org.gridsofts.halo.bean.Condition.Param.Association;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * In/NotIn列表的分档及超长列表的拆分
+ * 
+ * @author Lei
+ */
+public class ConditionTemplateTest extends H2TestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	private static List<Integer> range(int from, int to) {
+
+		List<Integer> values = new ArrayList<>();
+		for (int i = from; i <= to; i++) {
+			values.add(i);
+		}
+
+		return values;
+	}
+
+	private static int countPlaceholders(String where) {
+		return where.length() - where.replace("?", "").length();
+	}
+
+	public void testBucketSizes() {
+
+		assertEquals(0, ConditionTemplate.getBucketSize(0));
+		assertEquals(8, ConditionTemplate.getBucketSize(1));
+		assertEquals(64, ConditionTemplate.getBucketSize(33));
+		assertEquals(128, ConditionTemplate.getBucketSize(65));
+		assertEquals(960, ConditionTemplate.getBucketSize(960));
+
+		// 不能补齐到1024
+		assertEquals(1000, ConditionTemplate.getBucketSize(961));
+		assertEquals(1000, ConditionTemplate.getBucketSize(1000));
+
+		assertEquals(1008, ConditionTemplate.getBucketSize(1001));
+		assertEquals(2064, ConditionTemplate.getBucketSize(2050));
+		assertEquals(3000, ConditionTemplate.getBucketSize(3000));
+
+		for (int size = 1; size <= 5000; size++) {
+			int bucket = ConditionTemplate.getBucketSize(size);
+
+			assertTrue(bucket >= size);
+			assertTrue(bucket < size + ConditionTemplate.MaxInListSize);
+		}
+	}
+
+	public void testInListNeverExceedsLimit() {
+
+		for (int size : new int[] { 961, 1000, 1001, 2500 }) {
+			Condition condition = Condition.newInstance().put(new Param("id", range(1, size), Association.In));
+
+			String where = dao.getConditionTemplate(Order.class, condition).where;
+
+			assertEquals(ConditionTemplate.getBucketSize(size), countPlaceholders(where));
+			assertEquals(ConditionTemplate.getBucketSize(size), ConditionTemplate.getParameters(condition).length);
+
+			for (String list : where.split("\\)")) {
+				assertTrue(countPlaceholders(list) <= ConditionTemplate.MaxInListSize);
+			}
+		}
+	}
+
+	public void testSplitInListsQueryCorrectly() throws Exception {
+
+		execute("insert into ORDERS (title, amount) select 'order-' || X, X from system_range(1, 2500)");
+
+		Condition in = Condition.newInstance().put(new Param("id", range(1, 2100), Association.In))
+				.put(new Param("amount", 5, Association.NotEquals));
+
+		assertEquals(2099, dao.count(Order.class, in));
+		assertEquals(2099, dao.list(Order.class, in).size());
+
+		Condition notIn = Condition.newInstance().put(new Param("id", range(1, 2100), Association.NotIn));
+
+		assertEquals(400, dao.count(Order.class, notIn));
+	}
+}
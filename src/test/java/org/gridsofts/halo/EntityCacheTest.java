@@ -0,0 +1,95 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Region;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 实体缓存的测试；查询与写入缓存之间发生的修改不能留下旧数据
+ * 
+ * @author Lei
+ */
+public class EntityCacheTest extends H2TestCase {
+
+	// 下一次查询读出结果之后、写入缓存之前执行的操作
+	private Runnable afterRead;
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		dao = new SuperDAO(factory) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected String[] readRows(PreparedStatement stat, List<Object[]> rows) throws SQLException {
+
+				String[] labels = super.readRows(stat, rows);
+
+				Runnable action = afterRead;
+				if (action != null) {
+					afterRead = null;
+					action.run();
+				}
+
+				return labels;
+			}
+		};
+		dao.dialect = createDialect();
+
+		execute("insert into CUSTOMER (id, name) values (1, 'old')");
+	}
+
+	public void testFindIsCached() {
+
+		assertEquals("old", dao.find(Region.class, 1).getName());
+		assertEquals("old", dao.find(Region.class, 1).getName());
+
+		assertEquals(1, dao.getEntityCache().getStats(Region.class).getHitCount());
+	}
+
+	public void testUpdateDuringFindIsNotCachedStale() {
+
+		afterRead = () -> dao.update(new Region(1, "new"));
+
+		// 读到的是修改之前的行
+		assertEquals("old", dao.find(Region.class, 1).getName());
+
+		assertEquals("new", dao.find(Region.class, 1).getName());
+		assertEquals("new", dao.find(Region.class, 1).getName());
+	}
+
+	public void testDeleteDuringFindIsNotCachedStale() {
+
+		afterRead = () -> dao.delete(new Region(1, null));
+
+		assertNotNull(dao.find(Region.class, 1));
+		assertNull(dao.find(Region.class, 1));
+	}
+
+	public void testUpdateOfOtherKeyKeepsCaching() throws Exception {
+
+		execute("insert into CUSTOMER (id, name) values (2, 'other')");
+
+		afterRead = () -> dao.update(new Region(2, "changed"));
+
+		dao.find(Region.class, 1);
+		dao.find(Region.class, 1);
+
+		assertEquals(1, dao.getEntityCache().getStats(Region.class).getHitCount());
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.gridsofts.halo.exception.ConnectionException;
+import org.gridsofts.halo.itf.IConnectionFactory;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 基于H2内存数据库的测试基类；每个测试方法使用一个新建的数据库，含CUSTOMER、ORDERS两张表。
+ * 
+ * @author Lei
+ */
+public abstract class H2TestCase extends TestCase {
+
+	private static final AtomicInteger DatabaseSeq = new AtomicInteger();
+
+	protected String url;
+	protected IConnectionFactory factory;
+	protected SuperDAO dao;
+
+	// 已请求但尚未交还的连接数
+	protected final AtomicInteger openConnections = new AtomicInteger();
+
+	/**
+	 * @return H2的兼容模式（如MySQL、Oracle）；为null时使用H2自身的语法
+	 */
+	protected String getMode() {
+		return null;
+	}
+
+	/**
+	 * @return DAO使用的方言
+	 */
+	protected abstract IDialect createDialect();
+
+	@Override
+	protected void setUp() throws Exception {
+
+		url = "jdbc:h2:mem:halo" + DatabaseSeq.incrementAndGet() + ";DB_CLOSE_DELAY=-1"
+				+ (getMode() == null ? "" : ";MODE=" + getMode());
+
+		factory = new IConnectionFactory() {
+
+			@Override
+			public Connection getConnection() throws ConnectionException {
+				try {
+					Connection conn = DriverManager.getConnection(url);
+					openConnections.incrementAndGet();
+					return conn;
+				} catch (SQLException e) {
+					throw new ConnectionException();
+				}
+			}
+
+			@Override
+			public void release(Connection conn) {
+				try {
+					conn.close();
+					openConnections.decrementAndGet();
+				} catch (SQLException e) {
+				}
+			}
+		};
+
+		execute("create table CUSTOMER (id int generated by default as identity primary key, name varchar(50))",
+				"create table ORDERS (id int generated by default as identity primary key, title varchar(50),"
+						+ " amount int, customerId int, createdBy varchar(20) default 'db')");
+
+		dao = new SuperDAO(factory);
+		dao.dialect = createDialect();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		execute("shutdown");
+	}
+
+	/**
+	 * 绕过DAO直接执行SQL
+	 *
+	 * @param sqls
+	 * @throws SQLException
+	 */
+	protected void execute(String... sqls) throws SQLException {
+
+		Connection conn = factory.getConnection();
+
+		try (Statement stat = conn.createStatement()) {
+			for (String sql : sqls) {
+				stat.execute(sql);
+			}
+		} finally {
+			factory.release(conn);
+		}
+	}
+}
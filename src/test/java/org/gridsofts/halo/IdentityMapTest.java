@@ -0,0 +1,106 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.Arrays;
+
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Customer;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 手动事务中已加载实体（一级缓存）的测试
+ * 
+ * @author Lei
+ */
+public class IdentityMapTest extends H2TestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		execute("insert into CUSTOMER (id, name) values (1, 'a'), (2, 'b')",
+				"insert into ORDERS (id, title, amount, customerId) values (1, 'o1', 10, 1)");
+
+		dao.beginTransaction();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		dao.rollBackTransaction();
+
+		super.tearDown();
+	}
+
+	public void testFindReturnsSameInstance() {
+		assertSame(dao.find(Customer.class, 1), dao.find(Customer.class, 1));
+	}
+
+	public void testUpdateOfLoadedInstanceKeepsIdentity() {
+
+		Customer loaded = dao.find(Customer.class, 1);
+		loaded.setName("x");
+
+		assertEquals(1, dao.update(loaded));
+		assertSame(loaded, dao.find(Customer.class, 1));
+	}
+
+	public void testUpdateWithOtherInstanceReloads() {
+
+		Customer loaded = dao.find(Customer.class, 1);
+
+		assertEquals(1, dao.update(new Customer(1, "x")));
+
+		Customer reloaded = dao.find(Customer.class, 1);
+
+		assertNotSame(loaded, reloaded);
+		assertEquals("x", reloaded.getName());
+	}
+
+	public void testBatchUpdateWithOtherInstancesReloads() {
+
+		dao.find(Customer.class, 1);
+		dao.find(Customer.class, 2);
+
+		assertEquals(2, dao.batchUpdate(Customer.class, Arrays.asList(new Customer(1, "x"), new Customer(2, "y"))));
+
+		assertEquals("x", dao.find(Customer.class, 1).getName());
+		assertEquals("y", dao.find(Customer.class, 2).getName());
+	}
+
+	public void testUpsertWithOtherInstanceReloads() {
+
+		dao.find(Customer.class, 1);
+
+		assertEquals(1, dao.saveOrUpdate(Customer.class, new Customer(1, "x")));
+		assertEquals("x", dao.find(Customer.class, 1).getName());
+	}
+
+	public void testListRegistersCompleteRows() {
+
+		Customer listed = dao.list(Customer.class, "where id = ?", 1).get(0);
+
+		assertSame(listed, dao.find(Customer.class, 1));
+	}
+
+	public void testProjectionIsNotRegistered() {
+
+		Order projected = dao.executeUniqueQuery(Order.class, "select id, title from ORDERS where id = ?", 1);
+		assertNull(projected.getAmount());
+
+		Order found = dao.find(Order.class, 1);
+
+		assertNotSame(projected, found);
+		assertEquals(Integer.valueOf(10), found.getAmount());
+		assertEquals("db", found.getCreatedBy());
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gridsofts.halo.annotation.ManyToOne;
+import org.gridsofts.halo.annotation.Table;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Customer;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 以LEFT JOIN立即加载“多对一”关联的测试
+ * 
+ * @author Lei
+ */
+public class JoinFetchTest extends H2TestCase {
+
+	/**
+	 * 以连接方式加载客户的订单
+	 */
+	@Table(value = "ORDERS", primaryKey = { "id" })
+	public static class JoinedOrder {
+
+		private Integer id;
+		private String title;
+		private Integer customerId;
+
+		@ManyToOne(foreignKey = { "customerId" }, fetch = ManyToOne.JOIN)
+		private Customer customer;
+
+		public Integer getId() {
+			return id;
+		}
+
+		public void setId(Integer id) {
+			this.id = id;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public void setTitle(String title) {
+			this.title = title;
+		}
+
+		public Integer getCustomerId() {
+			return customerId;
+		}
+
+		public void setCustomerId(Integer customerId) {
+			this.customerId = customerId;
+		}
+
+		public Customer getCustomer() {
+			return customer;
+		}
+
+		public void setCustomer(Customer customer) {
+			this.customer = customer;
+		}
+	}
+
+	// 经由prepareStatement执行的SQL文本
+	private final List<String> preparedSqls = new ArrayList<>();
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		dao = new SuperDAO(factory) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+				preparedSqls.add(sql);
+				return super.prepareStatement(conn, sql);
+			}
+		};
+		dao.dialect = createDialect();
+		dao.setCascading(true);
+
+		// 订单4没有客户，订单5的客户不存在
+		execute("insert into CUSTOMER (id, name) values (1, 'a'), (2, 'b')",
+				"insert into ORDERS (id, title, customerId) values (1, 'o1', 1), (2, 'o2', 2), (3, 'o3', 1),"
+						+ " (4, 'o4', null), (5, 'o5', 99)");
+	}
+
+	public void testListReadsReferencedRowsInOneStatement() {
+
+		List<JoinedOrder> orders = dao.list(JoinedOrder.class, "order by id");
+
+		assertEquals(1, preparedSqls.size());
+		assertTrue(preparedSqls.get(0).contains("LEFT JOIN"));
+
+		assertEquals(5, orders.size());
+		assertEquals("a", orders.get(0).getCustomer().getName());
+		assertEquals("b", orders.get(1).getCustomer().getName());
+
+		// 引用同一客户的行共享一个实例
+		assertSame(orders.get(0).getCustomer(), orders.get(2).getCustomer());
+
+		// LEFT JOIN不丢弃没有对应客户的订单
+		assertEquals("o4", orders.get(3).getTitle());
+		assertNull(orders.get(3).getCustomer());
+		assertEquals("o5", orders.get(4).getTitle());
+		assertNull(orders.get(4).getCustomer());
+
+		assertEquals(1, preparedSqls.size());
+	}
+
+	public void testConditionResolvesToMainTable() {
+
+		// 未限定的列名指主表的列，而非连接表的同名列
+		List<JoinedOrder> orders = dao.list(JoinedOrder.class, "where id > ? order by id", 3);
+
+		assertEquals(2, orders.size());
+		assertEquals(4, orders.get(0).getId().intValue());
+		assertEquals(1, preparedSqls.size());
+	}
+
+	public void testFindJoinsReferencedRow() {
+
+		JoinedOrder order = dao.find(JoinedOrder.class, 2);
+
+		assertEquals("o2", order.getTitle());
+		assertEquals("b", order.getCustomer().getName());
+		assertEquals(1, preparedSqls.size());
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gridsofts.halo.bean.KeysetPage;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 键集分页的测试；Order按金额、主键排序
+ * 
+ * @author Lei
+ */
+public class KeysetPageTest extends H2TestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		// 金额有重复，由主键区分先后
+		execute("insert into ORDERS (title, amount) select 'order-' || X, mod(X * 7, 10) from system_range(1, 25)");
+	}
+
+	public void testPagesFollowSeekKey() {
+
+		List<Order> all = new ArrayList<>();
+
+		Object[] lastKey = null;
+		KeysetPage<Order> page;
+		do {
+			page = dao.listAfter(Order.class, lastKey, 4, "where title <> ?", "order-3");
+
+			all.addAll(page.getItems());
+			lastKey = page.getNextKey();
+		} while (page.hasNext());
+
+		assertEquals(24, all.size());
+
+		for (int i = 1; i < all.size(); i++) {
+			Order prev = all.get(i - 1), order = all.get(i);
+
+			assertTrue(prev.getAmount() < order.getAmount()
+					|| prev.getAmount().equals(order.getAmount()) && prev.getId() < order.getId());
+		}
+	}
+
+	public void testRejectsTrailingClauses() {
+
+		for (String condition : new String[] { "where title <> ? order by title", "where title <> ? ORDER  BY id desc",
+				"where title <> ? group by title", "title <> ? limit 3" }) {
+			try {
+				dao.listAfter(Order.class, null, 4, condition, "x");
+				fail(condition);
+			} catch (DAOException e) {
+			}
+		}
+	}
+
+	public void testTrailingClauseDetection() {
+
+		assertFalse(SuperDAO.hasTrailingClause("where title = 'order by'"));
+		assertFalse(SuperDAO.hasTrailingClause("where id in (select id from ORDERS group by id having count(*) > 1)"));
+		assertFalse(SuperDAO.hasTrailingClause("where ordered_by = ?"));
+		assertTrue(SuperDAO.hasTrailingClause("where (title = ?) order by title"));
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Customer;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 按批大小为整个结果列表加载“一对多”集合的测试
+ * 
+ * @author Lei
+ */
+public class OneToManyBatchTest extends H2TestCase {
+
+	// 经由prepareStatement执行的SQL文本
+	private final List<String> preparedSqls = new ArrayList<>();
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		dao = new SuperDAO(factory) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+				preparedSqls.add(sql);
+				return super.prepareStatement(conn, sql);
+			}
+		};
+		dao.dialect = createDialect();
+		dao.setCascading(true);
+
+		// 25个客户；第i个客户有i % 3个订单，客户3、6、...没有订单
+		execute("insert into CUSTOMER (id, name) select X, 'customer-' || X from system_range(1, 25)",
+				"insert into ORDERS (id, title, amount, customerId) select X, 'order-' || X, X, X / 2"
+						+ " from system_range(2, 51) where mod(X / 2, 3) > 0 and mod(X, 2) < mod(X / 2, 3)");
+	}
+
+	private static List<Order> getLoadedOrders(Customer customer) throws Exception {
+
+		Field ordersField = Customer.class.getDeclaredField("orders");
+		ordersField.setAccessible(true);
+
+		@SuppressWarnings("unchecked")
+		List<Order> orders = (List<Order>) ordersField.get(customer);
+
+		return orders;
+	}
+
+	private static int countBatchQueries(List<String> sqls) {
+		return (int) sqls.stream().filter(sql -> {
+			return sql.contains("customerId in");
+		}).count();
+	}
+
+	public void testFirstAccessLoadsWholeListInBatches() throws Exception {
+
+		List<Customer> customers = dao.list(Customer.class, "order by id");
+		assertEquals(25, customers.size());
+
+		preparedSqls.clear();
+
+		assertEquals(1, customers.get(0).getOrders().size());
+
+		// 批大小为10，25个客户分三次查询
+		assertEquals(3, preparedSqls.size());
+		assertEquals(3, countBatchQueries(preparedSqls));
+
+		for (Customer customer : customers) {
+			List<Order> orders = getLoadedOrders(customer);
+
+			assertNotNull(orders);
+			assertEquals(customer.getId() % 3, orders.size());
+
+			for (Order order : orders) {
+				assertEquals(customer.getId(), order.getCustomerId());
+			}
+		}
+
+		// 组内其它客户不再查询
+		for (Customer customer : customers) {
+			customer.getOrders();
+		}
+
+		assertEquals(3, preparedSqls.size());
+	}
+
+	public void testGroupedOrdersKeepQueryOrder() throws Exception {
+
+		List<Customer> customers = dao.list(Customer.class, "order by id");
+
+		Customer second = customers.get(1);
+
+		assertEquals("[4, 5]", second.getOrders().stream().map(Order::getId).collect(Collectors.toList()).toString());
+		assertTrue(getLoadedOrders(customers.get(2)).isEmpty());
+	}
+}
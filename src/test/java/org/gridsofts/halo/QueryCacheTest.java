@@ -0,0 +1,100 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.List;
+
+import org.gridsofts.halo.cache.CacheStats;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 查询缓存的命中、未命中，及经由DAO修改数据时按表失效的测试
+ * 
+ * @author Lei
+ */
+public class QueryCacheTest extends H2TestCase {
+
+	private static final String OrdersAbove = "select * from ORDERS where amount > ? order by amount";
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		dao.setQueryCache(1 << 20, 0);
+
+		execute("insert into ORDERS (id, title, amount) select X, 'order-' || X, X from system_range(1, 5)");
+	}
+
+	private CacheStats getStats() {
+		return dao.getQueryCache().getStats();
+	}
+
+	public void testRepeatedQueryIsServedFromCache() throws Exception {
+
+		assertEquals(3, dao.executeQuery(Order.class, OrdersAbove, 2).size());
+		assertEquals(0, getStats().getHitCount());
+
+		// 绕过DAO修改数据，缓存不会失效，命中时仍返回原结果
+		execute("delete from ORDERS where id = 5");
+
+		List<Order> cached = dao.executeQuery(Order.class, OrdersAbove, 2);
+
+		assertEquals(3, cached.size());
+		assertEquals(1, getStats().getHitCount());
+
+		// 每次命中都构造新的Bean
+		assertNotSame(cached.get(0), dao.executeQuery(Order.class, OrdersAbove, 2).get(0));
+		assertEquals(2, getStats().getHitCount());
+	}
+
+	public void testDifferentParametersMiss() {
+
+		assertEquals(3, dao.executeQuery(Order.class, OrdersAbove, 2).size());
+		assertEquals(2, dao.executeQuery(Order.class, OrdersAbove, 3).size());
+		assertEquals(1, dao.executeQuery(Order.class, 0, 1, OrdersAbove, 2).size());
+
+		assertEquals(0, getStats().getHitCount());
+		assertEquals(3, getStats().getMissCount());
+	}
+
+	public void testExecuteUpdateInvalidatesQueriedTable() {
+
+		assertEquals(3, dao.executeQuery(Order.class, OrdersAbove, 2).size());
+
+		assertEquals(1, dao.executeUpdate("update ORDERS set amount = 0 where id = ?", 5));
+
+		assertEquals(2, dao.executeQuery(Order.class, OrdersAbove, 2).size());
+		assertEquals(0, getStats().getHitCount());
+	}
+
+	public void testUpdateOfOtherTableKeepsCachedResult() {
+
+		assertEquals(3, dao.executeQuery(Order.class, OrdersAbove, 2).size());
+
+		dao.executeUpdate("insert into CUSTOMER (name) values (?)", "someone");
+
+		assertEquals(3, dao.executeQuery(Order.class, OrdersAbove, 2).size());
+		assertEquals(1, getStats().getHitCount());
+	}
+
+	public void testEntityUpdateInvalidatesList() {
+
+		assertEquals(5, dao.list(Order.class).size());
+
+		Order order = dao.find(Order.class, 1);
+		dao.delete(order);
+
+		assertEquals(4, dao.list(Order.class).size());
+		assertEquals(0, getStats().getHitCount());
+	}
+}
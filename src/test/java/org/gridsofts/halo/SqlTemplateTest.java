@@ -0,0 +1,149 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.gridsofts.halo.annotation.Table;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * SQL模板的测试：按（实体类，表名）缓存，执行时复用同一SQL文本
+ * 
+ * @author Lei
+ */
+public class SqlTemplateTest extends H2TestCase {
+
+	// 经由prepareStatement执行的SQL文本
+	private final List<String> preparedSqls = new ArrayList<>();
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		dao = new SuperDAO(factory) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+				preparedSqls.add(sql);
+				return super.prepareStatement(conn, sql);
+			}
+		};
+		dao.dialect = createDialect();
+
+		execute("insert into ORDERS (id, title, amount) values (1, 'first', 1)");
+	}
+
+	public void testTemplateIsCachedPerTable() throws Exception {
+
+		MetaInfo metaInfo = MetaInfo.get(Order.class);
+
+		SqlTemplate template = dao.getSqlTemplate(metaInfo);
+
+		assertSame(template, dao.getSqlTemplate(metaInfo));
+		assertSame(template, metaInfo.getSqlTemplate("ORDERS"));
+
+		SqlTemplate archived = metaInfo.getSqlTemplate("ORDERS_2013");
+
+		assertNotSame(template, archived);
+		assertSame(archived, metaInfo.getSqlTemplate("ORDERS_2013"));
+		assertTrue(archived.selectByPrimaryKey.contains("FROM ORDERS_2013 "));
+	}
+
+	public void testTableNameOverrideGetsItsOwnTemplate() throws Exception {
+
+		SuperDAO archiveDao = new SuperDAO(factory) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected String getTableName(Table metaTable) {
+				return metaTable.value() + "_ARCHIVE";
+			}
+		};
+
+		MetaInfo metaInfo = MetaInfo.get(Order.class);
+
+		SqlTemplate archived = archiveDao.getSqlTemplate(metaInfo);
+
+		assertEquals("ORDERS_ARCHIVE", archived.tableName);
+		assertNotSame(dao.getSqlTemplate(metaInfo), archived);
+		assertSame(archived, archiveDao.getSqlTemplate(metaInfo));
+	}
+
+	public void testRepeatedOperationsReuseSqlText() {
+
+		for (int i = 0; i < 3; i++) {
+			Order order = dao.find(Order.class, 1);
+
+			order.setAmount(i);
+			dao.update(order);
+		}
+
+		// find、update交替执行，各自每次使用同一个字符串实例
+		assertEquals(6, preparedSqls.size());
+
+		for (int i = 2; i < preparedSqls.size(); i++) {
+			assertSame(preparedSqls.get(i - 2), preparedSqls.get(i));
+		}
+	}
+
+	/**
+	 * 取得缓存的模板与每次拼接SQL相比，每次操作分配的内存应下降一个数量级以上
+	 */
+	public void testCachedTemplateAllocatesLessThanBuildingSql() throws Exception {
+
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+			return;
+		}
+
+		MetaInfo metaInfo = MetaInfo.get(Order.class);
+
+		int operations = 20000;
+		long threadId = Thread.currentThread().getId();
+
+		// 预热
+		for (int i = 0; i < operations; i++) {
+			dao.getSqlTemplate(metaInfo);
+			new SqlTemplate(metaInfo, "ORDERS", Collections.emptyList());
+		}
+
+		long start = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < operations; i++) {
+			dao.getSqlTemplate(metaInfo);
+		}
+		long cachedBytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+		start = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < operations; i++) {
+			new SqlTemplate(metaInfo, "ORDERS", Collections.emptyList());
+		}
+		long builtBytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+		assertTrue("cached " + cachedBytes / operations + " B/op, built " + builtBytes / operations + " B/op",
+				cachedBytes * 10 < builtBytes);
+	}
+}
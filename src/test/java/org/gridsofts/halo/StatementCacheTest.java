@@ -0,0 +1,103 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import org.gridsofts.halo.cache.StatementCache;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+import org.gridsofts.halo.pool.PooledConnectionFactory;
+
+/**
+ * 预编译语句缓存的测试，经由只有一个连接的连接池执行
+ * 
+ * @author Lei
+ */
+public class StatementCacheTest extends H2TestCase {
+
+	private PooledConnectionFactory pool;
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		pool = new PooledConnectionFactory(url, null, null);
+		pool.setMaxSize(1);
+
+		dao = new SuperDAO(pool);
+		dao.dialect = createDialect();
+
+		execute("insert into ORDERS (id, title, amount) values (1, 'first', 1)");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		pool.close();
+		super.tearDown();
+	}
+
+	public void testRepeatedStatementsHitCache() {
+
+		for (int i = 0; i < 5; i++) {
+			Order order = dao.find(Order.class, 1);
+
+			order.setAmount(i);
+			dao.update(order);
+		}
+
+		StatementCache cache = dao.getStatementCache();
+
+		// 首次的find、update未命中，其后每次都命中
+		assertEquals(2, cache.getMissCount());
+		assertEquals(8, cache.getHitCount());
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getEvictionCount());
+
+		assertEquals(4, dao.find(Order.class, 1).getAmount().intValue());
+	}
+
+	public void testLeastRecentlyUsedStatementsAreClosedBeyondMaxSize() {
+
+		dao.setStatementCacheSize(2);
+
+		// 三种不同的语句轮流执行，每次都淘汰最久未使用的一个
+		for (int i = 0; i < 3; i++) {
+			dao.find(Order.class, 1);
+			dao.getTotalQuantity(Order.class, null);
+			dao.list(Order.class);
+		}
+
+		StatementCache cache = dao.getStatementCache();
+
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(9, cache.getMissCount());
+		assertEquals(7, cache.getEvictionCount());
+
+		// 最近使用的两个语句仍可命中
+		dao.list(Order.class);
+		dao.getTotalQuantity(Order.class, null);
+
+		assertEquals(2, cache.getHitCount());
+	}
+
+	public void testNoReuseWithoutPooledConnections() {
+
+		SuperDAO unpooled = new SuperDAO(factory);
+		unpooled.dialect = createDialect();
+
+		for (int i = 0; i < 3; i++) {
+			unpooled.find(Order.class, 1);
+		}
+
+		assertEquals(0, unpooled.getStatementCache().getHitCount());
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.gridsofts.halo.dialect.MysqlDialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 批量保存、按主键批量删除的测试
+ * 
+ * @author Lei
+ */
+public class SuperDAOBatchTest extends H2TestCase {
+
+	@Override
+	protected String getMode() {
+		return "MySQL";
+	}
+
+	@Override
+	protected IDialect createDialect() {
+		return new MysqlDialect();
+	}
+
+	private static Order[] newOrders(int count) {
+
+		Order[] orders = new Order[count];
+		for (int i = 0; i < count; i++) {
+			orders[i] = new Order("order-" + i, i, null);
+		}
+
+		return orders;
+	}
+
+	public void testBatchSaveWritesBackKeysOfEveryChunk() {
+
+		dao.setBatchSize(3);
+		dao.setCommitPerBatch(true);
+
+		Order[] orders = newOrders(7);
+
+		assertEquals(7, dao.batchSave(Order.class, orders));
+		assertEquals(7, dao.getTotalQuantity(Order.class, null));
+
+		Set<Integer> ids = new HashSet<>();
+		for (Order order : orders) {
+			assertNotNull(order.getId());
+			ids.add(order.getId());
+
+			assertEquals(order.getTitle(), dao.find(Order.class, order.getId()).getTitle());
+		}
+
+		assertEquals(7, ids.size());
+		assertEquals(0, openConnections.get());
+	}
+
+	public void testBatchSaveKeepsCommittedChunksOnFailure() {
+
+		dao.setBatchSize(2);
+		dao.setCommitPerBatch(true);
+
+		Order[] orders = newOrders(5);
+
+		// 超出列长度，第二批执行失败
+		orders[3].setTitle(String.join("", Collections.nCopies(60, "x")));
+
+		try {
+			dao.batchSave(Order.class, orders);
+			fail();
+		} catch (DAOException e) {
+		}
+
+		assertEquals(2, dao.getTotalQuantity(Order.class, null));
+		assertEquals(0, openConnections.get());
+	}
+
+	public void testBatchSaveInTransactionCommitsOnce() {
+
+		dao.setBatchSize(2);
+		dao.setCommitPerBatch(true);
+
+		dao.beginTransaction();
+		dao.batchSave(Order.class, newOrders(5));
+		dao.rollBackTransaction();
+
+		assertEquals(0, dao.getTotalQuantity(Order.class, null));
+	}
+
+	public void testDeleteByKeys() {
+
+		dao.setBatchSize(2);
+		dao.setCommitPerBatch(true);
+
+		Order[] orders = newOrders(5);
+		dao.batchSave(Order.class, orders);
+
+		assertEquals(3, dao.deleteByKeys(Order.class,
+				Arrays.asList(orders[0].getId(), orders[2].getId(), orders[4].getId())));
+
+		assertEquals(2, dao.getTotalQuantity(Order.class, null));
+		assertNull(dao.find(Order.class, orders[2].getId()));
+		assertNotNull(dao.find(Order.class, orders[3].getId()));
+	}
+}
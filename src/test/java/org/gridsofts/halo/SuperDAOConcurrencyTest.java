@@ -0,0 +1,113 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.gridsofts.halo.dialect.MysqlDialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+import org.gridsofts.halo.pool.PoolMetrics;
+import org.gridsofts.halo.pool.PooledConnectionFactory;
+
+/**
+ * 多线程经由有界连接池读写的测试；线程数多于连接数
+ * 
+ * @author Lei
+ */
+public class SuperDAOConcurrencyTest extends H2TestCase {
+
+	private static final int Threads = 8;
+	private static final int OperationsPerThread = 25;
+
+	private PooledConnectionFactory pool;
+
+	@Override
+	protected String getMode() {
+		return "MySQL";
+	}
+
+	@Override
+	protected IDialect createDialect() {
+		return new MysqlDialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		pool = new PooledConnectionFactory(url, null, null);
+		pool.setMaxSize(2);
+		pool.setMaxWait(5000);
+
+		dao = new SuperDAO(pool);
+		dao.dialect = createDialect();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		pool.close();
+		super.tearDown();
+	}
+
+	/**
+	 * 以getGeneratedKeys取得主键的方言在保存后会重新查找；保存占用的连接须先归还，否则所有连接被占满时互相等待
+	 */
+	public void testConcurrentSaveAndFindWithinPoolSize() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(Threads);
+
+		List<Future<List<Integer>>> futures = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < Threads; i++) {
+				int thread = i;
+
+				futures.add(executor.submit((Callable<List<Integer>>) () -> {
+
+					List<Integer> ids = new ArrayList<>();
+
+					for (int j = 0; j < OperationsPerThread; j++) {
+						Order order = new Order("order-" + thread + "-" + j, j, null);
+
+						Order saved = dao.save(Order.class, order);
+						assertEquals(order.getId(), saved.getId());
+
+						assertEquals(order.getTitle(), dao.find(Order.class, order.getId()).getTitle());
+
+						ids.add(order.getId());
+					}
+
+					return ids;
+				}));
+			}
+
+			Set<Integer> ids = new HashSet<>();
+			for (Future<List<Integer>> future : futures) {
+				ids.addAll(future.get(60, TimeUnit.SECONDS));
+			}
+
+			assertEquals(Threads * OperationsPerThread, ids.size());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(Threads * OperationsPerThread, dao.getTotalQuantity(Order.class, null));
+
+		PoolMetrics metrics = pool.getMetrics();
+		assertEquals(0, metrics.getTimeoutCount());
+		assertEquals(0, metrics.getActiveCount());
+		assertTrue(metrics.getCreatedCount() <= 2);
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import org.gridsofts.halo.bean.Condition;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.exception.DAOException;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 按条件删除与清空表的测试
+ * 
+ * @author Lei
+ */
+public class SuperDAODeleteTest extends H2TestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		execute("insert into ORDERS (title, amount) select 'order-' || X, mod(X, 3) from system_range(1, 9)");
+	}
+
+	public void testDeleteByCondition() {
+
+		assertEquals(3, dao.delete(Order.class, Condition.newInstance().put("amount", 0)));
+		assertEquals(6, dao.getTotalQuantity(Order.class, null));
+	}
+
+	public void testDeleteRejectsEmptyCondition() {
+
+		for (Condition condition : new Condition[] { null, Condition.newInstance() }) {
+			try {
+				dao.delete(Order.class, condition);
+				fail();
+			} catch (DAOException e) {
+			}
+		}
+
+		assertEquals(9, dao.getTotalQuantity(Order.class, null));
+	}
+
+	public void testDeleteAll() {
+
+		assertEquals(9, dao.deleteAll(Order.class));
+		assertEquals(0, dao.getTotalQuantity(Order.class, null));
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 游标查询stream、forEach的测试：读完、提前关闭或出错时，游标均交还所占用的连接
+ * 
+ * @author Lei
+ */
+public class SuperDAOStreamTest extends H2TestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		execute("insert into ORDERS (id, title, amount) select X, 'order-' || X, X from system_range(1, 5)");
+	}
+
+	public void testCursorReleasesConnectionWhenExhausted() {
+
+		Stream<Order> orders = dao.stream(Order.class, "where amount > ? order by amount", 1);
+
+		// 游标在读取过程中占用连接
+		assertEquals(1, openConnections.get());
+
+		List<Integer> amounts = new ArrayList<>();
+		for (Iterator<Order> it = orders.iterator(); it.hasNext();) {
+			amounts.add(it.next().getAmount());
+		}
+
+		assertEquals("[2, 3, 4, 5]", amounts.toString());
+
+		// 未调用close，读完后即交还
+		assertEquals(0, openConnections.get());
+
+		orders.close();
+		assertEquals(0, openConnections.get());
+	}
+
+	public void testCursorReleasesConnectionWhenClosedEarly() {
+
+		try (Stream<Order> orders = dao.stream(Order.class, "order by amount")) {
+			assertEquals(1, orders.findFirst().get().getAmount().intValue());
+			assertEquals(1, openConnections.get());
+		}
+
+		assertEquals(0, openConnections.get());
+	}
+
+	public void testForEachVisitsEveryRowAndReleasesConnection() {
+
+		List<String> titles = new ArrayList<>();
+		dao.forEach(Order.class, "order by amount", order -> {
+			titles.add(order.getTitle());
+		});
+
+		assertEquals("[order-1, order-2, order-3, order-4, order-5]", titles.toString());
+		assertEquals(0, openConnections.get());
+	}
+
+	public void testForEachReleasesConnectionWhenActionFails() {
+
+		try {
+			dao.forEach(Order.class, "order by amount", order -> {
+				if (order.getAmount() == 2) {
+					throw new IllegalStateException();
+				}
+			});
+			fail();
+		} catch (IllegalStateException e) {
+		}
+
+		assertEquals(0, openConnections.get());
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.bean;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.gridsofts.halo.H2TestCase;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 结果集内存缓存的取值测试：空值、数值类型的直接转换及按列名查找
+ * 
+ * @author Lei
+ */
+public class RSMemoryCacheTest extends H2TestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		execute("insert into ORDERS (id, title, amount) values (1, 'first', 7), (2, '', null), (3, '42', 3)");
+	}
+
+	private RSMemoryCache query(String sql) throws Exception {
+
+		Connection conn = factory.getConnection();
+
+		try (Statement stat = conn.createStatement(); ResultSet rs = stat.executeQuery(sql)) {
+			return new RSMemoryCache(rs);
+		} finally {
+			factory.release(conn);
+		}
+	}
+
+	public void testNullsReadAsDefaults() throws Exception {
+
+		RSMemoryCache rs = query("select title, amount from ORDERS where id = 2");
+
+		assertTrue(rs.next());
+
+		// 空值及空白字符串
+		assertNull(rs.getObject("amount"));
+		assertNull(rs.getString("amount"));
+		assertEquals(0, rs.getInt("amount"));
+		assertEquals(0L, rs.getLong("amount"));
+		assertEquals(0d, rs.getDouble("amount"));
+
+		assertNull(rs.getObject("title"));
+		assertNull(rs.getString(1));
+
+		assertFalse(rs.next());
+		assertNull(rs.getObject(1));
+	}
+
+	public void testNumbersAreUnboxedWithoutParsing() throws Exception {
+
+		RSMemoryCache rs = query("select amount, cast(amount as bigint) as big, cast(amount + 0.75 as decimal(5, 2)) as dec,"
+				+ " cast(amount as double) / 2 as half from ORDERS where id = 1");
+
+		assertTrue(rs.next());
+
+		// 按列类型直接读取基本类型
+		assertEquals(Integer.valueOf(7), rs.getObject("amount"));
+		assertEquals(Long.valueOf(7), rs.getObject("big"));
+		assertEquals(Double.valueOf(3.5), rs.getObject("half"));
+		assertEquals(new BigDecimal("7.75"), rs.getObject("dec"));
+
+		assertEquals(7L, rs.getLong("amount"));
+		assertEquals(7d, rs.getDouble("big"));
+		assertEquals(7, rs.getInt("dec"));
+		assertEquals(7.75f, rs.getFloat("dec"));
+		assertEquals(3, rs.getInt("half"));
+		assertEquals("7", rs.getString("amount"));
+	}
+
+	public void testNumericTextIsParsed() throws Exception {
+
+		RSMemoryCache rs = query("select title from ORDERS where id = 3");
+
+		assertTrue(rs.next());
+
+		assertEquals(42, rs.getInt("title"));
+		assertEquals(42L, rs.getLong("title"));
+		assertEquals(42d, rs.getDouble("title"));
+	}
+
+	public void testColumnLookupByName() throws Exception {
+
+		RSMemoryCache rs = query("select o.id, o.title, c.id from ORDERS o left join CUSTOMER c on o.customerId = c.id"
+				+ " where o.id = 1");
+
+		assertTrue(rs.next());
+
+		assertEquals(3, rs.getColumns());
+		assertEquals("ID", rs.getColName(0));
+		assertEquals("ID", rs.getColName(2));
+
+		// 不区分大小写；同名的列取第一列
+		assertEquals(1, rs.getInt("ID"));
+		assertEquals(1, rs.getInt("id"));
+		assertEquals("first", rs.getString("Title"));
+		assertNull(rs.getObject(3));
+
+		// 不存在的列
+		assertNull(rs.getObject("missing"));
+		assertEquals(0, rs.getInt("missing"));
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gridsofts.halo.H2TestCase;
+import org.gridsofts.halo.entity.Order;
+
+/**
+ * 各方言共同的测试：“插入或更新”语句及分页
+ * 
+ * @author Lei
+ */
+public abstract class DialectTestCase extends H2TestCase {
+
+	protected static List<Integer> getAmounts(List<Order> orders) {
+
+		List<Integer> amounts = new ArrayList<>();
+		for (Order order : orders) {
+			amounts.add(order.getAmount());
+		}
+
+		return amounts;
+	}
+
+	public void testUpsertInsertsThenUpdates() throws Exception {
+
+		Order order = new Order("first", 1, null);
+		order.setId(50);
+		order.setCreatedBy("upsert");
+
+		assertTrue(dao.saveOrUpdate(Order.class, order) > 0);
+
+		Order saved = dao.find(Order.class, 50);
+		assertEquals("first", saved.getTitle());
+		assertEquals("upsert", saved.getCreatedBy());
+
+		order.setTitle("second");
+		order.setAmount(2);
+		order.setCreatedBy("changed");
+
+		assertTrue(dao.saveOrUpdate(Order.class, order) > 0);
+
+		saved = dao.find(Order.class, 50);
+		assertEquals("second", saved.getTitle());
+		assertEquals(2, saved.getAmount().intValue());
+
+		// DontModify的列只在插入时写入
+		assertEquals("upsert", saved.getCreatedBy());
+
+		assertEquals(1, dao.getTotalQuantity(Order.class, null));
+	}
+
+	public void testPaging() throws Exception {
+
+		execute("insert into ORDERS (id, title, amount) select X, 'order-' || X, X from system_range(1, 10)");
+
+		List<Order> page = dao.list(Order.class, 3, 4, "where amount > ? order by amount", 1);
+
+		assertEquals("[5, 6, 7, 8]", getAmounts(page).toString());
+		assertEquals("[10, 9]", getAmounts(dao.list(Order.class, 0, 2, "order by amount desc")).toString());
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * H2方言的测试：MERGE、LIMIT/OFFSET分页，以及由FINAL TABLE返回所插入的行
+ * 
+ * @author Lei
+ */
+public class H2DialectTest extends DialectTestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	public void testSaveReturnsInsertedRow() {
+
+		Order order = new Order("returned", 7, null);
+		order.setCreatedBy("app");
+
+		Order saved = dao.save(Order.class, order);
+
+		// 自动生成的主键经由返回的行回写
+		assertNotNull(order.getId());
+		assertNotSame(order, saved);
+
+		assertEquals(order.getId(), saved.getId());
+		assertEquals("returned", saved.getTitle());
+		assertEquals(7, saved.getAmount().intValue());
+		assertEquals("app", saved.getCreatedBy());
+
+		assertEquals("returned", dao.find(Order.class, order.getId()).getTitle());
+	}
+}
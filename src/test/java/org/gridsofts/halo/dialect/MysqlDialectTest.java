@@ -0,0 +1,26 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * MySQL方言的测试，运行于H2的MySQL兼容模式：ON DUPLICATE KEY UPDATE、LIMIT ?, ?分页
+ * 
+ * @author Lei
+ */
+public class MysqlDialectTest extends DialectTestCase {
+
+	@Override
+	protected String getMode() {
+		return "MySQL";
+	}
+
+	@Override
+	protected IDialect createDialect() {
+		return new MysqlDialect();
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.gridsofts.halo.MetaInfo;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * Oracle 12c方言的测试，运行于H2的Oracle兼容模式：MERGE、OFFSET/FETCH分页、以序列生成主键的批量保存
+ * 
+ * @author Lei
+ */
+public class OracleDialectTest extends DialectTestCase {
+
+	@Override
+	protected String getMode() {
+		return "Oracle";
+	}
+
+	/**
+	 * @return 未设置属性的方言
+	 */
+	protected OracleDialect newDialect() {
+		return new Oracle12cDialect();
+	}
+
+	@Override
+	protected IDialect createDialect() {
+
+		Properties properties = new Properties();
+		properties.setProperty(Order.class.getName() + ".PKPolicy", "ORDER_SEQ.NEXTVAL");
+
+		OracleDialect dialect = newDialect();
+		dialect.setProperties(properties);
+
+		return dialect;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		execute("create sequence ORDER_SEQ start with 100");
+	}
+
+	/**
+	 * H2无法推断“SELECT ? AS col FROM DUAL”中参数的类型，因此只检查生成的MERGE语句
+	 */
+	@Override
+	public void testUpsertInsertsThenUpdates() throws Exception {
+
+		Order order = new Order("first", 1, null);
+		order.setId(50);
+
+		List<Object> values = new ArrayList<>();
+
+		String sql = createDialect().getUpsertSQL(values, MetaInfo.get(Order.class), "ORDERS", order);
+
+		assertEquals("MERGE INTO ORDERS USING (SELECT ? AS id, ? AS title, ? AS amount, ? AS customerId,"
+				+ " ? AS createdBy FROM DUAL) HALO_S ON (ORDERS.id = HALO_S.id)"
+				+ " WHEN MATCHED THEN UPDATE SET title = HALO_S.title, amount = HALO_S.amount,"
+				+ " customerId = HALO_S.customerId"
+				+ " WHEN NOT MATCHED THEN INSERT (id, title, amount, customerId, createdBy)"
+				+ " VALUES (HALO_S.id, HALO_S.title, HALO_S.amount, HALO_S.customerId, HALO_S.createdBy)", sql);
+
+		assertEquals(Arrays.asList(50, "first", 1, null, null), values);
+	}
+
+	public void testPagesShareStatementText() {
+
+		IDialect dialect = createDialect();
+		String sql = "SELECT * FROM ORDERS ORDER BY amount";
+
+		List<Object> first = new ArrayList<>();
+		List<Object> second = new ArrayList<>();
+
+		assertEquals(dialect.getPageSQL(sql, 0, 4, first), dialect.getPageSQL(sql, 4, 4, second));
+		assertEquals(first.size(), second.size());
+	}
+
+	public void testOffsetOnlyPaging() throws Exception {
+
+		execute("insert into ORDERS (id, title, amount) select X, 'order-' || X, X from system_range(1, 10)");
+
+		assertEquals("[9, 10]", getAmounts(dao.list(Order.class, 8, 0, "order by amount")).toString());
+		assertEquals("[9, 10]", getAmounts(dao.list(Order.class, 8, -1, "order by amount")).toString());
+		assertEquals(10, dao.list(Order.class, -1, -1, "order by amount").size());
+	}
+
+	public void testBatchSaveWithSequenceKeys() {
+
+		dao.setBatchSize(2);
+
+		Order[] orders = new Order[5];
+		for (int i = 0; i < orders.length; i++) {
+			orders[i] = new Order("order-" + i, i, null);
+		}
+
+		assertEquals(5, dao.batchSave(Order.class, orders));
+
+		List<Order> saved = dao.list(Order.class, "order by id");
+
+		assertEquals(5, saved.size());
+		for (int i = 0; i < saved.size(); i++) {
+			assertEquals(100 + i, saved.get(i).getId().intValue());
+			assertEquals("order-" + i, saved.get(i).getTitle());
+		}
+	}
+}
@@ -0,0 +1,19 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.dialect;
+
+/**
+ * 12c之前的Oracle方言：以ROWNUM分页，其余同{@link OracleDialectTest}
+ * 
+ * @author Lei
+ */
+public class OracleRownumDialectTest extends OracleDialectTest {
+
+	@Override
+	protected OracleDialect newDialect() {
+		return new OracleDialect();
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.entity;
+
+import java.util.List;
+
+import org.gridsofts.halo.annotation.OneToMany;
+import org.gridsofts.halo.annotation.Table;
+import org.gridsofts.halo.itf.IWritebackKeys;
+
+/**
+ * 测试用实体：客户
+ * 
+ * @author Lei
+ */
+@Table(value = "CUSTOMER", primaryKey = { "id" })
+public class Customer implements IWritebackKeys {
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+	private String name;
+
+	@OneToMany(elementType = Order.class, foreignKey = { "customerId" }, lazy = true, batchSize = 10, orderBy = "id")
+	private List<Order> orders;
+
+	public Customer() {
+	}
+
+	public Customer(Integer id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	@Override
+	public void setGeneratedKey(Object[] key) {
+		id = ((Number) key[0]).intValue();
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public List<Order> getOrders() {
+		return orders;
+	}
+
+	public void setOrders(List<Order> orders) {
+		this.orders = orders;
+	}
+}
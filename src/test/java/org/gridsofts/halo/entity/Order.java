@@ -0,0 +1,94 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.entity;
+
+import org.gridsofts.halo.annotation.DontModify;
+import org.gridsofts.halo.annotation.ManyToOne;
+import org.gridsofts.halo.annotation.Table;
+import org.gridsofts.halo.itf.IWritebackKeys;
+
+/**
+ * 测试用实体：订单；按金额、主键键集分页
+ * 
+ * @author Lei
+ */
+@Table(value = "ORDERS", primaryKey = { "id" }, seekKey = { "amount" })
+public class Order implements IWritebackKeys {
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+	private String title;
+	private Integer amount;
+	private Integer customerId;
+
+	@DontModify
+	private String createdBy;
+
+	@ManyToOne(foreignKey = { "customerId" }, lazy = true, batchSize = 10)
+	private Customer customer;
+
+	public Order() {
+	}
+
+	public Order(String title, Integer amount, Integer customerId) {
+		this.title = title;
+		this.amount = amount;
+		this.customerId = customerId;
+	}
+
+	@Override
+	public void setGeneratedKey(Object[] key) {
+		id = ((Number) key[0]).intValue();
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public Integer getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Integer amount) {
+		this.amount = amount;
+	}
+
+	public Integer getCustomerId() {
+		return customerId;
+	}
+
+	public void setCustomerId(Integer customerId) {
+		this.customerId = customerId;
+	}
+
+	public String getCreatedBy() {
+		return createdBy;
+	}
+
+	public void setCreatedBy(String createdBy) {
+		this.createdBy = createdBy;
+	}
+
+	public Customer getCustomer() {
+		return customer;
+	}
+
+	public void setCustomer(Customer customer) {
+		this.customer = customer;
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.entity;
+
+import org.gridsofts.halo.annotation.Cacheable;
+import org.gridsofts.halo.annotation.Table;
+
+/**
+ * 测试用实体：开启了实体缓存，映射到CUSTOMER表
+ * 
+ * @author Lei
+ */
+@Cacheable
+@Table(value = "CUSTOMER", primaryKey = { "id" })
+public class Region {
+
+	private Integer id;
+	private String name;
+
+	public Region() {
+	}
+
+	public Region(Integer id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.pool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.gridsofts.halo.exception.ConnectionException;
+
+/**
+ * 连接池的测试：连接数限制、复用、重复归还、验证间隔、泄漏检测、空闲回收及运行指标
+ * 
+ * @author Lei
+ */
+public class PooledConnectionFactoryTest extends TestCase {
+
+	private static final AtomicInteger DatabaseSeq = new AtomicInteger();
+
+	// 以“jdbc:counting:”开头的URL连接到H2，并统计isValid的调用次数；invalid为true时isValid返回false
+	private static final AtomicInteger ValidationCount = new AtomicInteger();
+	private static volatile boolean invalid = false;
+
+	static {
+		try {
+			DriverManager.registerDriver(new CountingDriver());
+		} catch (SQLException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private String url;
+	private PooledConnectionFactory pool;
+
+	@Override
+	protected void setUp() throws Exception {
+		url = "jdbc:h2:mem:pool" + DatabaseSeq.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+
+		pool = new PooledConnectionFactory(url, "sa", "");
+		pool.setMaxSize(2);
+		pool.setMaxWait(200);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		pool.close();
+
+		try (Connection conn = DriverManager.getConnection(url, "sa", ""); Statement stat = conn.createStatement()) {
+			stat.execute("shutdown");
+		}
+	}
+
+	private static int querySessionId(Connection conn) throws SQLException {
+		try (Statement stat = conn.createStatement(); ResultSet rs = stat.executeQuery("select session_id()")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	public void testMaxSizeAndTimeout() {
+
+		Connection first = pool.getConnection();
+		Connection second = pool.getConnection();
+
+		try {
+			pool.getConnection();
+			fail();
+		} catch (ConnectionException e) {
+		}
+
+		PoolMetrics metrics = pool.getMetrics();
+		assertEquals(2, metrics.getActiveCount());
+		assertEquals(1, metrics.getTimeoutCount());
+
+		pool.release(first);
+
+		Connection third = pool.getConnection();
+		assertEquals(2, pool.getMetrics().getCreatedCount());
+
+		pool.release(second);
+		pool.release(third);
+
+		metrics = pool.getMetrics();
+		assertEquals(0, metrics.getActiveCount());
+		assertEquals(2, metrics.getIdleCount());
+		assertEquals(3, metrics.getBorrowCount());
+	}
+
+	public void testMinSizeIsCreatedOnStart() {
+
+		pool.setMinSize(2);
+		pool.start();
+
+		assertEquals(2, pool.getMetrics().getIdleCount());
+		assertEquals(2, pool.getMetrics().getCreatedCount());
+	}
+
+	public void testConnectionIsReused() throws SQLException {
+
+		Connection first = pool.getConnection();
+		int sessionId = querySessionId(first);
+		first.close();
+
+		Connection second = pool.getConnection();
+
+		assertNotSame(first, second);
+		assertEquals(sessionId, querySessionId(second));
+		assertEquals(1, pool.getMetrics().getCreatedCount());
+
+		pool.release(second);
+	}
+
+	public void testDoubleReleaseDoesNotAffectNextBorrower() throws SQLException {
+
+		Connection first = pool.getConnection();
+		pool.release(first);
+
+		Connection second = pool.getConnection();
+		int sessionId = querySessionId(second);
+
+		// 调用者的重复归还
+		pool.release(first);
+		first.close();
+
+		assertTrue(first.isClosed());
+		try {
+			first.createStatement();
+			fail();
+		} catch (SQLException e) {
+		}
+
+		assertFalse(second.isClosed());
+		assertEquals(sessionId, querySessionId(second));
+		assertEquals(1, pool.getMetrics().getActiveCount());
+
+		second.close();
+		second.close();
+
+		assertEquals(0, pool.getMetrics().getActiveCount());
+		assertEquals(1, pool.getMetrics().getIdleCount());
+		assertEquals(0, pool.getMetrics().getDestroyedCount());
+	}
+
+	public void testUnknownConnectionIsIgnored() throws SQLException {
+
+		try (Connection raw = DriverManager.getConnection(url, "sa", "")) {
+			pool.release(raw);
+
+			assertFalse(raw.isClosed());
+		}
+	}
+
+	public void testValidationInterval() throws SQLException {
+
+		pool = new PooledConnectionFactory(url.replace("jdbc:h2:", "jdbc:counting:"), "sa", "");
+		pool.setValidationInterval(60000);
+
+		ValidationCount.set(0);
+		invalid = false;
+
+		try {
+			pool.release(pool.getConnection());
+
+			// 验证间隔内只检查是否已关闭，不调用isValid
+			invalid = true;
+
+			Connection conn = pool.getConnection();
+			assertEquals(0, ValidationCount.get());
+			assertEquals(1, pool.getMetrics().getCreatedCount());
+			pool.release(conn);
+
+			// 超过验证间隔时验证，丢弃失效的连接并新建
+			pool.setValidationInterval(0);
+
+			conn = pool.getConnection();
+			invalid = false;
+
+			PoolMetrics metrics = pool.getMetrics();
+			assertEquals(1, ValidationCount.get());
+			assertEquals(1, metrics.getValidationFailureCount());
+			assertEquals(2, metrics.getCreatedCount());
+			assertEquals(1, metrics.getDestroyedCount());
+
+			pool.release(conn);
+		} finally {
+			invalid = false;
+		}
+	}
+
+	public void testClosedIdleConnectionIsReplaced() throws SQLException {
+
+		Connection conn = pool.getConnection();
+		conn.unwrap(Connection.class).close();
+		pool.release(conn);
+
+		// 归还时发现已关闭，直接销毁
+		assertEquals(0, pool.getMetrics().getIdleCount());
+		assertEquals(1, pool.getMetrics().getDestroyedCount());
+
+		conn = pool.getConnection();
+		assertFalse(conn.isClosed());
+		assertEquals(2, pool.getMetrics().getCreatedCount());
+
+		pool.release(conn);
+	}
+
+	public void testLeakDetection() throws InterruptedException {
+
+		pool.setLeakDetectionThreshold(50);
+		pool.setHousekeepingInterval(20);
+
+		Connection conn = pool.getConnection();
+
+		for (int i = 0; i < 100 && pool.getMetrics().getLeakCount() == 0; i++) {
+			Thread.sleep(20);
+		}
+
+		assertEquals(1, pool.getMetrics().getLeakCount());
+
+		pool.release(conn);
+	}
+
+	public void testIdleTimeout() throws InterruptedException {
+
+		pool.setIdleTimeout(50);
+		pool.setHousekeepingInterval(20);
+
+		pool.release(pool.getConnection());
+		assertEquals(1, pool.getMetrics().getIdleCount());
+
+		for (int i = 0; i < 100 && pool.getMetrics().getIdleCount() > 0; i++) {
+			Thread.sleep(20);
+		}
+
+		assertEquals(0, pool.getMetrics().getIdleCount());
+		assertEquals(1, pool.getMetrics().getDestroyedCount());
+	}
+
+	/**
+	 * 包装H2连接的驱动，用于观察连接池的验证行为
+	 */
+	private static class CountingDriver implements Driver {
+
+		private static final String Prefix = "jdbc:counting:";
+
+		@Override
+		public Connection connect(String url, Properties info) throws SQLException {
+
+			if (!acceptsURL(url)) {
+				return null;
+			}
+
+			Connection conn = DriverManager.getConnection("jdbc:h2:" + url.substring(Prefix.length()), info);
+
+			return (Connection) Proxy.newProxyInstance(CountingDriver.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+						if (method.getName().equals("isValid")) {
+							ValidationCount.incrementAndGet();
+
+							if (invalid) {
+								return false;
+							}
+						}
+
+						try {
+							return method.invoke(conn, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+
+		@Override
+		public boolean acceptsURL(String url) {
+			return url != null && url.startsWith(Prefix);
+		}
+
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		@Override
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.proxy;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.gridsofts.halo.H2TestCase;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Customer;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 同一次查询的代理Bean批量加载关联的测试
+ * 
+ * @author Lei
+ */
+public class BeanGroupTest extends H2TestCase {
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		execute("insert into CUSTOMER (id, name) values (1, 'a'), (2, 'b')",
+				"insert into ORDERS (id, title, amount, customerId) values (1, 'o1', 10, 1), (2, 'o2', 20, 2),"
+						+ " (3, 'o3', 30, 1)");
+
+		dao.setCascading(true);
+	}
+
+	public void testAccessingOneBeanLoadsWholeGroup() throws Exception {
+
+		List<Order> orders = dao.list(Order.class, "order by id");
+
+		assertEquals("a", orders.get(0).getCustomer().getName());
+
+		// 同组的其它Bean已经赋值，不经由getter读取字段
+		Field customerField = Order.class.getDeclaredField("customer");
+		customerField.setAccessible(true);
+
+		assertEquals("b", ((Customer) customerField.get(orders.get(1))).getName());
+		assertSame(customerField.get(orders.get(0)), customerField.get(orders.get(2)));
+	}
+
+	public void testRetainedBeanDoesNotPinGroup() {
+
+		List<Order> orders = dao.list(Order.class, "order by id");
+
+		Order retained = orders.get(0);
+		WeakReference<Order> released = new WeakReference<>(orders.get(1));
+
+		orders = null;
+
+		for (int i = 0; i < 20 && released.get() != null; i++) {
+			System.gc();
+		}
+
+		assertNull(released.get());
+
+		// 组内仍可达的Bean照常加载
+		assertEquals("a", retained.getCustomer().getName());
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * 版权所有 ©2011-2013 格点软件(北京)有限公司 All rights reserved.
+ * 
+ * 未经书面授权，不得擅自复制、影印、储存或散播。
+ */
+package org.gridsofts.halo.proxy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.cglib.proxy.MethodInterceptor;
+
+import org.gridsofts.halo.H2TestCase;
+import org.gridsofts.halo.annotation.ManyToOne;
+import org.gridsofts.halo.annotation.Table;
+import org.gridsofts.halo.annotation.Transient;
+import org.gridsofts.halo.dialect.H2Dialect;
+import org.gridsofts.halo.entity.Customer;
+import org.gridsofts.halo.entity.Order;
+import org.gridsofts.halo.itf.IDialect;
+
+/**
+ * 代理类按回调过滤器分派方法，以及延迟加载拦截器的测试
+ * 
+ * @author Lei
+ */
+public class LazyInterceptorTest extends H2TestCase {
+
+	/**
+	 * 记录关联getter被调用次数的实体
+	 */
+	@Table(value = "ORDERS", primaryKey = { "id" })
+	public static class CountingOrder {
+
+		private Integer id;
+		private Integer customerId;
+
+		@ManyToOne(foreignKey = { "customerId" }, lazy = true)
+		private Customer customer;
+
+		@Transient
+		private int customerReads;
+
+		public Integer getId() {
+			return id;
+		}
+
+		public void setId(Integer id) {
+			this.id = id;
+		}
+
+		public Integer getCustomerId() {
+			return customerId;
+		}
+
+		public void setCustomerId(Integer customerId) {
+			this.customerId = customerId;
+		}
+
+		public Customer getCustomer() {
+			customerReads++;
+			return customer;
+		}
+
+		public void setCustomer(Customer customer) {
+			this.customer = customer;
+		}
+	}
+
+	@Override
+	protected IDialect createDialect() {
+		return new H2Dialect();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		execute("insert into CUSTOMER (id, name) values (1, 'a')",
+				"insert into ORDERS (id, title, amount, customerId) values (1, 'o1', 10, 1)");
+
+		dao.setCascading(true);
+	}
+
+	public void testOnlyLazyGettersReachInterceptor() {
+
+		AtomicInteger intercepted = new AtomicInteger();
+
+		MethodInterceptor interceptor = (obj, method, args, proxy) -> {
+			intercepted.incrementAndGet();
+			return proxy.invokeSuper(obj, args);
+		};
+
+		Order order = ProxyType.get(Order.class).newInstance(Order.class, interceptor);
+
+		order.setId(1);
+		order.setTitle("t");
+		order.getId();
+		order.getTitle();
+		order.getAmount();
+		order.setCustomer(null);
+		order.toString();
+
+		assertEquals(0, intercepted.get());
+
+		order.getCustomer();
+
+		assertEquals(1, intercepted.get());
+	}
+
+	public void testLoadedGetterCallsSuperOnce() {
+
+		CountingOrder order = dao.find(CountingOrder.class, 1);
+
+		// 首次访问：读取、加载后再次读取
+		assertEquals("a", order.getCustomer().getName());
+
+		int reads = order.customerReads;
+
+		// 已加载：只调用一次父类的getter
+		assertEquals("a", order.getCustomer().getName());
+		assertEquals(reads + 1, order.customerReads);
+	}
+}